@@ -0,0 +1,71 @@
+package benchcrawler;
+
+import crawler.HyperlinkListBuilder;
+import crawler.HyperlinkListBuilderImplScanner;
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * This benchmark measures the cost of decoding the hyperlinks of a page in
+ * its character set. The 'ascii' page is the page used by the other
+ * benchmarks, whose hyperlinks are copied straight into strings, and is the
+ * cost of the scan alone. The other pages name their character set in a
+ * <meta> tag and have relative hyperlinks that are not ASCII, so that each
+ * of them is decoded and escaped. A UTF-16 page is also decoded and encoded
+ * as UTF-8 as it is read.
+ * 
+ * @author James Hill
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CharsetBenchmark {
+    
+    @Param({"1048576"})
+    int pageSize;
+    
+    @Param({"1", "10", "50"})
+    int anchorsPerKB;
+    
+    @Param({"ascii", "ISO-8859-1", "UTF-8", "UTF-16"})
+    String charset;
+    
+    byte[] page;
+    ByteBuffer buffer;
+    HyperlinkListBuilder builder;
+    int links;
+    
+    @Setup
+    public void prepare(){
+        page = HtmlCorpus.generate(pageSize, anchorsPerKB, 42,
+                charset.equals("ascii") ? null : Charset.forName(charset));
+        buffer = ByteBuffer.wrap(page);
+        builder = new HyperlinkListBuilderImplScanner();
+    }
+    
+    @Benchmark
+    public int readStream(){
+        return builder.readLinks("http://www.example.com/", new ByteArrayInputStream(page), link -> links++);
+    }
+    
+    @Benchmark
+    public int readBuffer(){
+        return builder.readLinks("http://www.example.com/", buffer, link -> links++);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,86 @@
+package benchcrawler;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+/**
+ * This class generates HTML pages for the benchmarks. The pages are built
+ * from a fixed seed so that every run parses exactly the same bytes, and
+ * contain a mix of absolute, relative and javascript hyperlinks spread
+ * between paragraphs of filler text.
+ * 
+ * @author James Hill
+ */
+public class HtmlCorpus {
+    
+    // Text used to fill the space between the hyperlinks.
+    private static final String FILLER = "<p class=\"text\">Lorem ipsum dolor sit amet,"
+            + " consectetur adipiscing elit, sed do eiusmod tempor incididunt ut"
+            + " labore et dolore magna aliqua.</p>\n";
+    
+    private HtmlCorpus(){}
+    
+    /**
+     * This method generates a HTML page of roughly the size requested.
+     * 
+     * @param size the number of bytes in the page.
+     * @param anchorsPerKB the number of hyperlinks in each 1024 bytes.
+     * @param seed the seed for the choice of hyperlinks.
+     * @return the page encoded as ISO-8859-1.
+     */
+    public static byte[] generate(int size, int anchorsPerKB, long seed){
+        return generate(size, anchorsPerKB, seed, null);
+    }
+    
+    /**
+     * This method generates a HTML page of roughly the size requested in a
+     * character set, which is named by a <meta> tag. The relative hyperlinks
+     * contain characters that are not ASCII.
+     * 
+     * @param size the number of bytes in the page.
+     * @param anchorsPerKB the number of hyperlinks in each 1024 bytes.
+     * @param seed the seed for the choice of hyperlinks.
+     * @param charset the character set of the page, or null for an ASCII
+     * page encoded as ISO-8859-1.
+     * @return the page encoded in the character set.
+     */
+    public static byte[] generate(int size, int anchorsPerKB, long seed, Charset charset){
+        Random random = new Random(seed);
+        StringBuilder page = new StringBuilder(size + 256);
+        page.append("<!DOCTYPE html>\n<html>\n<head>\n");
+        if(charset != null){
+            page.append("<meta charset=\"").append(charset.name()).append("\">\n");
+        }
+        page.append("<base href=\"http://www.example.com/base/\">\n")
+                .append("</head>\n<body>\n");
+        int anchors = 0;
+        while(page.length() < size){
+            int expected = (int)((long)page.length() * anchorsPerKB / 1024);
+            if(anchors < expected){
+                page.append(anchor(random, anchors++, charset != null));
+            } else {
+                page.append(FILLER);
+            }
+        }
+        page.append("</body>\n</html>\n");
+        return page.toString().getBytes(charset != null ? charset : StandardCharsets.ISO_8859_1);
+    }
+    
+    /**
+     * This method returns a hyperlink for the page. Most hyperlinks are
+     * relative, some are absolute and a few are javascript.
+     */
+    private static String anchor(Random random, int number, boolean accented){
+        int kind = random.nextInt(10);
+        String href;
+        if(kind < 6){
+            href = (accented ? "se\u00e7\u00e3o" : "section") + random.nextInt(50) + "/page" + number + ".html";
+        } else if(kind < 9){
+            href = "http://www.host" + random.nextInt(20) + ".com/path/" + number + "/";
+        } else {
+            href = "javascript:void(0);";
+        }
+        return "<a id=\"link" + number + "\" href=\"" + href + "\">Link " + number + "</a>\n";
+    }
+}
\ No newline at end of file
@@ -0,0 +1,81 @@
+package benchcrawler;
+
+import crawler.HTMLread;
+import crawler.HTMLreadImpl;
+import crawler.HTMLreadImplBuffered;
+import crawler.HyperlinkListBuilder;
+import crawler.HyperlinkListBuilderImpl;
+import crawler.HyperlinkListBuilderImplScanner;
+import java.io.ByteArrayInputStream;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * This benchmark measures the time taken by HyperlinkListBuilderImpl to build
+ * the list of hyperlinks from generated pages of different sizes and numbers
+ * of hyperlinks, using each of the HTMLread implementations, and by
+ * HyperlinkListBuilderImplScanner, 'scanner'. The hyperlinks are also read
+ * from a copy of the page held in a direct ByteBuffer.
+ * 
+ * @author James Hill
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HyperlinkListBuilderBenchmark {
+    
+    @Param({"16384", "1048576", "8388608"})
+    int pageSize;
+    
+    @Param({"1", "10", "50"})
+    int anchorsPerKB;
+    
+    @Param({"HTMLreadImpl", "HTMLreadImplBuffered", "scanner"})
+    String reader;
+    
+    byte[] page;
+    ByteBuffer direct;
+    HyperlinkListBuilder builder;
+    int links;
+    
+    @Setup
+    public void prepare(){
+        page = HtmlCorpus.generate(pageSize, anchorsPerKB, 42);
+        direct = ByteBuffer.allocateDirect(page.length);
+        direct.put(page).flip();
+        if(reader.equals("scanner")){
+            builder = new HyperlinkListBuilderImplScanner();
+        } else {
+            HTMLread htmlReader = reader.equals("HTMLreadImpl")
+                    ? new HTMLreadImpl()
+                    : new HTMLreadImplBuffered();
+            builder = new HyperlinkListBuilderImpl(htmlReader);
+        }
+    }
+    
+    @Benchmark
+    public List<URL> createList(){
+        return builder.createList("http://www.example.com/", new ByteArrayInputStream(page));
+    }
+    
+    @Benchmark
+    public int readBuffer(){
+        return builder.readLinks("http://www.example.com/", direct, link -> links++);
+    }
+}
\ No newline at end of file
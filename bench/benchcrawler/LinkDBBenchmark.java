@@ -0,0 +1,161 @@
+package benchcrawler;
+
+import crawler.LinkDB;
+import crawler.LinkDBImpl;
+import crawler.LinkDBImplMemory;
+import crawler.TempLink;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * This benchmark measures the LinkDB operations used by the crawl loop on a
+ * 'temporary' table that already holds a given number of hyperlinks, for
+ * both the Derby and the in-memory implementations.
+ * 
+ * The table is filled again before every iteration. The operations that
+ * change the table are timed over a single batch of calls in each
+ * iteration, so that the table stays close to the size given: a batch
+ * polls or adds a tenth of the smallest table at most.
+ * 
+ * @author James Hill
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LinkDBBenchmark {
+    
+    // Strings for the database.
+    static final String driver = "org.apache.derby.jdbc.EmbeddedDriver";
+    static final String protocol = "jdbc:derby:memory:";
+    static final String dbName = "benchDB;";
+    
+    // The prefix of every generated hyperlink.
+    static final String prefix = "http://www.example.com/page/";
+    
+    // The calls made in each iteration by the operations that change the table.
+    static final int BATCH = 1000;
+    
+    @Param({"10000", "100000", "1000000"})
+    int links;
+    
+    @Param({"derby", "memory"})
+    String mode;
+    
+    Connection conn;
+    LinkDB dataBase;
+    int lookup = 0;
+    int written = 0;
+    
+    @Setup(Level.Iteration)
+    public void prepare() throws ClassNotFoundException, SQLException{
+        if(mode.equals("derby")){
+            Class.forName(driver);
+            conn = DriverManager.getConnection(protocol + dbName + "create=true");
+            dataBase = new LinkDBImpl(conn);
+        } else {
+            dataBase = new LinkDBImplMemory();
+        }
+        
+        // Fill the table in batches of a thousand hyperlinks.
+        List<String> batch = new ArrayList<>(1000);
+        for(int i = 0; i < links; i++){
+            batch.add(prefix + i);
+            if(batch.size() == 1000){
+                dataBase.writeTempBatch(1 + i % 3, batch);
+                batch.clear();
+            }
+        }
+        dataBase.writeTempBatch(1, batch);
+        written = links;
+        lookup = 0;
+    }
+    
+    @TearDown(Level.Iteration)
+    public void close(){
+        if(conn == null){return;}
+        try {conn.close();} catch (SQLException exc) {}
+        conn = null;
+        try {
+            DriverManager.getConnection(protocol + dbName + "drop=true");
+        } catch (SQLException exc) {}
+    }
+    
+    @Benchmark
+    public boolean checkExistsTemp(){
+        lookup = (lookup + 7919) % links;
+        return dataBase.checkExistsTemp(prefix + lookup);
+    }
+    
+    @Benchmark
+    public boolean checkExistsTempMissing(){
+        lookup = (lookup + 7919) % links;
+        return dataBase.checkExistsTemp(prefix + "missing/" + lookup);
+    }
+    
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OperationsPerInvocation(BATCH)
+    @Warmup(iterations = 10)
+    @Measurement(iterations = 10)
+    public void writeTemp(){
+        for(int i = 0; i < BATCH; i++){
+            dataBase.writeTemp(2, prefix + written++);
+        }
+    }
+    
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OperationsPerInvocation(BATCH)
+    @Warmup(iterations = 10)
+    @Measurement(iterations = 10)
+    public int writeTempIfAbsent(){
+        // Every other link is already in the table, and the rest are new.
+        int added = 0;
+        for(int i = 0; i < BATCH; i++){
+            lookup = (lookup + 7919) % links;
+            String link = i % 2 == 0 ? prefix + lookup : prefix + written++;
+            if(dataBase.writeTempIfAbsent(2, link)){added++;}
+        }
+        return added;
+    }
+    
+    @Benchmark
+    public String getNextURL(){
+        return dataBase.getNextURL();
+    }
+    
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OperationsPerInvocation(BATCH)
+    @Warmup(iterations = 10)
+    @Measurement(iterations = 10)
+    public TempLink pollNext(){
+        TempLink next = null;
+        for(int i = 0; i < BATCH; i++){
+            next = dataBase.pollNext();
+            if(next != null){dataBase.linkVisited(next.getLink());}
+        }
+        return next;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,72 @@
+package benchcrawler;
+
+import crawler.Histogram;
+import crawler.MetricsRegistry;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * This benchmark measures the cost of recording a metric from one thread and
+ * from four threads at once, for a counter, a histogram and, for comparison,
+ * the AtomicLong the counters replaced. Each is small beside the time taken
+ * to fetch a page, which is the least often a metric is recorded.
+ * 
+ * @author James Hill
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MetricsBenchmark {
+    
+    MetricsRegistry metrics = new MetricsRegistry();
+    LongAdder counter = metrics.counter("counter");
+    Histogram histogram = metrics.histogram("histogram");
+    AtomicLong atomic = new AtomicLong();
+    
+    @Benchmark
+    public void counter(){
+        counter.increment();
+    }
+    
+    @Benchmark
+    public void histogram(){
+        histogram.record(System.nanoTime() & 0xfffff);
+    }
+    
+    @Benchmark
+    public long atomic(){
+        return atomic.incrementAndGet();
+    }
+    
+    @Benchmark
+    @Threads(4)
+    public void counterThreads(){
+        counter.increment();
+    }
+    
+    @Benchmark
+    @Threads(4)
+    public void histogramThreads(){
+        histogram.record(System.nanoTime() & 0xfffff);
+    }
+    
+    @Benchmark
+    @Threads(4)
+    public long atomicThreads(){
+        return atomic.incrementAndGet();
+    }
+}
\ No newline at end of file
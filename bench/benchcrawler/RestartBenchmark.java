@@ -0,0 +1,115 @@
+package benchcrawler;
+
+import crawler.LinkDB;
+import crawler.LinkDBImpl;
+import crawler.TempLink;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * This benchmark measures how long a crawl kept in a Derby database on disk
+ * takes to restart: booting the database, opening the LinkDBImpl on the
+ * existing tables, putting the links that were in progress back in the queue
+ * and taking the first link to crawl. The database is shut down before each
+ * restart. A third of the hyperlinks in the table have been visited and a
+ * hundred are in progress.
+ * 
+ * @author James Hill
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class RestartBenchmark {
+    
+    // Strings for the database.
+    static final String driver = "org.apache.derby.jdbc.EmbeddedDriver";
+    static final String protocol = "jdbc:derby:";
+    
+    // The prefix of every generated hyperlink.
+    static final String prefix = "http://www.example.com/page/";
+    
+    @Param({"100000", "1000000"})
+    int links;
+    
+    File directory;
+    String url;
+    Connection conn;
+    
+    @Setup(Level.Trial)
+    public void prepare() throws ClassNotFoundException, IOException, SQLException{
+        Class.forName(driver);
+        directory = Files.createTempDirectory("restart-bench").toFile();
+        url = protocol + new File(directory, "crawl").getPath() + ";";
+        conn = DriverManager.getConnection(url + "create=true");
+        LinkDB dataBase = new LinkDBImpl(conn);
+        
+        // Fill the table in batches of a thousand hyperlinks.
+        List<String> batch = new ArrayList<>(1000);
+        for(int i = 0; i < links; i++){
+            batch.add(prefix + i);
+            if(batch.size() == 1000){
+                dataBase.writeTempBatch(1 + i % 3, batch);
+                batch.clear();
+            }
+        }
+        dataBase.writeTempBatch(1, batch);
+        
+        // Visit a third of the hyperlinks and leave a hundred in progress.
+        for(int i = 0; i < links / 3; i++){
+            dataBase.linkVisited(dataBase.pollNext().getLink());
+        }
+        for(int i = 0; i < 100; i++){
+            dataBase.pollNext();
+        }
+        shutdown();
+    }
+    
+    @TearDown(Level.Invocation)
+    public void shutdown(){
+        try {conn.close();} catch (SQLException exc) {}
+        try {
+            DriverManager.getConnection(url + "shutdown=true");
+        } catch (SQLException exc) {}
+    }
+    
+    @TearDown(Level.Trial)
+    public void delete() throws IOException{
+        try (Stream<Path> files = Files.walk(directory.toPath())) {
+            files.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+    
+    @Benchmark
+    public TempLink restart() throws SQLException{
+        conn = DriverManager.getConnection(url);
+        LinkDB dataBase = new LinkDBImpl(conn);
+        dataBase.requeueInProgress();
+        return dataBase.pollNext();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,145 @@
+package benchcrawler;
+
+import crawler.VisitedSet;
+import crawler.VisitedSetImpl;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * This benchmark measures lookups in a VisitedSet that already holds a given
+ * number of hyperlinks, for the off-heap fingerprint set with and without
+ * its Bloom filter and for a HashSet of the hyperlinks themselves. The memory
+ * taken for each hyperlink is printed when the set is first filled.
+ * 
+ * The set is filled again before every iteration, and adds are timed over a
+ * single batch of new hyperlinks in each iteration, so that the set stays
+ * close to the size given.
+ * 
+ * @author James Hill
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx3g", "-XX:MaxDirectMemorySize=2g"})
+public class VisitedSetBenchmark {
+    
+    // The prefix of every generated hyperlink.
+    static final String prefix = "http://www.example.com/page/";
+    
+    // The hyperlinks added in each iteration by the 'add' benchmark.
+    static final int BATCH = 10000;
+    
+    @Param({"1000000", "10000000"})
+    int links;
+    
+    @Param({"fingerprint", "bloom", "heap"})
+    String mode;
+    
+    VisitedSet set;
+    int lookup = 0;
+    int written = 0;
+    boolean reported = false;
+    
+    @Setup(Level.Iteration)
+    public void prepare(){
+        set = null;
+        long heapBefore = reported ? 0 : usedHeap();
+        if(mode.equals("heap")){
+            set = new HashVisitedSet();
+        } else {
+            set = new VisitedSetImpl(links, mode.equals("bloom"));
+        }
+        for(int i = 0; i < links; i++){
+            set.add(prefix + i);
+        }
+        written = links;
+        lookup = 0;
+        
+        // The garbage left by filling the set is collected before it is timed.
+        long heapAfter = usedHeap();
+        if(reported){return;}
+        reported = true;
+        long bytes = heapAfter - heapBefore;
+        if(set instanceof VisitedSetImpl){
+            bytes += ((VisitedSetImpl) set).getMemoryUsed();
+        }
+        System.out.printf("%n%s: %.1f bytes for each of %d hyperlinks%n",
+                mode, (double) bytes / links, links);
+    }
+    
+    @Benchmark
+    public boolean containsPresent(){
+        lookup = (lookup + 7919) % links;
+        return set.contains(prefix + lookup);
+    }
+    
+    @Benchmark
+    public boolean containsMissing(){
+        lookup = (lookup + 7919) % links;
+        return set.contains(prefix + "missing/" + lookup);
+    }
+    
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OperationsPerInvocation(BATCH)
+    @Warmup(iterations = 10)
+    @Measurement(iterations = 10)
+    public int add(){
+        int added = 0;
+        for(int i = 0; i < BATCH; i++){
+            if(set.add(prefix + written++)){added++;}
+        }
+        return added;
+    }
+    
+    /**
+     * This method returns the heap in use after a garbage collection.
+     */
+    private static long usedHeap(){
+        Runtime runtime = Runtime.getRuntime();
+        for(int i = 0; i < 3; i++){
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+    
+    /**
+     * This class keeps the hyperlinks themselves in a HashSet, as the
+     * in-memory LinkDB does, for comparison.
+     */
+    static class HashVisitedSet implements VisitedSet {
+        
+        private final Set<String> links = new HashSet<>();
+        
+        @Override
+        public boolean add(String link){
+            return links.add(link);
+        }
+        
+        @Override
+        public boolean contains(String link){
+            return links.contains(link);
+        }
+        
+        @Override
+        public long size(){
+            return links.size();
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,169 @@
+package benchcrawler;
+
+import crawler.LinkDB;
+import crawler.LinkDBImpl;
+import crawler.LinkDBImplMemory;
+import crawler.URLCanonicaliserImpl;
+import crawler.WebCrawlerImplNoSearch;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import testcrawler.SiteSimulator;
+
+/**
+ * This benchmark measures the time taken to crawl the whole of a site served
+ * by a SiteSimulator on the loopback address, for different numbers of
+ * threads, response latencies and databases. The pages fetched are counted
+ * as well, so that the time taken for each page is reported next to the time
+ * taken for each crawl.
+ * 
+ * The site can also link to each page through a second address, to measure
+ * the pages fetched with and without canonicalising the URL's found: 'none'
+ * keeps the URL's as found, 'default' uses a URLCanonicaliserImpl that keeps
+ * the query, and 'all' also sorts the query and removes tracking parameters.
+ * 
+ * The pages can be fetched by worker threads, 'blocking', or on non-blocking
+ * connections served by a single selector thread, 'nio'. For 'nio' the
+ * threads are the number of pages fetched at once. The connections the site
+ * accepted are counted for each crawl.
+ * 
+ * @author James Hill
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class WebCrawlerBenchmark {
+    
+    // Strings for the database.
+    static final String driver = "org.apache.derby.jdbc.EmbeddedDriver";
+    static final String protocol = "jdbc:derby:memory:";
+    static final String dbName = "crawlBenchDB;";
+    
+    @Param({"5"})
+    int fanOut;
+    
+    @Param({"3"})
+    int depth;
+    
+    @Param({"16384"})
+    int pageSize;
+    
+    @Param({"0", "10"})
+    int latency;
+    
+    @Param({"1", "8"})
+    int threads;
+    
+    @Param({"derby", "memory"})
+    String mode;
+    
+    @Param({"false"})
+    boolean duplicateLinks;
+    
+    @Param({"default"})
+    String canonical;
+    
+    @Param({"blocking", "nio"})
+    String fetch;
+    
+    SiteSimulator site;
+    Connection conn;
+    LinkDB dataBase;
+    int crawl = 0;
+    
+    /**
+     * The number of pages fetched, reported by JMH as the time per page.
+     */
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Pages {
+        public long pages;
+    }
+    
+    /**
+     * The number of connections accepted by the site, reported by JMH as the
+     * total for all crawls.
+     */
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Sockets {
+        public long connections;
+    }
+    
+    @Setup(Level.Trial)
+    public void prepare() throws IOException, ClassNotFoundException, SQLException{
+        site = new SiteSimulator(fanOut, depth, pageSize, latency);
+        site.setDuplicateLinks(duplicateLinks);
+        site.start();
+        if(mode.equals("derby")){
+            Class.forName(driver);
+            conn = DriverManager.getConnection(protocol + dbName + "create=true");
+        }
+    }
+    
+    /**
+     * Each crawl starts with empty tables, so a new schema is created for
+     * every Derby crawl before it is timed.
+     */
+    @Setup(Level.Invocation)
+    public void newDatabase() throws SQLException{
+        if(mode.equals("derby")){
+            String schema = "CRAWL" + crawl++;
+            try (Statement state = conn.createStatement()) {
+                state.execute("CREATE SCHEMA " + schema);
+            }
+            conn.setSchema(schema);
+            dataBase = new LinkDBImpl(conn);
+        } else {
+            dataBase = new LinkDBImplMemory();
+        }
+    }
+    
+    @TearDown(Level.Trial)
+    public void close(){
+        site.stop();
+        if(conn == null){return;}
+        try {conn.close();} catch (SQLException exc) {}
+        try {
+            DriverManager.getConnection(protocol + dbName + "drop=true");
+        } catch (SQLException exc) {}
+    }
+    
+    @Benchmark
+    public int crawl(Pages pages, Sockets sockets){
+        // The depth limits the crawl, as duplicate addresses are fetched too.
+        WebCrawlerImplNoSearch crawler = new WebCrawlerImplNoSearch(
+                Integer.MAX_VALUE, depth + 1, threads);
+        if(canonical.equals("none")){
+            crawler.setCanonicaliser(null);
+        } else if(canonical.equals("all")){
+            crawler.setCanonicaliser(new URLCanonicaliserImpl(true, true));
+        }
+        crawler.setNonBlocking(fetch.equals("nio"));
+        int connections = site.getConnectionCount();
+        int found = crawler.crawl(site.getHome(), dataBase, null);
+        pages.pages += crawler.getPagesFetched();
+        sockets.connections += site.getConnectionCount() - connections;
+        return found;
+    }
+}
\ No newline at end of file
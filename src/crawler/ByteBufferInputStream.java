@@ -0,0 +1,52 @@
+package crawler;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * This is an InputStream that reads the bytes of a ByteBuffer from its
+ * position to its limit, so that a page that has already been read into a
+ * buffer can be parsed without copying it into another stream first.
+ * 
+ * @author James Hill
+ */
+class ByteBufferInputStream extends InputStream {
+    
+    private final ByteBuffer buffer;
+    
+    /**
+     * This is the basic constructor for this class. Reading the stream moves
+     * the position of the buffer on.
+     * 
+     * @param buffer the bytes to be read.
+     */
+    ByteBufferInputStream(ByteBuffer buffer){
+        this.buffer = buffer;
+    }
+    
+    @Override
+    public int read(){
+        return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+    }
+    
+    @Override
+    public int read(byte[] b, int off, int len){
+        if(len == 0){return 0;}
+        if(!buffer.hasRemaining()){return -1;}
+        int count = Math.min(len, buffer.remaining());
+        buffer.get(b, off, count);
+        return count;
+    }
+    
+    @Override
+    public long skip(long n){
+        int count = (int) Math.max(Math.min(n, buffer.remaining()), 0);
+        buffer.position(buffer.position() + count);
+        return count;
+    }
+    
+    @Override
+    public int available(){
+        return buffer.remaining();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,57 @@
+package crawler;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * This class holds the cached copy of a web page: the ETag and Last-Modified
+ * headers the server sent with the page and the hyperlinks found on it.
+ * 
+ * @author James Hill
+ */
+public class CachedPage {
+    
+    private final String eTag;
+    private final String lastModified;
+    private final List<String> links;
+    
+    /**
+     * This is the basic constructor for this class.
+     * 
+     * @param eTag the ETag header of the page, or a null.
+     * @param lastModified the Last-Modified header of the page, or a null.
+     * @param links the hyperlinks found on the page.
+     */
+    public CachedPage(String eTag, String lastModified, List<String> links){
+        this.eTag = eTag;
+        this.lastModified = lastModified;
+        this.links = Collections.unmodifiableList(links);
+    }
+    
+    /**
+     * This method returns the ETag header of the page.
+     * 
+     * @return the ETag, or a null if the server did not send one.
+     */
+    public String getETag(){
+        return eTag;
+    }
+    
+    /**
+     * This method returns the Last-Modified header of the page.
+     * 
+     * @return the Last-Modified date, or a null if the server did not send one.
+     */
+    public String getLastModified(){
+        return lastModified;
+    }
+    
+    /**
+     * This method returns the hyperlinks found on the page.
+     * 
+     * @return the hyperlinks, which cannot be modified.
+     */
+    public List<String> getLinks(){
+        return links;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,70 @@
+package crawler;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * This class decodes the body of a HTTP response sent with a Content-Encoding,
+ * inflating it as it is read so that the hyperlinks can be found before the
+ * rest of the body has arrived, and without holding the whole decoded page.
+ * 
+ * @author James Hill
+ */
+final class ContentEncoding {
+    
+    /**
+     * The value of the Accept-Encoding header sent with each request.
+     */
+    static final String ACCEPTED = "gzip, deflate";
+    
+    // The size of the buffer compressed bytes are read into.
+    private static final int BUFFER_SIZE = 8192;
+    
+    private ContentEncoding(){}
+    
+    /**
+     * This method returns a stream of the decoded body. Some servers send
+     * 'deflate' bodies without the zlib header, so the first bytes are
+     * checked to choose how the body is inflated.
+     * 
+     * @param in the stream of the body as sent.
+     * @param encoding the Content-Encoding of the response, or a null.
+     * @return the stream of the decoded body, which is 'in' if the body was
+     * not encoded.
+     * @throws IOException if the body uses an encoding that is not supported.
+     */
+    static InputStream decode(InputStream in, String encoding) throws IOException{
+        if(encoding == null){return in;}
+        encoding = encoding.trim().toLowerCase(Locale.ROOT);
+        switch(encoding){
+            case "":
+            case "identity":    return in;
+            case "gzip":
+            case "x-gzip":      return new GZIPInputStream(in, BUFFER_SIZE);
+            case "deflate":     PushbackInputStream peek = new PushbackInputStream(in, 2);
+                                byte[] header = new byte[2];
+                                int read = 0;
+                                while(read < 2){
+                                    int count = peek.read(header, read, 2 - read);
+                                    if(count < 0){break;}
+                                    read += count;
+                                }
+                                peek.unread(header, 0, read);
+                                boolean zlib = read == 2 && (header[0] & 0x0f) == 8
+                                        && ((header[0] & 0xff) << 8 | (header[1] & 0xff)) % 31 == 0;
+                                return new InflaterInputStream(peek, new Inflater(!zlib), BUFFER_SIZE){
+                                    @Override
+                                    public void close() throws IOException{
+                                        super.close();
+                                        inf.end();
+                                    }
+                                };
+            default:            throw new IOException("Unsupported Content-Encoding: " + encoding);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,55 @@
+package crawler;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * This is an InputStream that passes every read on to another InputStream
+ * while counting the number of bytes that have been read.
+ * 
+ * @author James Hill
+ */
+class CountingInputStream extends FilterInputStream {
+    
+    private long count = 0;
+    
+    /**
+     * This is the basic constructor for this class.
+     * 
+     * @param in the stream whose bytes will be counted.
+     */
+    CountingInputStream(InputStream in){
+        super(in);
+    }
+    
+    @Override
+    public int read() throws IOException{
+        int next = super.read();
+        if(next != -1){count++;}
+        return next;
+    }
+    
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException{
+        int read = super.read(b, off, len);
+        if(read > 0){count += read;}
+        return read;
+    }
+    
+    @Override
+    public long skip(long n) throws IOException{
+        long skipped = super.skip(n);
+        count += skipped;
+        return skipped;
+    }
+    
+    /**
+     * This method returns the number of bytes read from the stream so far.
+     * 
+     * @return the number of bytes read.
+     */
+    long getCount(){
+        return count;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,82 @@
+package crawler;
+
+/**
+ * This class records a single error of the crawler: the page it happened to,
+ * its category, the HTTP status for an error status, and a description of
+ * the exception. The exception itself is not kept, so that many errors can
+ * be held without holding their stack traces.
+ * 
+ * @author James Hill
+ */
+public final class CrawlError {
+    
+    private final String url;
+    private final ErrorCategory category;
+    private final int status;
+    private final String message;
+    private final long time;
+    
+    /**
+     * This is the basic constructor for this class.
+     * 
+     * @param url the page being fetched or parsed, or a null if none was.
+     * @param exc the exception thrown.
+     */
+    public CrawlError(String url, Exception exc){
+        this.url = url;
+        this.category = ErrorCategory.of(exc);
+        this.status = exc instanceof HttpStatusException ? ((HttpStatusException) exc).getStatus() : 0;
+        this.message = exc.toString();
+        this.time = System.currentTimeMillis();
+    }
+    
+    /**
+     * This method returns the page the error happened to.
+     * 
+     * @return the URL of the page, or a null if there was none.
+     */
+    public String getURL(){
+        return url;
+    }
+    
+    /**
+     * This method returns the category of the error.
+     * 
+     * @return the category.
+     */
+    public ErrorCategory getCategory(){
+        return category;
+    }
+    
+    /**
+     * This method returns the status code of an HTTP_STATUS error.
+     * 
+     * @return the status code, or 0 for any other category.
+     */
+    public int getStatus(){
+        return status;
+    }
+    
+    /**
+     * This method returns a description of the exception thrown.
+     * 
+     * @return the type and message of the exception.
+     */
+    public String getMessage(){
+        return message;
+    }
+    
+    /**
+     * This method returns when the error happened.
+     * 
+     * @return the time in milliseconds since the epoch.
+     */
+    public long getTime(){
+        return time;
+    }
+    
+    @Override
+    public String toString(){
+        return category + (url != null ? " " + url : "") + ": " + message;
+    }
+}
\ No newline at end of file
@@ -1,17 +1,86 @@
 package crawler;
 
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.PrintWriter;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Scanner;
+import java.util.concurrent.TimeUnit;
+import javax.management.JMException;
+import javax.management.ObjectName;
 
 /**
  * This class contains a 'main' method that will initiate and run the
  * web crawler. It will request a URL, maximum number of links to search and 
- * maximum depth of pages to search from the user.  It will then print all
- * resulting URL's found from the search.  Finally, it will request whether
- * the user would like to do a second search.
+ * maximum depth of pages to search from the user.  It will then print each
+ * resulting URL as soon as it is found by the search.  Finally, it will
+ * request whether the user would like to do a second search.
+ * 
+ * If arguments are passed to the 'main' method the crawler instead runs
+ * without asking the user any questions, crawling from each URL given and
+ * writing the results to the console or to a file.  The options are:
+ * 
+ *   --links N       the maximum number of links to crawl (default 100).
+ *   --depth N       the maximum depth of pages to crawl (default 2).
+ *   --threads N     the number of pages fetched at once (default 1).
+ *   --nio           fetch the pages on non-blocking connections served by a
+ *                   single thread, so that --threads can be set much higher.
+ *   --no-compression request the pages uncompressed rather than with gzip
+ *                   or deflate.
+ *   --per-host N    the most pages fetched from one host at once (default
+ *                   no limit).
+ *   --host-delay MS the milliseconds between starting pages from the same
+ *                   host (default 0).
+ *   --connect-timeout MS the milliseconds allowed to connect to a host
+ *                   (default 10000, 0 for no limit).
+ *   --read-timeout MS the milliseconds allowed to wait for each read of a
+ *                   page (default 30000, 0 for no limit).
+ *   --page-timeout MS the milliseconds allowed to fetch the whole of a page
+ *                   (default 60000, 0 for no limit).
+ *   --max-page-size KB the most kilobytes read of a page (default 10240, 0
+ *                   for no limit).
+ *   --host-stats    print the pages fetched from each host in the summary.
+ *   --cache DIR     keep the pages fetched in a cache in DIR, so that pages
+ *                   that have not changed are not downloaded again.
+ *   --cache-size MB the most megabytes the cache may take up (default 64).
+ *   --db MODE       'derby' for an in-memory Derby database (default),
+ *                   'disk' for a Derby database kept on disk or 'memory' to
+ *                   keep the links in Java collections.
+ *   --db-dir DIR    the directory the 'disk' databases are kept in, one for
+ *                   each URL (default crawler-db).
+ *   --resume        resume the crawls kept in the 'disk' databases from
+ *                   where they stopped, rather than starting new ones.
+ *   --fingerprints  look up the links in a Derby database from fingerprints
+ *                   kept outside the heap rather than with queries.
+ *   --sort-query    sort the query parameters of each link by name before
+ *                   checking it for duplicates.
+ *   --strip-tracking remove tracking parameters, such as 'utm_source', from
+ *                   each link before checking it for duplicates.
+ *   --output FILE   the file the results are written to.
+ *   --metrics S     print the metrics of the crawl every S seconds.
+ *   --metrics-csv FILE write the metrics of the crawl to FILE as CSV, every
+ *                   S seconds if --metrics is given or else every 10.
+ *   --error-log FILE write the errors of the crawl to FILE rather than to
+ *                   the console.
+ * 
+ * The summary printed at the end of the crawl counts the errors of each
+ * category, such as 'dns', 'timeout' or 'http_status', and the pages that
+ * were abandoned because they took too long or were too large.
+ * 
+ * While each crawl runs its metrics can also be read with JMX from the MBean
+ * 'crawler:type=Metrics,name=crawlN', where N counts the URL's from 0.
+ * 
+ * When the user runs more than one search in the same session the pages are
+ * cached in a directory under the system's temporary directory.
  * 
  * @author James Hill
  */
@@ -19,35 +88,49 @@ public class Crawler {
     
     static boolean again = false;
     static Connection conn;
-    static LinkedList<String> list;
+    static int found;
     static String initialURL;
-    static WebCrawler crawl;
+    static WebCrawlerImpl crawl;
+    static PageCache cache;
     
     // Strings for the interface.
     static String requestURL = "Type in a URL you would like to crawl from: ";
     static String requestContinue = "Continue with searching? 'Y' to continue: ";
     
+    // The directory of the cache used between searches in the same session.
+    static File cacheDir = new File(System.getProperty("java.io.tmpdir"), "crawler-cache");
+    
     // Strings for the database.
     static String dbName = "testDB;";
     static String protocol = "jdbc:derby:memory:";
     
+    // String for the command line.
+    static String usage = "Usage: Crawler [--links N] [--depth N] [--threads N] [--nio]"
+            + " [--no-compression] [--per-host N] [--host-delay MS]"
+            + " [--connect-timeout MS] [--read-timeout MS] [--page-timeout MS] [--max-page-size KB]"
+            + " [--host-stats]"
+            + " [--cache DIR] [--cache-size MB]"
+            + " [--db derby|disk|memory] [--db-dir DIR] [--resume]"
+            + " [--fingerprints] [--sort-query] [--strip-tracking] [--output FILE]"
+            + " [--metrics S] [--metrics-csv FILE] [--error-log FILE] URL...";
+    
     /**
-     * This is the main method from which the web crawler will be run. In this
-     * case the 'args' parameter is ignored.
+     * This is the main method from which the web crawler will be run. If no
+     * arguments are given the user is asked for each setting, otherwise the
+     * arguments are read as described for this class.
      * 
-     * @param args ignored.
+     * @param args the command line options and URL's to crawl from.
      */
     public static void main(String[] args) {
-        
-        // Setup the connection for an embedded database.
-        try {
-            String driver = "org.apache.derby.jdbc.EmbeddedDriver";
-            Class.forName(driver).newInstance();
-            conn = DriverManager.getConnection(protocol + dbName + "create=true");
-        } catch (SQLException | ClassNotFoundException | InstantiationException | IllegalAccessException exc) {
-            System.err.println("Error processing stream: " + exc);
+        if(args.length > 0){
+            System.exit(runCommandLine(args));
         }
         
+        // Setup the connection for an embedded database and the page cache.
+        conn = connect(protocol + dbName);
+        cache = new PageCacheImpl(cacheDir);
+        LinkDBImpl dataBase = new LinkDBImpl(conn);
+        
         // Loop through the functions until the user chooses not to continue.
         do{
             int links = maxLinks();
@@ -55,26 +138,314 @@ public class Crawler {
             initialURL = requestURL();
             System.out.println();
             crawl = new WebCrawlerImplNoSearch(links, depth);
-            list = crawl.crawl(initialURL, conn);
+            crawl.setPageCache(cache);
+            System.out.println("This is a list of the results:");
+            System.out.println();
+            
+            // Each search starts from empty tables, so that the links of an
+            // earlier search are not taken as already found.
+            dataBase.clear();
+            found = crawl.crawl(initialURL, dataBase, Crawler::printResult);
             printResults();
             System.out.println();
             again = userContinue();
         } while(again);
         
         // Close the connection to the database.
-        try {conn.close();} catch (SQLException exc) {
+        close(conn, protocol + dbName, "drop=true");
+        
+        // Show the user the program is complete.
+        System.out.println();
+        System.out.println("Crawler closing . . .");
+    }
+    
+    /**
+     * Runs the crawler from the command line options without asking the user
+     * any questions, then prints a summary of the crawl.
+     * 
+     * @param args the command line options and URL's to crawl from.
+     * @return the exit status for the application.
+     */
+    static private int runCommandLine(String[] args){
+        int links = 100;
+        int depth = 2;
+        int threads = 1;
+        boolean nio = false;
+        boolean compression = true;
+        int perHost = 0;
+        long hostDelay = 0;
+        int connectTimeout = 10000;
+        int readTimeout = 30000;
+        long pageTimeout = 60000;
+        long maxPageSize = 10240;
+        boolean showHosts = false;
+        String cacheName = null;
+        long cacheSize = 64;
+        String mode = "derby";
+        File dbDir = new File("crawler-db");
+        boolean resume = false;
+        boolean fingerprints = false;
+        boolean sortQuery = false;
+        boolean stripTracking = false;
+        String output = null;
+        int metricsPeriod = 0;
+        String metricsFile = null;
+        String errorFile = null;
+        List<String> startURLs = new ArrayList<>();
+        
+        // Read the options.
+        try {
+            for(int i = 0; i < args.length; i++){
+                switch(args[i]){
+                    case "--links":     links = Integer.parseInt(args[++i]);
+                                        break;
+                    case "--depth":     depth = Integer.parseInt(args[++i]);
+                                        break;
+                    case "--threads":   threads = Integer.parseInt(args[++i]);
+                                        break;
+                    case "--nio":       nio = true;
+                                        break;
+                    case "--no-compression": compression = false;
+                                        break;
+                    case "--per-host":  perHost = Integer.parseInt(args[++i]);
+                                        break;
+                    case "--host-delay": hostDelay = Long.parseLong(args[++i]);
+                                        break;
+                    case "--connect-timeout": connectTimeout = Integer.parseInt(args[++i]);
+                                        break;
+                    case "--read-timeout": readTimeout = Integer.parseInt(args[++i]);
+                                        break;
+                    case "--page-timeout": pageTimeout = Long.parseLong(args[++i]);
+                                        break;
+                    case "--max-page-size": maxPageSize = Long.parseLong(args[++i]);
+                                        break;
+                    case "--host-stats": showHosts = true;
+                                        break;
+                    case "--cache":     cacheName = args[++i];
+                                        break;
+                    case "--cache-size": cacheSize = Long.parseLong(args[++i]);
+                                        break;
+                    case "--db":        mode = args[++i];
+                                        break;
+                    case "--db-dir":    dbDir = new File(args[++i]);
+                                        break;
+                    case "--resume":    resume = true;
+                                        break;
+                    case "--fingerprints": fingerprints = true;
+                                        break;
+                    case "--sort-query": sortQuery = true;
+                                        break;
+                    case "--strip-tracking": stripTracking = true;
+                                        break;
+                    case "--output":    output = args[++i];
+                                        break;
+                    case "--metrics":   metricsPeriod = Integer.parseInt(args[++i]);
+                                        break;
+                    case "--metrics-csv": metricsFile = args[++i];
+                                        break;
+                    case "--error-log": errorFile = args[++i];
+                                        break;
+                    default:            if(args[i].startsWith("--")){
+                                            System.err.println(usage);
+                                            return 1;
+                                        }
+                                        startURLs.add(args[i]);
+                }
+            }
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException exc) {
+            System.err.println(usage);
+            return 1;
+        }
+        if(startURLs.isEmpty() || (resume && !mode.equals("disk"))
+                || !(mode.equals("derby") || mode.equals("disk") || mode.equals("memory"))){
+            System.err.println(usage);
+            return 1;
+        }
+        
+        // Crawl from each URL in turn, each with its own database.
+        int pages = 0;
+        int notReady = 0;
+        int abandoned = 0;
+        long bytes = 0;
+        long decoded = 0;
+        int results = 0;
+        List<HostStats> hosts = new ArrayList<>();
+        Map<ErrorCategory, Long> errors = new EnumMap<>(ErrorCategory.class);
+        PageCache pageCache = cacheName != null
+                ? new PageCacheImpl(new File(cacheName), cacheSize * 1024 * 1024) : null;
+        long start = System.nanoTime();
+        PrintWriter out = new PrintWriter(System.out);
+        PrintStream errorLog = System.err;
+        try {
+            if(output != null){out = new PrintWriter(new FileWriter(output));}
+            if(errorFile != null){errorLog = new PrintStream(new FileOutputStream(errorFile), true);}
+            for(int i = 0; i < startURLs.size(); i++){
+                WebCrawlerImpl crawler = new WebCrawlerImplNoSearch(links, depth, threads);
+                crawler.setNonBlocking(nio);
+                crawler.setCompression(compression);
+                crawler.setMaxPerHost(perHost);
+                crawler.setHostDelay(hostDelay);
+                crawler.setConnectTimeout(connectTimeout);
+                crawler.setReadTimeout(readTimeout);
+                crawler.setPageTimeout(pageTimeout);
+                crawler.setMaxPageBytes(maxPageSize * 1024);
+                crawler.setPageCache(pageCache);
+                crawler.setCanonicaliser(new URLCanonicaliserImpl(sortQuery, stripTracking));
+                crawler.setErrorOutput(errorLog);
+                ObjectName bean = null;
+                try {
+                    bean = crawler.getMetrics().register("crawler:type=Metrics,name=crawl" + i);
+                } catch (JMException exc) {
+                    System.err.println("Error registering metrics: " + exc);
+                }
+                MetricsReporter reporter = null;
+                PrintWriter metricsOut = null;
+                if(metricsPeriod > 0 || metricsFile != null){
+                    metricsOut = metricsFile != null ? new PrintWriter(new FileWriter(metricsFile, i > 0))
+                            : new PrintWriter(System.out);
+                    reporter = new MetricsReporter(crawler.getMetrics(), metricsOut, metricsFile != null);
+                    reporter.start(metricsPeriod > 0 ? metricsPeriod : 10, TimeUnit.SECONDS);
+                }
+                try {
+                    if(mode.equals("memory")){
+                        found = crawler.crawl(startURLs.get(i), new LinkDBImplMemory(), out::println);
+                    } else if(mode.equals("disk")){
+                        File dir = new File(dbDir, "crawl" + i);
+                        if(dir.exists() != resume){
+                            System.err.println(resume ? "No crawl to resume in " + dir
+                                    : "A crawl is already kept in " + dir + "; use --resume to continue it.");
+                            return 1;
+                        }
+                        String url = "jdbc:derby:" + dir.getPath() + ";";
+                        Connection crawlConn = connect(url);
+                        if(crawlConn == null){
+                            System.err.println("The database in " + dir + " cannot be opened.");
+                            return 1;
+                        }
+                        try {
+                            LinkDB db = new LinkDBImpl(crawlConn, fingerprints);
+                            found = resume ? crawler.resume(db, out::println)
+                                    : crawler.crawl(startURLs.get(i), db, out::println);
+                        } finally {
+                            // The database is shut down cleanly even if the crawl fails.
+                            close(crawlConn, url, "shutdown=true");
+                        }
+                    } else {
+                        String url = protocol + "crawlDB" + i + ";";
+                        Connection crawlConn = connect(url);
+                        if(crawlConn == null){
+                            System.err.println("The in-memory database cannot be opened.");
+                            return 1;
+                        }
+                        try {
+                            found = crawler.crawl(startURLs.get(i), new LinkDBImpl(crawlConn, fingerprints), out::println);
+                        } finally {
+                            // The database is dropped even if the crawl fails.
+                            close(crawlConn, url, "drop=true");
+                        }
+                    }
+                } finally {
+                    crawler.getErrorLog().close();
+                    if(reporter != null){
+                        reporter.close();
+                        if(metricsFile != null){metricsOut.close();}
+                    }
+                    if(bean != null){
+                        try {
+                            MetricsRegistry.unregister(bean);
+                        } catch (JMException exc) {
+                            System.err.println("Error unregistering metrics: " + exc);
+                        }
+                    }
+                }
+                pages += crawler.getPagesFetched();
+                notReady += crawler.getPagesNotReady();
+                abandoned += crawler.getPagesAbandoned();
+                bytes += crawler.getBytesRead();
+                decoded += crawler.getBytesDecoded();
+                results += Math.max(found, 0);
+                hosts.addAll(crawler.getHostStats().values());
+                for(ErrorCategory category : ErrorCategory.values()){
+                    errors.merge(category, crawler.getErrorLog().getCount(category), Long::sum);
+                }
+            }
+        } catch (IOException exc) {
             System.err.println("Error processing stream: " + exc);
+            return 1;
+        } finally {
+            if(output != null){out.close();} else {out.flush();}
+            if(errorFile != null){errorLog.close();}
         }
         
+        // Print the summary.
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("Fetched %d pages (%d not ready when opened), read %d bytes (%d decompressed),"
+                + " found %d results in %.3f seconds.%n", pages, notReady, bytes, decoded, results, seconds);
+        if(pageCache != null){
+            System.out.printf("%d of %d pages had not changed since they were cached (%.1f%% hit rate).%n",
+                    pageCache.getHits(), pageCache.getLookups(), pageCache.getHitRate() * 100);
+        }
+        long errorTotal = 0;
+        StringBuilder errorText = new StringBuilder();
+        for(Map.Entry<ErrorCategory, Long> entry : errors.entrySet()){
+            if(entry.getValue() == 0){continue;}
+            errorTotal += entry.getValue();
+            errorText.append(errorText.length() == 0 ? " (" : ", ")
+                    .append(entry.getValue()).append(' ').append(entry.getKey().getName());
+        }
+        if(errorTotal > 0){
+            System.out.printf("%d errors%s).%n", errorTotal, errorText);
+        }
+        if(abandoned > 0){
+            System.out.printf("%d pages were abandoned as too slow or too large.%n", abandoned);
+        }
+        if(showHosts){
+            for(HostStats host : hosts){
+                System.out.printf("  %s: %d pages, %d bytes, %.1f pages per second.%n",
+                        host.getHost(), host.getPages(), host.getBytes(), host.getPagesPerSecond());
+            }
+        }
+        return 0;
+    }
+    
+    /**
+     * Creates, if needed, and connects to an embedded database.
+     * 
+     * @param url the JDBC URL of the database followed by a semicolon.
+     * @return the connection to the database.
+     */
+    static private Connection connect(String url){
         try {
-            DriverManager.getConnection(protocol + dbName + "drop=true");
-        } catch (SQLException exc) {
+            String driver = "org.apache.derby.jdbc.EmbeddedDriver";
+            Class.forName(driver).newInstance();
+            return DriverManager.getConnection(url + "create=true");
+        } catch (SQLException | ClassNotFoundException | InstantiationException | IllegalAccessException exc) {
+            System.err.println("Error processing stream: " + exc);
+        }
+        return null;
+    }
+    
+    /**
+     * Closes the connection to an embedded database and then drops an
+     * in-memory database or shuts down one kept on disk.
+     * 
+     * @param connection the connection to the database.
+     * @param url the JDBC URL of the database followed by a semicolon.
+     * @param action either 'drop=true' or 'shutdown=true'.
+     */
+    static private void close(Connection connection, String url, String action){
+        try {connection.close();} catch (SQLException exc) {
             System.err.println("Error processing stream: " + exc);
         }
         
-        // Show the user the program is complete.
-        System.out.println();
-        System.out.println("Crawler closing . . .");
+        // Derby reports a successful drop or shutdown with the SQLState 08006.
+        try {
+            DriverManager.getConnection(url + action);
+        } catch (SQLException exc) {
+            if(!"08006".equals(exc.getSQLState())){
+                System.err.println("Error processing stream: " + exc);
+            }
+        }
     }
     
     /**
@@ -90,15 +461,26 @@ public class Crawler {
     }
     
     /**
-     * Prints the list of results to the output for the user to see.
+     * Prints a single result to the output for the user to see as soon as
+     * it has been found.
+     * 
+     * @param link the result found by the crawler.
+     */
+    static private void printResult(String link){
+        System.out.println("   " + link);
+    }
+    
+    /**
+     * Tells the user if the crawl did not display any results, and how many
+     * pages were taken from the cache.
      */
     static private void printResults(){
-        if(list == null){
+        if(found <= 0){
             System.out.println("There are no results to display.");
-        } else {
-            System.out.println("This is a list of the results:");
-            System.out.println();
-            list.stream().forEach((link) -> {System.out.println("   " + link);});
+        }
+        if(crawl.getPagesFromCache() > 0){
+            System.out.println(crawl.getPagesFromCache()
+                    + " pages had not changed since an earlier search.");
         }
     }
     
@@ -0,0 +1,73 @@
+package crawler;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.ConnectException;
+import java.net.MalformedURLException;
+import java.net.NoRouteToHostException;
+import java.net.PortUnreachableException;
+import java.net.SocketTimeoutException;
+import java.net.URISyntaxException;
+import java.net.UnknownHostException;
+import java.nio.charset.CharacterCodingException;
+import java.sql.SQLException;
+import java.util.Locale;
+import java.util.zip.ZipException;
+
+/**
+ * This is the kind of failure an error of the crawler was, found from the
+ * type of the exception that was thrown.
+ * 
+ * @author James Hill
+ */
+public enum ErrorCategory {
+    
+    /** The host of a URL could not be found. */
+    DNS,
+    /** A connection to a host could not be opened. */
+    CONNECT,
+    /** A connection or a read took too long. */
+    TIMEOUT,
+    /** The server answered with an error status. */
+    HTTP_STATUS,
+    /** A page was larger than the most bytes read of a page. */
+    TOO_LARGE,
+    /** A URL, page or compressed body could not be understood. */
+    PARSE,
+    /** The database of links failed. */
+    DB,
+    /** Any other failure reading or writing. */
+    IO,
+    /** Any other failure, such as the crawl being interrupted. */
+    OTHER;
+    
+    /**
+     * This method returns the category of an exception.
+     * 
+     * @param exc the exception thrown.
+     * @return the category of the failure.
+     */
+    public static ErrorCategory of(Throwable exc){
+        if(exc instanceof UnknownHostException){return DNS;}
+        if(exc instanceof ConnectException || exc instanceof NoRouteToHostException
+                || exc instanceof PortUnreachableException){return CONNECT;}
+        if(exc instanceof SocketTimeoutException || exc instanceof InterruptedIOException){return TIMEOUT;}
+        if(exc instanceof HttpStatusException){return HTTP_STATUS;}
+        if(exc instanceof PageTooLargeException){return TOO_LARGE;}
+        if(exc instanceof MalformedURLException || exc instanceof URISyntaxException
+                || exc instanceof ZipException || exc instanceof CharacterCodingException){return PARSE;}
+        if(exc instanceof SQLException){return DB;}
+        if(exc instanceof IOException){return IO;}
+        return OTHER;
+    }
+    
+    /**
+     * This method returns the name of the category as used in the metrics,
+     * such as 'http_status'.
+     * 
+     * @return the name in lower case.
+     */
+    public String getName(){
+        return name().toLowerCase(Locale.ROOT);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,38 @@
+package crawler;
+
+import java.util.Map;
+
+/**
+ * This is an interface defining where the errors of the crawler and its
+ * parts are reported. Reporting an error must never wait for the error to be
+ * written anywhere, so that errors can be reported from the crawl loop and
+ * the threads fetching pages without slowing the crawl.
+ * 
+ * @author James Hill
+ */
+public interface ErrorLog {
+    
+    /**
+     * This method reports an error.
+     * 
+     * @param url the page being fetched or parsed, or a null if none was.
+     * @param exc the exception thrown.
+     */
+    void report(String url, Exception exc);
+    
+    /**
+     * This method returns the number of errors of a category reported.
+     * 
+     * @param category the category of the errors.
+     * @return the number of errors.
+     */
+    long getCount(ErrorCategory category);
+    
+    /**
+     * This method returns the latest error reported for each page, in order
+     * of the URL. Errors that did not happen to a page are only counted.
+     * 
+     * @return the errors by URL.
+     */
+    Map<String, CrawlError> getFailures();
+}
\ No newline at end of file
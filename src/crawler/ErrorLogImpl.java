@@ -0,0 +1,183 @@
+package crawler;
+
+import java.io.Closeable;
+import java.io.PrintStream;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This is an implementation of the ErrorLog interface. Each error is counted
+ * by its category in a MetricsRegistry, as 'errors.' followed by the name of
+ * the category, and the latest error of each page is kept, up to a limit.
+ * 
+ * Errors can also be written to a PrintStream. They are handed to a thread
+ * of their own through a bounded queue, so a slow or blocked stream never
+ * holds up the thread that reported the error; when the queue is full the
+ * error is still counted but not written, and counted as 'errors.notLogged'.
+ * 
+ * @author James Hill
+ */
+public class ErrorLogImpl implements ErrorLog, Closeable {
+    
+    /**
+     * The log used by the parts of the crawler that have not been given one,
+     * which writes every error to System.err.
+     */
+    static final ErrorLogImpl CONSOLE = new ErrorLogImpl(new MetricsRegistry(), System.err);
+    
+    // The most errors waiting to be written.
+    private static final int QUEUE_SIZE = 1024;
+    
+    private final Map<ErrorCategory, LongAdder> counts = new EnumMap<>(ErrorCategory.class);
+    private final LongAdder notLogged;
+    private final Map<String, CrawlError> failures = new ConcurrentHashMap<>();
+    private volatile int maxFailures = 10000;
+    
+    private final PrintStream log;
+    private final BlockingQueue<CrawlError> queue;
+    private volatile Thread writer;
+    private volatile boolean closed = false;
+    
+    /**
+     * This is the basic constructor for this class, which counts the errors
+     * in a registry of its own and does not write them anywhere.
+     */
+    public ErrorLogImpl(){
+        this(new MetricsRegistry(), null);
+    }
+    
+    /**
+     * This constructor counts the errors in the registry given, and writes
+     * them to a stream.
+     * 
+     * @param metrics the registry the errors are counted in.
+     * @param log the stream the errors are written to, or a null for none.
+     */
+    public ErrorLogImpl(MetricsRegistry metrics, PrintStream log){
+        for(ErrorCategory category : ErrorCategory.values()){
+            counts.put(category, metrics.counter("errors." + category.getName()));
+        }
+        notLogged = metrics.counter("errors.notLogged");
+        this.log = log;
+        queue = log != null ? new ArrayBlockingQueue<>(QUEUE_SIZE) : null;
+    }
+    
+    /**
+     * This method sets the most pages whose errors are kept. Errors for
+     * further pages are still counted and written.
+     * 
+     * @param maxFailures the most pages kept.
+     */
+    public void setMaxFailures(int maxFailures){
+        this.maxFailures = Math.max(maxFailures, 0);
+    }
+    
+    @Override
+    public void report(String url, Exception exc){
+        CrawlError error = new CrawlError(url, exc);
+        counts.get(error.getCategory()).increment();
+        if(url != null && (failures.size() < maxFailures || failures.containsKey(url))){
+            failures.put(url, error);
+        }
+        if(log != null && !closed){
+            if(writer == null){startWriter();}
+            if(!queue.offer(error)){notLogged.increment();}
+        }
+    }
+    
+    @Override
+    public long getCount(ErrorCategory category){
+        return counts.get(category).sum();
+    }
+    
+    @Override
+    public Map<String, CrawlError> getFailures(){
+        return new TreeMap<>(failures);
+    }
+    
+    /**
+     * This method returns the number of errors of every category reported.
+     * 
+     * @return the number of errors.
+     */
+    public long getTotal(){
+        long total = 0;
+        for(LongAdder count : counts.values()){
+            total += count.sum();
+        }
+        return total;
+    }
+    
+    /**
+     * This method returns the number of errors that were not written because
+     * too many were waiting to be written.
+     * 
+     * @return the number of errors not written.
+     */
+    public long getNotLogged(){
+        return notLogged.sum();
+    }
+    
+    /**
+     * This method sets the counts back to zero and forgets the errors kept.
+     */
+    public void clear(){
+        for(LongAdder count : counts.values()){
+            count.reset();
+        }
+        notLogged.reset();
+        failures.clear();
+    }
+    
+    /**
+     * This method stops writing errors, after writing those waiting for up to
+     * a second. Errors reported afterwards are still counted and kept.
+     */
+    @Override
+    public void close(){
+        Thread running;
+        synchronized(this){
+            closed = true;
+            running = writer;
+        }
+        if(running != null){
+            try {
+                running.join(1000);
+            } catch (InterruptedException exc) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+    
+    /**
+     * This private method starts the thread that writes the errors, the first
+     * time an error is reported.
+     */
+    private synchronized void startWriter(){
+        if(writer != null || closed){return;}
+        writer = new Thread(this::write, "error-log");
+        writer.setDaemon(true);
+        writer.start();
+    }
+    
+    /**
+     * This private method is run by the writing thread. It writes each error
+     * as it is reported until the log is closed and no errors are waiting.
+     */
+    private void write(){
+        try {
+            while(!closed || !queue.isEmpty()){
+                CrawlError error = queue.poll(100, TimeUnit.MILLISECONDS);
+                if(error != null){log.println("Error processing stream: " + error);}
+            }
+        } catch (InterruptedException exc) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,154 @@
+package crawler;
+
+import java.nio.charset.Charset;
+import java.nio.charset.IllegalCharsetNameException;
+import java.nio.charset.StandardCharsets;
+import java.nio.charset.UnsupportedCharsetException;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * This class finds the character set a HTML page is written in, from the
+ * Content-Type header it was served with, from a byte order mark at the start
+ * of the page or from a <meta> tag in the page. It also escapes the
+ * characters of a hyperlink that cannot be written in a URL, so that the same
+ * hyperlink is found whichever character set its page was written in.
+ * 
+ * @author James Hill
+ */
+public final class HTMLcharset {
+    
+    /**
+     * The character set a page is read in when none is given.
+     */
+    public static final Charset DEFAULT = StandardCharsets.ISO_8859_1;
+    
+    // The bytes of a tag that are the same in every ASCII compatible character set.
+    private static final String SAMPLE = "<a href=\"/\">";
+    private static final byte[] SAMPLE_BYTES = SAMPLE.getBytes(StandardCharsets.US_ASCII);
+    
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+    
+    private HTMLcharset(){}
+    
+    /**
+     * This method returns the character set named by the 'charset' parameter
+     * of a Content-Type header, or of the 'content' of a <meta> tag.
+     * 
+     * @param contentType the value of the header, which may be null.
+     * @return the character set, or null if none is named or it is not known.
+     */
+    public static Charset fromContentType(String contentType){
+        if(contentType == null){return null;}
+        int i = contentType.toLowerCase(Locale.ROOT).indexOf("charset=");
+        if(i < 0){return null;}
+        String name = contentType.substring(i + 8);
+        int end = name.indexOf(';');
+        if(end >= 0){name = name.substring(0, end);}
+        return forName(name);
+    }
+    
+    /**
+     * This method returns the character set with a name, ignoring any quotes
+     * and whitespace around it.
+     * 
+     * @param name the name of the character set.
+     * @return the character set, or null if it is not known.
+     */
+    public static Charset forName(String name){
+        name = name.trim();
+        if(name.length() > 1 && (name.charAt(0) == '"' || name.charAt(0) == '\'')
+                && name.charAt(name.length() - 1) == name.charAt(0)){
+            name = name.substring(1, name.length() - 1).trim();
+        }
+        try {
+            return Charset.forName(name);
+        } catch (IllegalCharsetNameException | UnsupportedCharsetException exc) {
+            return null;
+        }
+    }
+    
+    /**
+     * This method returns the character set given by a byte order mark at the
+     * start of a page.
+     * 
+     * @param page the bytes of the page.
+     * @param start the index of the first byte of the page.
+     * @param end the index after the last byte that has been read.
+     * @return UTF-8, UTF-16BE or UTF-16LE, or null if there is no mark.
+     */
+    public static Charset fromBOM(byte[] page, int start, int end){
+        int length = end - start;
+        if(length >= 3 && (page[start] & 0xff) == 0xef && (page[start + 1] & 0xff) == 0xbb
+                && (page[start + 2] & 0xff) == 0xbf){
+            return StandardCharsets.UTF_8;
+        }
+        if(length >= 2 && (page[start] & 0xff) == 0xfe && (page[start + 1] & 0xff) == 0xff){
+            return StandardCharsets.UTF_16BE;
+        }
+        if(length >= 2 && (page[start] & 0xff) == 0xff && (page[start + 1] & 0xff) == 0xfe){
+            return StandardCharsets.UTF_16LE;
+        }
+        return null;
+    }
+    
+    /**
+     * This method checks whether the tags of a page written in a character
+     * set are made of the same bytes as in ASCII, so that the page can be
+     * searched for tags without being decoded.
+     * 
+     * @param charset the character set.
+     * @return 'true' if tags are written in ASCII.
+     */
+    public static boolean isAsciiCompatible(Charset charset){
+        return charset.canEncode() && Arrays.equals(SAMPLE.getBytes(charset), SAMPLE_BYTES);
+    }
+    
+    /**
+     * This method escapes each character of a hyperlink that is not ASCII as
+     * its UTF-8 bytes, written as '%' and two hexadecimal digits, which is how
+     * a browser requests it.
+     * 
+     * @param href the hyperlink read from a page.
+     * @return the hyperlink with only ASCII characters.
+     */
+    public static String escape(CharSequence href){
+        StringBuilder text = null;
+        for(int i = 0; i < href.length(); i++){
+            char c = href.charAt(i);
+            if(c < 0x80){
+                if(text != null){text.append(c);}
+                continue;
+            }
+            if(text == null){
+                text = new StringBuilder(href.length() + 16).append(href, 0, i);
+            }
+            int codePoint = Character.codePointAt(href, i);
+            if(Character.isSupplementaryCodePoint(codePoint)){
+                i++;
+            } else if(Character.isSurrogate(c)){
+                codePoint = 0xfffd;
+            }
+            if(codePoint < 0x800){
+                escape(text, 0xc0 | codePoint >> 6);
+            } else {
+                if(codePoint < 0x10000){
+                    escape(text, 0xe0 | codePoint >> 12);
+                } else {
+                    escape(text, 0xf0 | codePoint >> 18);
+                    escape(text, 0x80 | codePoint >> 12 & 0x3f);
+                }
+                escape(text, 0x80 | codePoint >> 6 & 0x3f);
+            }
+            escape(text, 0x80 | codePoint & 0x3f);
+        }
+        return text == null ? href.toString() : text.toString();
+    }
+    
+    /**
+     * This private method writes a byte as '%' and two hexadecimal digits.
+     */
+    private static void escape(StringBuilder text, int b){
+        text.append('%').append(HEX[b >> 4 & 0xf]).append(HEX[b & 0xf]);
+    }
+}
\ No newline at end of file
@@ -46,4 +46,12 @@ public interface HTMLread {
      * @return the String searched for including 'ch1' or a String 'null'.
      */
     String readString(InputStream in, char ch1, char ch2);
+    
+    /**
+     * This method sets where an error reading the InputStream is reported,
+     * as the methods above stop at an error rather than throwing it.
+     * 
+     * @param errors the log errors are reported to.
+     */
+    void setErrorLog(ErrorLog errors);
 }
\ No newline at end of file
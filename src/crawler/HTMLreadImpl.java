@@ -6,12 +6,20 @@ import java.io.IOException;
 /**
  * This is an implementation of the HTMLread class that is used for parsing
  * web pages. This only checks for characters coded in the HTML character set
- * which is based upon [ISO-8859-1].
+ * which is based upon [ISO-8859-1]. Each byte is read as one character, so
+ * the tags of a page in any character set that writes them in ASCII are
+ * still found, and the strings returned are decoded in the character set of
+ * the page by HyperlinkListBuilderImpl.
  * 
  * @author James Hill
  */
 public class HTMLreadImpl implements HTMLread {
     
+    /**
+     * This is where an error reading the stream is reported.
+     */
+    private ErrorLog errors = ErrorLogImpl.CONSOLE;
+    
     /**
      * This is the constructor for HTMLread objects.
      */
@@ -29,7 +37,7 @@ public class HTMLreadImpl implements HTMLread {
                 next = in.read();
             }
         } catch(IOException exc){
-            System.err.println("Error processing stream: " + exc);
+            errors.report(null, exc);
         }
         return false;
     }
@@ -46,7 +54,7 @@ public class HTMLreadImpl implements HTMLread {
                 next = in.read();
             }
         } catch(IOException exc){
-            System.err.println("Error processing stream: " + exc);
+            errors.report(null, exc);
         }
         return '\0';
     }
@@ -65,8 +73,13 @@ public class HTMLreadImpl implements HTMLread {
                 next = in.read();
             }
         } catch(IOException exc){
-            System.err.println("Error processing stream: " + exc);
+            errors.report(null, exc);
         }
         return null;
     }
+    
+    @Override
+    public void setErrorLog(ErrorLog errors){
+        this.errors = errors;
+    }
 }
\ No newline at end of file
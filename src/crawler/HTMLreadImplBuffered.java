@@ -0,0 +1,164 @@
+package crawler;
+
+import java.io.InputStream;
+import java.io.IOException;
+
+/**
+ * This is an implementation of the HTMLread class that reads the InputStream
+ * in blocks into a reusable buffer and then scans that buffer with a cursor,
+ * rather than calling read() on the stream for every character. Strings are
+ * collected in a reusable char array and only turned into a String when they
+ * are returned. Like HTMLreadImpl it only checks for characters coded in the
+ * HTML character set which is based upon [ISO-8859-1].
+ * 
+ * A single object should only be used with one InputStream at a time as the
+ * characters read ahead of the cursor are kept until the stream changes.
+ * 
+ * @author James Hill
+ */
+public class HTMLreadImplBuffered implements HTMLread {
+    
+    /**
+     * The size of the buffer used by the basic constructor.
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 8192;
+    
+    /**
+     * Lookup tables for the lower case version of each ISO-8859-1 character
+     * and whether each character is whitespace.
+     */
+    private static final char[] LOWER = new char[256];
+    private static final boolean[] WHITESPACE = new boolean[256];
+    
+    static {
+        for(int i = 0; i < 256; i++){
+            LOWER[i] = Character.toLowerCase((char)i);
+            WHITESPACE[i] = Character.isWhitespace((char)i);
+        }
+    }
+    
+    /**
+     * The buffer of bytes read from the stream, the position of the cursor in
+     * the buffer and the number of valid bytes in the buffer.
+     */
+    private final byte[] buffer;
+    private int position = 0;
+    private int limit = 0;
+    
+    /**
+     * The stream that the bytes in the buffer were read from.
+     */
+    private InputStream source;
+    
+    /**
+     * The reusable store for characters collected by readString().
+     */
+    private char[] text = new char[256];
+    
+    /**
+     * This is where an error reading the stream is reported.
+     */
+    private ErrorLog errors = ErrorLogImpl.CONSOLE;
+    
+    /**
+     * This is the basic constructor for HTMLreadImplBuffered objects.
+     */
+    public HTMLreadImplBuffered(){
+        this(DEFAULT_BUFFER_SIZE);
+    }
+    
+    /**
+     * This constructor allows the size of the buffer to be set.
+     * 
+     * @param bufferSize the number of bytes read from the stream at a time.
+     */
+    public HTMLreadImplBuffered(int bufferSize){
+        buffer = new byte[bufferSize > 0 ? bufferSize : DEFAULT_BUFFER_SIZE];
+    }
+    
+    @Override
+    public boolean readUntil(InputStream in, char ch1, char ch2){
+        char lower1 = Character.toLowerCase(ch1);
+        char lower2 = Character.toLowerCase(ch2);
+        try{
+            char check;
+            while(fill(in)){
+                while(position < limit){
+                    check = LOWER[buffer[position++] & 0xFF];
+                    if(check == lower1){return true;}
+                    else if (check == lower2){return false;}
+                }
+            }
+        } catch(IOException exc){
+            errors.report(null, exc);
+        }
+        return false;
+    }
+    
+    @Override
+    public char skipSpace(InputStream in, char ch){
+        try{
+            int next;
+            while(fill(in)){
+                while(position < limit){
+                    next = buffer[position++] & 0xFF;
+                    if(next == ch){return '\0';}
+                    else if (!WHITESPACE[next]){return (char)next;}
+                }
+            }
+        } catch(IOException exc){
+            errors.report(null, exc);
+        }
+        return '\0';
+    }
+    
+    @Override
+    public String readString(InputStream in, char ch1, char ch2){
+        try{
+            int length = 0;
+            char check;
+            while(fill(in)){
+                while(position < limit){
+                    check = (char)(buffer[position++] & 0xFF);
+                    if(check == ch1){return new String(text, 0, length);}
+                    else if (check == ch2){return null;}
+                    if(length == text.length){
+                        char[] larger = new char[text.length * 2];
+                        System.arraycopy(text, 0, larger, 0, length);
+                        text = larger;
+                    }
+                    text[length++] = check;
+                }
+            }
+        } catch(IOException exc){
+            errors.report(null, exc);
+        }
+        return null;
+    }
+    
+    @Override
+    public void setErrorLog(ErrorLog errors){
+        this.errors = errors;
+    }
+    
+    /**
+     * This private method makes sure there are unread bytes in the buffer,
+     * reading the next block from the stream if the cursor has reached the
+     * end of the buffer. The buffer is discarded if a new stream is passed.
+     * 
+     * @param in the stream being parsed.
+     * @return 'false' if the end of the stream has been reached.
+     */
+    private boolean fill(InputStream in) throws IOException{
+        if(in != source){
+            source = in;
+            position = 0;
+            limit = 0;
+        }
+        if(position < limit){return true;}
+        int read = in.read(buffer, 0, buffer.length);
+        position = 0;
+        limit = read > 0 ? read : 0;
+        return read > 0;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,130 @@
+package crawler;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This class records the distribution of values, such as latencies, without
+ * locking. As in HdrHistogram each power of two is split into sixteen equal
+ * buckets, so a value read back is within about 6% of a value recorded, and
+ * recording a value only increments one bucket. Values below sixteen are
+ * kept exactly. The counts are read while values are still being recorded,
+ * so a value recorded at the same time may or may not be included.
+ * 
+ * @author James Hill
+ */
+public class Histogram {
+    
+    // The number of buckets each power of two is split into, as bits.
+    private static final int SUB_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    
+    // Enough buckets for every positive long.
+    private static final int BUCKETS = (64 - SUB_BITS) * SUB_BUCKETS;
+    
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+    
+    /**
+     * This method records a value. Negative values are recorded as zero.
+     * 
+     * @param value the value to record.
+     */
+    public void record(long value){
+        if(value < 0){value = 0;}
+        buckets.incrementAndGet(index(value));
+        sum.add(value);
+        long most = max.get();
+        while(value > most && !max.compareAndSet(most, value)){
+            most = max.get();
+        }
+    }
+    
+    /**
+     * This method returns the number of values recorded.
+     * 
+     * @return the number of values.
+     */
+    public long getCount(){
+        long count = 0;
+        for(int i = 0; i < BUCKETS; i++){
+            count += buckets.get(i);
+        }
+        return count;
+    }
+    
+    /**
+     * This method returns the mean of the values recorded.
+     * 
+     * @return the mean, or 0 if no values have been recorded.
+     */
+    public double getMean(){
+        long count = getCount();
+        return count == 0 ? 0 : (double) sum.sum() / count;
+    }
+    
+    /**
+     * This method returns the largest value recorded.
+     * 
+     * @return the largest value, or 0 if no values have been recorded.
+     */
+    public long getMax(){
+        return max.get();
+    }
+    
+    /**
+     * This method returns the value that the given percentage of the values
+     * recorded are less than or equal to, to within the size of its bucket.
+     * 
+     * @param percentile the percentage, from 0 to 100.
+     * @return the value, or 0 if no values have been recorded.
+     */
+    public long getValueAtPercentile(double percentile){
+        long[] counts = new long[BUCKETS];
+        long count = 0;
+        for(int i = 0; i < BUCKETS; i++){
+            counts[i] = buckets.get(i);
+            count += counts[i];
+        }
+        if(count == 0){return 0;}
+        long rank = Math.max(1, (long) Math.ceil(count * Math.min(percentile, 100) / 100));
+        long seen = 0;
+        for(int i = 0; i < BUCKETS; i++){
+            seen += counts[i];
+            if(seen >= rank){return Math.min(highest(i), max.get());}
+        }
+        return max.get();
+    }
+    
+    /**
+     * This method clears every value recorded.
+     */
+    public void reset(){
+        for(int i = 0; i < BUCKETS; i++){
+            buckets.set(i, 0);
+        }
+        sum.reset();
+        max.set(0);
+    }
+    
+    /**
+     * This private method returns the bucket a value is counted in.
+     */
+    private static int index(long value){
+        if(value < SUB_BUCKETS){return (int) value;}
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) (value >>> shift) - SUB_BUCKETS;
+    }
+    
+    /**
+     * This private method returns the largest value counted in a bucket.
+     */
+    private static long highest(int index){
+        if(index < SUB_BUCKETS){return index;}
+        int shift = index / SUB_BUCKETS - 1;
+        long lowest = (long) (SUB_BUCKETS + index % SUB_BUCKETS) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+}
\ No newline at end of file
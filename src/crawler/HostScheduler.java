@@ -0,0 +1,209 @@
+package crawler;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * This class holds the hyperlinks waiting to be fetched in a queue for each
+ * host, and decides which hyperlink may be fetched next. No more than the
+ * given number of pages are fetched from a host at once, and each page
+ * fetched from a host is started no sooner than the given delay after the
+ * previous one. Of the hosts that may be used, the hyperlink with the lowest
+ * priority number is returned first, and hyperlinks with the same priority
+ * number are returned in the order they were added.
+ * 
+ * This class is not thread safe. It is only used by the thread running the
+ * crawl.
+ * 
+ * @author James Hill
+ */
+class HostScheduler {
+    
+    /**
+     * The most pages fetched from a host at once, or 0 for no limit, and the
+     * time in nanoseconds between starting pages from the same host.
+     */
+    private final int maxPerHost;
+    private final long delay;
+    
+    /**
+     * The queue of each host, in the order the hosts were first seen.
+     */
+    private final Map<String, Host> hosts = new LinkedHashMap<>();
+    
+    /**
+     * The number of hyperlinks waiting in all of the queues, and the number
+     * given to the next hyperlink added so that ties keep their order.
+     */
+    private int queued = 0;
+    private long sequence = 0;
+    
+    /**
+     * This is the basic constructor for this class.
+     * 
+     * @param maxPerHost the most pages fetched from a host at once, 0 for no limit.
+     * @param delayMillis the milliseconds between starting pages from a host.
+     */
+    HostScheduler(int maxPerHost, long delayMillis){
+        this.maxPerHost = Math.max(maxPerHost, 0);
+        this.delay = Math.max(delayMillis, 0) * 1000000L;
+    }
+    
+    /**
+     * This method adds a hyperlink to the queue of its host.
+     * 
+     * @param link the hyperlink to be fetched.
+     */
+    void add(TempLink link){
+        String key = hostOf(link.getLink());
+        Host host = hosts.get(key);
+        if(host == null){
+            host = new Host();
+            hosts.put(key, host);
+        }
+        host.queue.add(new Waiting(link, sequence++));
+        queued++;
+    }
+    
+    /**
+     * This method removes and returns the next hyperlink that may be fetched
+     * now. Its host is then counted as fetching one more page. Hosts with
+     * nothing waiting or being fetched are forgotten once their delay is over.
+     * 
+     * @param now the current time from System.nanoTime().
+     * @return the next hyperlink, or a null if no host may be used now.
+     */
+    TempLink next(long now){
+        Host best = null;
+        Iterator<Host> all = hosts.values().iterator();
+        while(all.hasNext()){
+            Host host = all.next();
+            if(host.idle(now)){
+                all.remove();
+                continue;
+            }
+            if(!host.ready(now)){continue;}
+            if(best == null || host.queue.peek().before(best.queue.peek())){
+                best = host;
+            }
+        }
+        if(best == null){return null;}
+        best.inFlight++;
+        best.started = true;
+        best.nextStart = now + delay;
+        queued--;
+        return best.queue.poll().link;
+    }
+    
+    /**
+     * This method records that a page taken from next() has been fetched, so
+     * that its host can be used again.
+     * 
+     * @param link the hyperlink that has been fetched.
+     */
+    void finished(String link){
+        Host host = hosts.get(hostOf(link));
+        if(host != null && host.inFlight > 0){
+            host.inFlight--;
+        }
+    }
+    
+    /**
+     * This method returns how long to wait before a host that is only held
+     * back by the delay may be used.
+     * 
+     * @param now the current time from System.nanoTime().
+     * @return the nanoseconds to wait, or -1 if every waiting host is already
+     * fetching as many pages as it may.
+     */
+    long waitTime(long now){
+        long wait = -1;
+        for(Host host : hosts.values()){
+            if(host.queue.isEmpty() || host.full()){continue;}
+            long hostWait = host.waitTime(now);
+            if(wait < 0 || hostWait < wait){wait = hostWait;}
+        }
+        return wait;
+    }
+    
+    /**
+     * This method returns the number of hyperlinks waiting to be fetched.
+     * 
+     * @return the number of hyperlinks in all of the queues.
+     */
+    int size(){
+        return queued;
+    }
+    
+    /**
+     * This method returns the host and port of a hyperlink, which is the key
+     * used for the queues. A hyperlink that cannot be read is given an empty
+     * key.
+     * 
+     * @param link the hyperlink.
+     * @return the host and port of the hyperlink in lower case.
+     */
+    static String hostOf(String link){
+        try {
+            URL url = new URL(link);
+            int port = url.getPort() != -1 ? url.getPort() : url.getDefaultPort();
+            return url.getHost().toLowerCase(Locale.ROOT) + ":" + port;
+        } catch (MalformedURLException exc) {
+            return "";
+        }
+    }
+    
+    /**
+     * This private class is the queue and state of a single host.
+     */
+    private class Host {
+        
+        final ArrayDeque<Waiting> queue = new ArrayDeque<>();
+        int inFlight = 0;
+        boolean started = false;
+        long nextStart;
+        
+        boolean full(){
+            return maxPerHost > 0 && inFlight >= maxPerHost;
+        }
+        
+        boolean idle(long now){
+            return queue.isEmpty() && inFlight == 0 && waitTime(now) == 0;
+        }
+        
+        boolean ready(long now){
+            return !queue.isEmpty() && !full() && waitTime(now) == 0;
+        }
+        
+        long waitTime(long now){
+            return started ? Math.max(nextStart - now, 0) : 0;
+        }
+    }
+    
+    /**
+     * This private class is a hyperlink waiting in a queue with the number
+     * that records the order it was added.
+     */
+    private static class Waiting {
+        
+        final TempLink link;
+        final long sequence;
+        
+        Waiting(TempLink link, long sequence){
+            this.link = link;
+            this.sequence = sequence;
+        }
+        
+        boolean before(Waiting other){
+            if(link.getPriority() != other.link.getPriority()){
+                return link.getPriority() < other.link.getPriority();
+            }
+            return sequence < other.sequence;
+        }
+    }
+}
\ No newline at end of file
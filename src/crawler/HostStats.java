@@ -0,0 +1,79 @@
+package crawler;
+
+/**
+ * This class records the pages fetched from a single host during a crawl,
+ * the bytes read from those pages and the time from the start of the first
+ * page to the end of the last one, from which the number of pages fetched
+ * from the host each second is found.
+ * 
+ * @author James Hill
+ */
+public class HostStats {
+    
+    private final String host;
+    private int pages = 0;
+    private long bytes = 0;
+    private long firstStart;
+    private long lastEnd;
+    
+    /**
+     * This is the basic constructor for this class.
+     * 
+     * @param host the host and port the pages were fetched from.
+     */
+    public HostStats(String host){
+        this.host = host;
+    }
+    
+    /**
+     * This method records a page that has been fetched from the host.
+     * 
+     * @param bytes the number of bytes read from the page.
+     * @param start the System.nanoTime() when the page was requested.
+     * @param end the System.nanoTime() when the page had been read.
+     */
+    public synchronized void record(long bytes, long start, long end){
+        if(pages == 0 || start - firstStart < 0){firstStart = start;}
+        if(pages == 0 || end - lastEnd > 0){lastEnd = end;}
+        this.pages++;
+        this.bytes += bytes;
+    }
+    
+    /**
+     * This method returns the host and port the pages were fetched from.
+     * 
+     * @return the host and port.
+     */
+    public String getHost(){
+        return host;
+    }
+    
+    /**
+     * This method returns the number of pages fetched from the host.
+     * 
+     * @return the number of pages.
+     */
+    public synchronized int getPages(){
+        return pages;
+    }
+    
+    /**
+     * This method returns the number of bytes read from the host.
+     * 
+     * @return the number of bytes.
+     */
+    public synchronized long getBytes(){
+        return bytes;
+    }
+    
+    /**
+     * This method returns the number of pages fetched from the host for each
+     * second between the start of the first page and the end of the last.
+     * 
+     * @return the pages fetched each second, or 0 if no time has passed.
+     */
+    public synchronized double getPagesPerSecond(){
+        long elapsed = lastEnd - firstStart;
+        return elapsed > 0 ? pages * 1e9 / elapsed : 0;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,37 @@
+package crawler;
+
+import java.io.IOException;
+import java.net.URL;
+
+/**
+ * This exception is thrown when a server answers the request for a page with
+ * an error status, such as 404 or 500.
+ * 
+ * @author James Hill
+ */
+public class HttpStatusException extends IOException {
+    
+    private static final long serialVersionUID = 1L;
+    
+    private final int status;
+    
+    /**
+     * This is the basic constructor for this class.
+     * 
+     * @param status the status code of the response.
+     * @param url the page that was requested.
+     */
+    public HttpStatusException(int status, URL url){
+        super("Server returned HTTP response code: " + status + " for URL: " + url);
+        this.status = status;
+    }
+    
+    /**
+     * This method returns the status code the server answered with.
+     * 
+     * @return the status code.
+     */
+    public int getStatus(){
+        return status;
+    }
+}
\ No newline at end of file
@@ -2,7 +2,10 @@ package crawler;
 
 import java.io.InputStream;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * This class accepts a URL to a HTML document and processes it to create and
@@ -22,4 +25,48 @@ public interface HyperlinkListBuilder {
      * @param in this is the HTML document streamed for parsing.
      */
     List<URL> createList(String base, InputStream in);
+    
+    /**
+     * This will read the HTML file streamed and pass each hyperlink found to
+     * the listener as soon as it has been read, rather than building a list,
+     * so that the hyperlinks can be used while the rest of the file is still
+     * being downloaded. No hyperlinks are kept once they have been passed on.
+     * 
+     * @return the number of hyperlinks found.
+     * @param base the String representing the base URL.
+     * @param in this is the HTML document streamed for parsing.
+     * @param listener the listener each hyperlink is passed to.
+     */
+    int readLinks(String base, InputStream in, Consumer<URL> listener);
+    
+    /**
+     * This will read a HTML file that has already been read into a buffer,
+     * from its position to its limit, and pass each hyperlink found to the
+     * listener. The position of the buffer is not changed.
+     * 
+     * @return the number of hyperlinks found.
+     * @param base the String representing the base URL.
+     * @param page this is the HTML document held in a buffer.
+     * @param listener the listener each hyperlink is passed to.
+     */
+    int readLinks(String base, ByteBuffer page, Consumer<URL> listener);
+    
+    /**
+     * This sets the character set of the HTML files read from now on, as
+     * given by the Content-Type header they were served with, so that the
+     * hyperlinks in them are decoded correctly. Characters of a hyperlink
+     * that are not ASCII are escaped as their UTF-8 bytes.
+     * 
+     * @param charset the character set of the files, or null if not known.
+     */
+    void setCharset(Charset charset);
+    
+    /**
+     * This sets where errors are reported, such as a hyperlink that is not a
+     * valid URL or a stream that fails while it is read, with the page they
+     * happened on. Parsing carries on after each error.
+     * 
+     * @param errors the log errors are reported to.
+     */
+    void setErrorLog(ErrorLog errors);
 }
\ No newline at end of file
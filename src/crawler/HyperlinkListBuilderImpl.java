@@ -4,11 +4,17 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
- * This is an implementation of the HyperlinkListBuilder interface.
+ * This is an implementation of the HyperlinkListBuilder interface. The page
+ * is read through a HTMLread object as ISO-8859-1, and each hyperlink is then
+ * decoded in the character set given by setCharset(), if there is one.
  * 
  * @author James Hill
  */
@@ -23,9 +29,11 @@ public class HyperlinkListBuilderImpl implements HyperlinkListBuilder {
     private final HTMLread reader;
     
     /**
-     * This is the List in which the hyperlinks will be stored.
+     * This is the listener each hyperlink is passed to, and the number of
+     * hyperlinks passed to it.
      */
-    private List<URL> linkList;
+    private Consumer<URL> listener;
+    private int found;
     
     /**
      * This baseURL is created if a HTML <base> command is found during the
@@ -34,6 +42,20 @@ public class HyperlinkListBuilderImpl implements HyperlinkListBuilder {
      */
     private URL baseURL;
     
+    /**
+     * This is the character set the hyperlinks are decoded in, or null if
+     * they are read as ISO-8859-1. Only a character set whose tags are
+     * written in ASCII can be read through a HTMLread object.
+     */
+    private Charset charset;
+    
+    /**
+     * This is where errors are reported, and the page being read that they
+     * are reported for.
+     */
+    private ErrorLog errors = ErrorLogImpl.CONSOLE;
+    private String address;
+    
     /**
      * This is the basic class constructor. It creates a new HTMLread object
      * that can be used across by all methods to parse strings from InputStream.
@@ -42,33 +64,69 @@ public class HyperlinkListBuilderImpl implements HyperlinkListBuilder {
         reader = new HTMLreadImpl();
     }
     
+    /**
+     * This constructor allows a different HTMLread implementation, such as
+     * HTMLreadImplBuffered, to be used to parse the streamed HTML document.
+     * 
+     * @param reader the HTMLread object used to parse the streamed document.
+     */
+    public HyperlinkListBuilderImpl(HTMLread reader){
+        this.reader = reader;
+    }
+    
     @Override
     public List<URL> createList(String base, InputStream in) {
-        linkList = new LinkedList<>();
+        List<URL> linkList = new LinkedList<>();
+        readLinks(base, in, linkList::add);
+        return linkList;
+    }
+    
+    @Override
+    public int readLinks(String base, InputStream in, Consumer<URL> listener) {
+        this.listener = listener;
+        found = 0;
+        address = base;
         try {
             baseURL = new URL(base);
         } catch (MalformedURLException exc) {
-            System.err.println("Error processing stream: " + exc);
+            errors.report(address, exc);
         }
         String tag;
         try {
-            do{
-                if(reader.readUntil(in, '<', sep)){
-                    char c = Character.toLowerCase(reader.skipSpace(in, sep));
-                    if(c != '\0' && (c == 'a' || c == 'b')){
-                        tag = c + reader.readString(in, ' ', '>');
-                        String command = extractCommand(tag);
-                        if(command != null && in.available() > 0){
-                            enactCommand(in, command);
-                        }
+            // Read from one tag to the next until the end of the stream, as
+            // readUntil() only returns 'false' when no '<' is left to find.
+            while(reader.readUntil(in, '<', '<')){
+                char c = Character.toLowerCase(reader.skipSpace(in, sep));
+                if(c != '\0' && (c == 'a' || c == 'b')){
+                    tag = c + reader.readString(in, ' ', '>');
+                    String command = extractCommand(tag);
+                    if(command != null){
+                        enactCommand(in, command);
                     }
                 }
-            } while(in.available() != 0);
+            }
             in.close();
         } catch (IOException exc) {
-            System.err.println("Error processing stream: " + exc);
+            errors.report(address, exc);
         }
-        return linkList;
+        listener = null;
+        return found;
+    }
+    
+    @Override
+    public int readLinks(String base, ByteBuffer page, Consumer<URL> listener) {
+        return readLinks(base, new ByteBufferInputStream(page.duplicate()), listener);
+    }
+    
+    @Override
+    public void setCharset(Charset charset){
+        this.charset = charset != null && HTMLcharset.isAsciiCompatible(charset) ? charset : null;
+    }
+    
+    @Override
+    public void setErrorLog(ErrorLog errors){
+        this.errors = errors;
+        reader.setErrorLog(errors);
     }
     
     /**
@@ -102,11 +160,11 @@ public class HyperlinkListBuilderImpl implements HyperlinkListBuilder {
                                     if(!ifJavaScript){
                                         if(!checkRelative(URLtext)){
                                             tempURL = new URL(URLtext);
-                                            linkList.add(tempURL);
                                         } else {
                                             tempURL = new URL(baseURL, URLtext);
-                                            linkList.add(tempURL);
                                         }
+                                        found++;
+                                        listener.accept(tempURL);
                                     }
                                 }
                                 break;
@@ -124,7 +182,7 @@ public class HyperlinkListBuilderImpl implements HyperlinkListBuilder {
                 default:        break;
             }
         } catch (MalformedURLException exc) {
-            System.err.println("Error processing stream: " + exc);
+            errors.report(address, exc);
         }
     }
     
@@ -139,26 +197,32 @@ public class HyperlinkListBuilderImpl implements HyperlinkListBuilder {
     private String extractHTML(InputStream in){
         char tempChar;
         String URLtext = "";
-        try {
-            if(in.available() > 0){
-                do{
-                    tempChar = reader.skipSpace(in, sep);
-                    if(tempChar == 'h' || tempChar == 'H'){
-                        URLtext = reader.readString(in, '\"', ' ');
-                        if(URLtext != null){
-                            if(URLtext.equalsIgnoreCase("ref=")){
-                                URLtext = reader.readString(in, '\"', sep);
-                                return URLtext;
-                            }
-                        }
+        do{
+            tempChar = reader.skipSpace(in, sep);
+            if(tempChar == 'h' || tempChar == 'H'){
+                URLtext = reader.readString(in, '\"', ' ');
+                if(URLtext != null){
+                    if(URLtext.equalsIgnoreCase("ref=")){
+                        URLtext = reader.readString(in, '\"', sep);
+                        return URLtext == null ? null : decode(URLtext);
                     }
-                } while(tempChar != '\0');
+                }
             }
-        } catch (IOException exc) {
-            System.err.println("Error processing stream line 113: " + exc);
-        }
+        } while(tempChar != '\0');
         return URLtext;
     }
+    
+    /**
+     * This private method decodes a hyperlink that has been read as
+     * ISO-8859-1 in the character set of the page, and escapes any characters
+     * that are not ASCII.
+     */
+    private String decode(String URLtext){
+        if(charset != null){
+            URLtext = new String(URLtext.getBytes(StandardCharsets.ISO_8859_1), charset);
+        }
+        return HTMLcharset.escape(URLtext);
+    }
         
     /**
      * This method checks if the string represents either a relative or absolute
@@ -0,0 +1,473 @@
+package crawler;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * This is an implementation of the HyperlinkListBuilder interface that scans
+ * the bytes of a page directly, rather than reading it a character at a time
+ * through a HTMLread object. The page is searched for '<' with plain byte
+ * comparisons, the names of 'a' and 'base' tags and of their attributes are
+ * matched without building any strings, and the 'href' value is kept as the
+ * offsets of its first and last bytes. A string and a URL are then only
+ * created for each hyperlink that is used, so javascript links are skipped
+ * without creating either.
+ * 
+ * A page held in a heap ByteBuffer is scanned where it is. A streamed page is
+ * read in blocks into a reusable buffer, as is a page in a direct ByteBuffer
+ * since a bulk copy is cheaper than reading it a byte at a time. A tag cut
+ * off at the end of a block is scanned again once the rest of it has been
+ * read, so each hyperlink is passed on as soon as its tag has been read.
+ * 
+ * The page is searched in the bytes it was sent as, which works for every
+ * character set whose tags are written in ASCII. Only the 'href' values are
+ * decoded, and only if they are not plain ASCII, with a decoder and a buffer
+ * that are kept for the next hyperlink. The character set is taken from a
+ * byte order mark at the start of the page, or else from setCharset(), or
+ * else from the first <meta> tag that names one, and is ISO-8859-1 until one
+ * is found. A page in a character set such as UTF-16 is decoded and encoded
+ * as UTF-8 as it is read, so that it can still be searched a byte at a time.
+ * 
+ * Like HyperlinkListBuilderImpl spaces are allowed between '<' and the name
+ * of the tag. Unlike it, 'href' values may also be in single quotes or
+ * unquoted, and the search for the 'href' attribute stops at the end of each
+ * tag.
+ * 
+ * @author James Hill
+ */
+public class HyperlinkListBuilderImplScanner implements HyperlinkListBuilder {
+    
+    /**
+     * The size of the buffer a streamed page is read into by the basic
+     * constructor.
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 8192;
+    
+    /**
+     * The longest tag that is kept whole while more of a streamed page is
+     * read. A longer tag is scanned as if the page ended with it.
+     */
+    private static final int MAX_TAG = 1 << 20;
+    
+    /**
+     * A lookup table of the bytes that are whitespace in HTML.
+     */
+    private static final boolean[] SPACE = new boolean[256];
+    
+    static {
+        for(char c : new char[]{' ', '\t', '\n', '\r', '\f'}){
+            SPACE[c] = true;
+        }
+    }
+    
+    // The start of links that are not followed, in lower case.
+    private static final byte[] JAVASCRIPT = "javascript".getBytes(StandardCharsets.ISO_8859_1);
+    
+    // The names of the attributes that are read, in lower case.
+    private static final byte[] HREF = "href".getBytes(StandardCharsets.ISO_8859_1);
+    private static final byte[] CHARSET = "charset".getBytes(StandardCharsets.ISO_8859_1);
+    private static final byte[] CONTENT = "content".getBytes(StandardCharsets.ISO_8859_1);
+    
+    // The kinds of tag that are read.
+    private static final int ANCHOR = 0;
+    private static final int BASE = 1;
+    private static final int META = 2;
+    
+    // The number of bytes read before a page is searched for a byte order mark.
+    private static final int BOM_LENGTH = 3;
+    
+    /**
+     * The buffer a streamed page, or a page in a direct ByteBuffer, is read
+     * into.
+     */
+    private byte[] block;
+    
+    /**
+     * This is the character set given for the pages read, and the character
+     * set the page being read is decoded in, which is fixed if it was given
+     * rather than named by a <meta> tag. The decoder is kept while the
+     * character set stays the same, and the hyperlinks are decoded into a
+     * buffer that is kept for the next one.
+     */
+    private Charset charset;
+    private Charset pageCharset;
+    private boolean fixed;
+    private CharsetDecoder decoder;
+    private CharBuffer chars = CharBuffer.allocate(256);
+    
+    /**
+     * This is the listener each hyperlink is passed to, and the number of
+     * hyperlinks passed to it.
+     */
+    private Consumer<URL> listener;
+    private int found;
+    
+    /**
+     * This is the URL relative hyperlinks are found from, which is changed
+     * by a HTML <base> tag.
+     */
+    private URL baseURL;
+    
+    /**
+     * This is where errors are reported, and the page being read that they
+     * are reported for.
+     */
+    private ErrorLog errors = ErrorLogImpl.CONSOLE;
+    private String address;
+    
+    /**
+     * This is the basic constructor for this class.
+     */
+    public HyperlinkListBuilderImplScanner(){
+        this(DEFAULT_BUFFER_SIZE);
+    }
+    
+    /**
+     * This constructor allows the size of the buffer a streamed page is read
+     * into to be set. The buffer grows if a single tag does not fit.
+     * 
+     * @param bufferSize the number of bytes read from the stream at a time.
+     */
+    public HyperlinkListBuilderImplScanner(int bufferSize){
+        block = new byte[bufferSize > 0 ? Math.max(bufferSize, BOM_LENGTH) : DEFAULT_BUFFER_SIZE];
+    }
+    
+    @Override
+    public void setCharset(Charset charset){
+        this.charset = charset;
+    }
+    
+    @Override
+    public void setErrorLog(ErrorLog errors){
+        this.errors = errors;
+    }
+    
+    @Override
+    public List<URL> createList(String base, InputStream in) {
+        List<URL> linkList = new LinkedList<>();
+        readLinks(base, in, linkList::add);
+        return linkList;
+    }
+    
+    @Override
+    public int readLinks(String base, InputStream in, Consumer<URL> listener) {
+        start(base, listener);
+        int limit = 0;
+        try {
+            // Read the start of the page to look for a byte order mark.
+            int read = 0;
+            while(limit < BOM_LENGTH && read >= 0){
+                read = in.read(block, limit, block.length - limit);
+                if(read > 0){limit += read;}
+            }
+            chooseCharset(block, 0, limit);
+            if(!HTMLcharset.isAsciiCompatible(pageCharset)){
+                InputStream head = new ByteArrayInputStream(Arrays.copyOf(block, limit));
+                in = new TranscodingInputStream(new SequenceInputStream(head, in), pageCharset);
+                decodeWith(StandardCharsets.UTF_8);
+                limit = 0;
+            }
+            while(true){
+                if(limit == block.length){
+                    if(block.length < MAX_TAG){
+                        block = Arrays.copyOf(block, block.length * 2);
+                    } else {
+                        scan(block, 0, limit, true);
+                        limit = 0;
+                    }
+                }
+                read = in.read(block, limit, block.length - limit);
+                if(read < 0){
+                    scan(block, 0, limit, true);
+                    break;
+                }
+                limit += read;
+                
+                // Keep any tag that has been cut off for the next block.
+                int done = scan(block, 0, limit, false);
+                System.arraycopy(block, done, block, 0, limit - done);
+                limit -= done;
+            }
+            in.close();
+        } catch (IOException exc) {
+            errors.report(address, exc);
+        }
+        return finish();
+    }
+    
+    @Override
+    public int readLinks(String base, ByteBuffer page, Consumer<URL> listener) {
+        if(!page.hasArray()){
+            return readLinks(base, new ByteBufferInputStream(page.duplicate()), listener);
+        }
+        start(base, listener);
+        int offset = page.arrayOffset();
+        chooseCharset(page.array(), offset + page.position(), offset + page.limit());
+        if(!HTMLcharset.isAsciiCompatible(pageCharset)){
+            return readLinks(base, new ByteBufferInputStream(page.duplicate()), listener);
+        }
+        scan(page.array(), offset + page.position(), offset + page.limit(), true);
+        return finish();
+    }
+    
+    /**
+     * This private method sets up the base URL and listener for a page.
+     */
+    private void start(String base, Consumer<URL> listener){
+        this.listener = listener;
+        found = 0;
+        address = base;
+        baseURL = null;
+        try {
+            baseURL = new URL(base);
+        } catch (MalformedURLException exc) {
+            errors.report(address, exc);
+        }
+    }
+    
+    /**
+     * This private method chooses the character set a page is decoded in from
+     * the byte order mark at its start, if it has one, or from setCharset().
+     */
+    private void chooseCharset(byte[] page, int start, int end){
+        Charset bom = HTMLcharset.fromBOM(page, start, end);
+        fixed = bom != null || charset != null;
+        decodeWith(bom != null ? bom : charset != null ? charset : HTMLcharset.DEFAULT);
+    }
+    
+    /**
+     * This private method sets the character set the hyperlinks of the page
+     * are decoded in, keeping the decoder if it is the same.
+     */
+    private void decodeWith(Charset charset){
+        pageCharset = charset;
+        if(decoder == null || !decoder.charset().equals(charset)){
+            decoder = charset.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        }
+    }
+    
+    /**
+     * This private method forgets the listener once a page has been read and
+     * returns the number of hyperlinks found.
+     */
+    private int finish(){
+        listener = null;
+        return found;
+    }
+    
+    /**
+     * This private method scans the bytes of a page between two indexes for
+     * tags.
+     * 
+     * @param page the bytes of the page.
+     * @param from the index of the first byte to scan.
+     * @param to the index after the last byte to scan.
+     * @param end 'true' if there are no more bytes after these.
+     * @return the index of a tag that has been cut off, or 'to'.
+     */
+    private int scan(byte[] page, int from, int to, boolean end){
+        int i = next(page, from, to);
+        while(i < to){
+            int next = tag(page, i + 1, to, end);
+            if(next < 0){return i;}
+            i = next(page, next, to);
+        }
+        return to;
+    }
+    
+    /**
+     * This private method finds the next '<' between two indexes. It is kept
+     * small so that the search is compiled as a tight loop.
+     * 
+     * @return the index of the '<', or 'to' if there is none.
+     */
+    private static int next(byte[] page, int i, int to){
+        while(i < to && page[i] != '<'){i++;}
+        return i;
+    }
+    
+    /**
+     * This private method reads the tag after a '<', and uses the 'href' of
+     * an 'a' or 'base' tag, or the character set named by a 'meta' tag.
+     * 
+     * @return the index to carry on scanning from, or -1 if the tag has been
+     * cut off and there are more bytes to come.
+     */
+    private int tag(byte[] page, int i, int to, boolean end){
+        while(i < to && SPACE[page[i] & 0xff]){i++;}
+        int name = i;
+        int kind;
+        if(i + 5 > to && !end){return -1;}
+        if(i < to && (page[i] | 0x20) == 'a'){
+            kind = ANCHOR;
+            i += 1;
+        } else if(i + 4 <= to && (page[i] | 0x20) == 'b' && (page[i + 1] | 0x20) == 'a'
+                && (page[i + 2] | 0x20) == 's' && (page[i + 3] | 0x20) == 'e'){
+            kind = BASE;
+            i += 4;
+        } else if(!fixed && i + 4 <= to && (page[i] | 0x20) == 'm' && (page[i + 1] | 0x20) == 'e'
+                && (page[i + 2] | 0x20) == 't' && (page[i + 3] | 0x20) == 'a'){
+            kind = META;
+            i += 4;
+        } else {
+            return name;
+        }
+        if(i < to && !SPACE[page[i] & 0xff] && page[i] != '>' && page[i] != '/'){
+            return name;
+        }
+        
+        // Read the attributes until the end of the tag, keeping the first
+        // 'href', or the 'charset' and 'content' of a 'meta' tag.
+        int hrefStart = -1;
+        int hrefEnd = -1;
+        int contentStart = -1;
+        int contentEnd = -1;
+        boolean closed = false;
+        while(true){
+            while(i < to && (SPACE[page[i] & 0xff] || page[i] == '/')){i++;}
+            if(i >= to){break;}
+            if(page[i] == '>'){
+                closed = true;
+                i++;
+                break;
+            }
+            int nameStart = i;
+            while(i < to && !SPACE[page[i] & 0xff] && page[i] != '=' && page[i] != '>' && page[i] != '/'){i++;}
+            int nameEnd = i;
+            while(i < to && SPACE[page[i] & 0xff]){i++;}
+            if(i >= to){break;}
+            if(page[i] != '='){continue;}
+            i++;
+            while(i < to && SPACE[page[i] & 0xff]){i++;}
+            if(i >= to){break;}
+            int valueStart;
+            int valueEnd;
+            byte quote = page[i];
+            if(quote == '"' || quote == '\''){
+                valueStart = ++i;
+                while(i < to && page[i] != quote){i++;}
+                if(i >= to){break;}
+                valueEnd = i++;
+            } else {
+                valueStart = i;
+                while(i < to && !SPACE[page[i] & 0xff] && page[i] != '>'){i++;}
+                valueEnd = i;
+            }
+            if(hrefStart < 0 && isName(page, nameStart, nameEnd, kind == META ? CHARSET : HREF)){
+                hrefStart = valueStart;
+                hrefEnd = valueEnd;
+            } else if(kind == META && contentStart < 0 && isName(page, nameStart, nameEnd, CONTENT)){
+                contentStart = valueStart;
+                contentEnd = valueEnd;
+            }
+        }
+        if(!closed && !end){return -1;}
+        if(kind == META){
+            meta(page, hrefStart, hrefEnd, contentStart, contentEnd);
+        } else if(hrefStart >= 0){
+            use(page, hrefStart, hrefEnd, kind == BASE);
+        }
+        return i;
+    }
+    
+    /**
+     * This private method checks whether the name of an attribute is the
+     * name given in lower case.
+     */
+    private static boolean isName(byte[] page, int start, int end, byte[] name){
+        if(end - start != name.length){return false;}
+        for(int i = 0; i < name.length; i++){
+            if((page[start + i] | 0x20) != name[i]){return false;}
+        }
+        return true;
+    }
+    
+    /**
+     * This private method decodes the rest of the page in the character set
+     * named by the 'charset' of a 'meta' tag, or by the 'charset' parameter
+     * in its 'content'. A page whose tags have been read as ASCII cannot be in
+     * a character set such as UTF-16, so UTF-8 is used instead of one.
+     */
+    private void meta(byte[] page, int charsetStart, int charsetEnd, int contentStart, int contentEnd){
+        Charset named = null;
+        if(charsetStart >= 0){
+            named = HTMLcharset.forName(new String(page, charsetStart, charsetEnd - charsetStart,
+                    StandardCharsets.ISO_8859_1));
+        } else if(contentStart >= 0){
+            named = HTMLcharset.fromContentType(new String(page, contentStart, contentEnd - contentStart,
+                    StandardCharsets.ISO_8859_1));
+        }
+        if(named == null){return;}
+        fixed = true;
+        decodeWith(HTMLcharset.isAsciiCompatible(named) ? named : StandardCharsets.UTF_8);
+    }
+    
+    /**
+     * This private method creates the URL for the value of an 'href' and
+     * either passes it to the listener or uses it as the base URL. Values
+     * starting 'javascript' are ignored.
+     */
+    private void use(byte[] page, int start, int end, boolean base){
+        while(start < end && SPACE[page[start] & 0xff]){start++;}
+        while(end > start && SPACE[page[end - 1] & 0xff]){end--;}
+        if(end - start >= JAVASCRIPT.length){
+            int i = 0;
+            while(i < JAVASCRIPT.length && (page[start + i] | 0x20) == JAVASCRIPT[i]){i++;}
+            if(i == JAVASCRIPT.length){return;}
+        }
+        String href = decode(page, start, end);
+        try {
+            if(base){
+                baseURL = new URL(href);
+            } else {
+                URL link = new URL(baseURL, href);
+                found++;
+                listener.accept(link);
+            }
+        } catch (MalformedURLException exc) {
+            errors.report(address, exc);
+        }
+    }
+    
+    /**
+     * This private method decodes the bytes between two indexes in the
+     * character set of the page, and escapes any characters that are not
+     * ASCII. Bytes below 0x80 are ASCII in every character set the page is
+     * searched in, apart from those that switch character set with an escape
+     * byte, so a hyperlink made only of them is copied straight into a string.
+     */
+    private String decode(byte[] page, int start, int end){
+        int i = start;
+        while(i < end && page[i] >= 0 && page[i] != 0x1b){i++;}
+        int length = end - start;
+        if(i == end){
+            return new String(page, start, length, StandardCharsets.ISO_8859_1);
+        }
+        int needed = (int) Math.ceil(length * (double) decoder.maxCharsPerByte());
+        if(chars.capacity() < needed){
+            chars = CharBuffer.allocate(Math.max(needed, chars.capacity() * 2));
+        }
+        chars.clear();
+        decoder.reset();
+        decoder.decode(ByteBuffer.wrap(page, start, length), chars, true);
+        decoder.flush(chars);
+        chars.flip();
+        return HTMLcharset.escape(chars);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,122 @@
+package crawler;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * This is an InputStream that ends once a number of bytes have been read
+ * from another InputStream, or once a time has passed, so that a page that
+ * is too large or arrives too slowly is given up on. A read that fails also
+ * ends the stream, so that the parser reading it stops without reporting the
+ * failure itself. Whether the stream ended early, and why, is checked once it
+ * has been read.
+ * 
+ * @author James Hill
+ */
+class LimitedInputStream extends FilterInputStream {
+    
+    private final long maxBytes;
+    private final long deadline;
+    private final boolean timed;
+    private long count = 0;
+    private boolean tooLarge = false;
+    private boolean timedOut = false;
+    private IOException failure;
+    
+    /**
+     * This is the basic constructor for this class.
+     * 
+     * @param in the stream to be read.
+     * @param maxBytes the most bytes read, or 0 for no limit.
+     * @param timeout the nanoseconds from now until the stream ends, or 0
+     * for no limit.
+     */
+    LimitedInputStream(InputStream in, long maxBytes, long timeout){
+        super(in);
+        this.maxBytes = maxBytes;
+        this.timed = timeout != 0;
+        this.deadline = System.nanoTime() + Math.max(timeout, 0);
+    }
+    
+    @Override
+    public int read() throws IOException{
+        byte[] one = new byte[1];
+        return read(one, 0, 1) == 1 ? one[0] & 0xff : -1;
+    }
+    
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException{
+        if(tooLarge || timedOut || failure != null || expired()){return -1;}
+        if(maxBytes > 0 && count >= maxBytes){
+            // Only a stream with more to read is too large.
+            if(len == 0){return 0;}
+            if(readLimited(b, off, 1) > 0){tooLarge = true;}
+            return -1;
+        }
+        if(maxBytes > 0){len = (int) Math.min(len, maxBytes - count);}
+        int read = readLimited(b, off, len);
+        if(read > 0){count += read;}
+        return read;
+    }
+    
+    @Override
+    public long skip(long n) throws IOException{
+        // Skipped bytes are read, so that they are counted and limited.
+        if(n <= 0){return 0;}
+        return Math.max(read(new byte[(int) Math.min(n, 4096)]), 0);
+    }
+    
+    /**
+     * This method checks whether the stream ended because more bytes were
+     * sent than the limit.
+     * 
+     * @return 'true' if the stream was too large.
+     */
+    boolean isTooLarge(){
+        return tooLarge;
+    }
+    
+    /**
+     * This method checks whether the stream ended because its time passed
+     * before it had all been read.
+     * 
+     * @return 'true' if the stream timed out.
+     */
+    boolean isTimedOut(){
+        return timedOut;
+    }
+    
+    /**
+     * This method returns the failure that ended the stream. A failure after
+     * the time has passed, such as when the connection has been closed to
+     * stop a read waiting, is taken as a time out instead.
+     * 
+     * @return the exception thrown by a read, or a null if none failed.
+     */
+    IOException getFailure(){
+        return failure;
+    }
+    
+    /**
+     * This private method reads from the stream, ending it instead of
+     * failing.
+     */
+    private int readLimited(byte[] b, int off, int len){
+        try {
+            return super.read(b, off, len);
+        } catch (IOException exc) {
+            if(!expired()){failure = exc;}
+            return -1;
+        }
+    }
+    
+    /**
+     * This private method checks whether the time has passed, and records
+     * that the stream timed out if it has.
+     */
+    private boolean expired(){
+        if(timed && System.nanoTime() - deadline >= 0){timedOut = true;}
+        return timedOut;
+    }
+}
\ No newline at end of file
@@ -1,6 +1,7 @@
 package crawler;
 
 import java.util.LinkedList;
+import java.util.List;
 
 /**
  * This is an interface defining a class for a database that can write
@@ -30,9 +31,18 @@ public interface LinkDB {
      */
     boolean checkExistsTemp(String hyperlink);
     
+    /**
+     * This method makes sure that everything written to the tables so far is
+     * safely stored, so that a crawl can be resumed quickly after a restart.
+     * Implementations that do not keep their tables after a restart may do
+     * nothing.
+     */
+    void checkpoint();
+    
     /**
      * This method returns the next URL with the lowest priority from the temp
-     * table on the database.
+     * table on the database. URL's with the same priority are returned in the
+     * order they were written.
      * 
      * @return The URL with the next lowest priority or an empty string.
      */
@@ -61,6 +71,28 @@ public interface LinkDB {
      */
     void linkVisited(String hyperlink);
     
+    /**
+     * This method takes the hyperlink with the lowest priority number greater
+     * than zero from the 'temporary' table, returning it together with its
+     * priority number. Hyperlinks with the same priority number are taken in
+     * the order they were written. The hyperlink is marked as in progress by
+     * making its priority number negative so that it is not taken again, and
+     * linkVisited() should be called once the web page has been processed.
+     * 
+     * @return the next hyperlink and its priority, or a null if there is none.
+     */
+    TempLink pollNext();
+    
+    /**
+     * This method returns every hyperlink that was taken by pollNext() but
+     * not yet marked as visited to the 'temporary' table with its priority
+     * number, so that the web pages can be processed again by a crawl that
+     * resumes after the previous crawl was stopped part way through.
+     * 
+     * @return the number of hyperlinks returned to the table.
+     */
+    int requeueInProgress();
+    
     /**
      * This method returns the entire Results table as a LinkedList of Strings.
      * 
@@ -83,4 +115,37 @@ public interface LinkDB {
      * @param hyperlink the address of the web page.
      */
     void writeTemp(int priority, String hyperlink);
+    
+    /**
+     * This method writes a list of new hyperlinks into the 'temporary' table
+     * with the same priority queue number. Hyperlinks that are already in the
+     * table, or that appear more than once in the list, are only written once.
+     * 
+     * @param priority the depth of web page the hyperlinks were found on.
+     * @param hyperlinks the addresses of the web pages.
+     * @return the number of hyperlinks written to the table.
+     */
+    int writeTempBatch(int priority, List<String> hyperlinks);
+    
+    /**
+     * This method writes a new hyperlink and the associated priority queue
+     * number into the 'temporary' table only if the hyperlink is not already
+     * in the table, replacing a call to checkExistsTemp() followed by a call
+     * to writeTemp().
+     * 
+     * @param priority the depth of web page the hyperlink was found on.
+     * @param hyperlink the address of the web page.
+     * @return 'true' if the hyperlink was written to the table.
+     */
+    boolean writeTempIfAbsent(int priority, String hyperlink);
+    
+    /**
+     * This method sets where a failure of the database is reported. The
+     * methods above report each failure and then return as if the table was
+     * empty or nothing was written, so that a failure never hides a hyperlink
+     * that has not been crawled.
+     * 
+     * @param errors the log errors are reported to.
+     */
+    void setErrorLog(ErrorLog errors);
 }
\ No newline at end of file
@@ -1,14 +1,37 @@
 package crawler;
 
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
 
 /**
  * This is an implementation of the LinkDB interface.
  * 
+ * Each query is prepared once when the object is constructed and then reused,
+ * with the hyperlinks passed as parameters rather than written into the SQL.
+ * Each row also stores the hash code of its hyperlink in an indexed column,
+ * so that a hyperlink can be found without reading the whole table. The hash
+ * is indexed rather than the Link column itself so that the tables are still
+ * read back in the order the rows were written.
+ * 
+ * The tables are only created if they do not already exist, so a database
+ * stored on disk can be opened again to resume a crawl from where it stopped.
+ * 
+ * The object can also keep a VisitedSet of the fingerprints of the hyperlinks
+ * in each table, so that a hyperlink can be looked up without a query and
+ * hyperlinks already in the 'temporary' table are skipped before anything is
+ * sent to the database.
+ * 
+ * A failed query is reported to the ErrorLog given, and a hyperlink that
+ * could not be looked up is taken not to be in the table, so that it is
+ * written again rather than lost.
+ * 
  * @author James Hill
  */
 public class LinkDBImpl implements LinkDB {
@@ -16,6 +39,43 @@ public class LinkDBImpl implements LinkDB {
     Statement state;
     Connection conn;
     
+    // The prepared statements for each operation.
+    private PreparedStatement existsResult;
+    private PreparedStatement existsTemp;
+    private PreparedStatement nextURL;
+    private PreparedStatement nextPriority;
+    private PreparedStatement nextSamePriority;
+    private PreparedStatement nextLink;
+    private PreparedStatement inProgress;
+    private PreparedStatement requeue;
+    private PreparedStatement priority;
+    private PreparedStatement visited;
+    private PreparedStatement results;
+    private PreparedStatement insertResult;
+    private PreparedStatement insertTemp;
+    private PreparedStatement insertTempIfAbsent;
+    
+    /**
+     * The priority and Id of the last hyperlink taken by pollNext(). Every
+     * hyperlink before this position has already been taken, so the next
+     * search starts from here instead of reading past the index entries those
+     * hyperlinks left behind when their priority was changed.
+     */
+    private int lastPriority = 0;
+    private int lastId = 0;
+    
+    /**
+     * The fingerprints of the hyperlinks in the 'temporary' and 'results'
+     * tables, or nulls if the tables are searched instead.
+     */
+    private VisitedSet tempLinks;
+    private VisitedSet resultLinks;
+    
+    /**
+     * This is where a failure of the database is reported.
+     */
+    private ErrorLog errors = ErrorLogImpl.CONSOLE;
+    
     /**
      * This is the basic constructor for this class.
      * 
@@ -23,150 +83,399 @@ public class LinkDBImpl implements LinkDB {
      * query set.
      */
     public LinkDBImpl(Connection conn){
+        this(conn, false);
+    }
+    
+    /**
+     * This constructor allows the hyperlinks to be looked up from their
+     * fingerprints rather than by searching the tables. The fingerprints of
+     * any hyperlinks already in the tables are read when the object is
+     * constructed.
+     * 
+     * @param conn This is the database connection that will be used for this
+     * query set.
+     * @param fingerprints 'true' to look up hyperlinks from their fingerprints.
+     */
+    public LinkDBImpl(Connection conn, boolean fingerprints){
         try {
             this.conn = conn;
             state = conn.createStatement(
                     ResultSet.TYPE_SCROLL_INSENSITIVE,
                     ResultSet.CONCUR_UPDATABLE);
-            state.execute("CREATE TABLE Temp(Priority INTEGER, Link VARCHAR(5000))");
-            state.execute("CREATE TABLE Results(Link VARCHAR(5000))");
+            if(!tableExists("TEMP")){
+                state.execute("CREATE TABLE Temp(Priority INTEGER, Link VARCHAR(5000), Hash INTEGER,"
+                        + " Id INTEGER GENERATED ALWAYS AS IDENTITY PRIMARY KEY)");
+                state.execute("CREATE INDEX TempHash ON Temp(Hash)");
+                state.execute("CREATE INDEX TempPriority ON Temp(Priority, Id)");
+            }
+            if(!tableExists("RESULTS")){
+                state.execute("CREATE TABLE Results(Link VARCHAR(5000), Hash INTEGER)");
+                state.execute("CREATE INDEX ResultsHash ON Results(Hash)");
+            }
+        } catch (SQLException exc) {
+            errors.report(null, exc);
+        }
+        try {
+            existsResult = conn.prepareStatement("SELECT 1 FROM Results WHERE Hash=? AND Link=?");
+            existsTemp = conn.prepareStatement("SELECT 1 FROM Temp WHERE Hash=? AND Link=?");
+            nextURL = conn.prepareStatement("SELECT Link FROM Temp WHERE Priority>0"
+                    + " ORDER BY Priority, Id FETCH FIRST ROW ONLY");
+            nextPriority = conn.prepareStatement("SELECT Priority FROM Temp WHERE Priority>0"
+                    + " ORDER BY Priority, Id FETCH FIRST ROW ONLY");
+            nextSamePriority = conn.prepareStatement("SELECT Link, Priority, Id FROM Temp"
+                    + " WHERE Priority=? AND Id>? ORDER BY Priority, Id FETCH FIRST ROW ONLY");
+            nextLink = conn.prepareStatement("SELECT Link, Priority, Id FROM Temp WHERE Priority>?"
+                    + " ORDER BY Priority, Id FETCH FIRST ROW ONLY");
+            inProgress = conn.prepareStatement("UPDATE Temp SET Priority=? WHERE Priority=? AND Id=?");
+            requeue = conn.prepareStatement("UPDATE Temp SET Priority=-Priority WHERE Priority<0");
+            priority = conn.prepareStatement("SELECT Priority FROM Temp WHERE Hash=? AND Link=?");
+            visited = conn.prepareStatement("UPDATE Temp SET Priority=0 WHERE Hash=? AND Link=?");
+            results = conn.prepareStatement("SELECT Link FROM Results");
+            insertResult = conn.prepareStatement("INSERT INTO Results (Link, Hash) VALUES (?, ?)");
+            insertTemp = conn.prepareStatement("INSERT INTO Temp (Priority, Link, Hash) VALUES (?, ?, ?)");
+            insertTempIfAbsent = conn.prepareStatement("INSERT INTO Temp (Priority, Link, Hash)"
+                    + " SELECT ?, ?, ? FROM SYSIBM.SYSDUMMY1"
+                    + " WHERE NOT EXISTS (SELECT 1 FROM Temp WHERE Hash=? AND Link=?)");
         } catch (SQLException exc) {
-            System.err.println("Error processing stream1: " + exc);
+            errors.report(null, exc);
+        }
+        if(fingerprints){
+            tempLinks = load("SELECT Link FROM Temp");
+            resultLinks = load("SELECT Link FROM Results");
         }
     }
     
     @Override
     public boolean checkExistsResult(String link){
+        if(resultLinks != null){return resultLinks.contains(link);}
         try {
-            ResultSet result;
-            state = conn.createStatement();
-            result = state.executeQuery("SELECT * FROM Results WHERE"
-                    + " Link='" + link + "'");
-            return result.next();
+            setLink(existsResult, 1, link);
+            try (ResultSet result = existsResult.executeQuery()) {
+                return result.next();
+            }
         } catch (SQLException exc) {
-            System.err.println("Error processing stream: " + exc);
-            return true;
+            errors.report(null, exc);
+            return false;
         }
     }
     
     @Override
     public boolean checkExistsTemp(String link){
+        if(tempLinks != null){return tempLinks.contains(link);}
         try {
-            ResultSet result;
-            state = conn.createStatement();
-            result = state.executeQuery("SELECT * FROM Temp WHERE"
-                    + " Link='" + link + "'");
-            return result.next();
+            setLink(existsTemp, 1, link);
+            try (ResultSet result = existsTemp.executeQuery()) {
+                return result.next();
+            }
         } catch (SQLException exc) {
-            System.err.println("Error processing stream: " + exc);
-            return true;
+            errors.report(null, exc);
+            return false;
         }
     }
     
     @Override
-    public String getNextURL(){
-        String nextURL = "";
+    public void checkpoint(){
         try {
-            ResultSet result;
-            state = conn.createStatement();
-            result = state.executeQuery("SELECT Link "
-                    + "FROM Temp "
-                    + "WHERE Priority>0");
+            state.execute("CALL SYSCS_UTIL.SYSCS_CHECKPOINT_DATABASE()");
+        } catch (SQLException exc) {
+            errors.report(null, exc);
+        }
+    }
+    
+    @Override
+    public String getNextURL(){
+        String next = "";
+        try (ResultSet result = nextURL.executeQuery()) {
             if(result.next()){
-                nextURL = result.getString(1);
+                next = result.getString(1);
             }
         } catch (SQLException exc) {
-            System.err.println("Error processing stream: " + exc);
+            errors.report(null, exc);
         }
-        return nextURL;
+        return next;
     }
     
     @Override
     public int getNextPriority(){
-        int nextPriority = -1;
-        try {
-            ResultSet result;
-            state = conn.createStatement();
-            result = state.executeQuery("SELECT Priority "
-                    + "FROM Temp "
-                    + "WHERE Priority>0");
+        int next = -1;
+        try (ResultSet result = nextPriority.executeQuery()) {
             if(result.next()){
-                nextPriority = result.getInt(1);
+                next = result.getInt(1);
             }
         } catch (SQLException exc) {
-            System.err.println("Error processing stream: " + exc);
+            errors.report(null, exc);
         }
-        return nextPriority;
+        return next;
     }
     
     @Override
     public int getPriority(String link){
-        int priority = -1;
+        int found = -1;
         try {
-            ResultSet result;
-            state = conn.createStatement();
-            result = state.executeQuery("SELECT Priority "
-                    + "FROM Temp "
-                    + "WHERE Link = '" + link + "'");
-            if(result.next()){
-                priority = result.getInt(1);
+            setLink(priority, 1, link);
+            try (ResultSet result = priority.executeQuery()) {
+                if(result.next()){
+                    found = result.getInt(1);
+                }
             }
         } catch (SQLException exc) {
-            System.err.println("Error processing stream: " + exc);
+            errors.report(null, exc);
         }
-        return priority;
+        return found;
     }
     
     @Override
     public void linkVisited(String link){
         try {
-            state = conn.createStatement();
-            state.executeUpdate("UPDATE Temp "
-                    + "SET Priority=0 "
-                    + "WHERE Link='"+ link + "'");
+            setLink(visited, 1, link);
+            visited.executeUpdate();
         } catch (SQLException exc) {
-            System.err.println("Error processing stream: " + exc);
+            errors.report(null, exc);
         }
     }
     
     @Override
-    public LinkedList<String> returnResults(){
-        LinkedList<String> results = new LinkedList<>();
+    public synchronized TempLink pollNext(){
+        try {
+            // Visited links have a priority of 0, so only follow on from a link taken earlier.
+            TempLink link = null;
+            if(lastPriority > 0){
+                nextSamePriority.setInt(1, lastPriority);
+                nextSamePriority.setInt(2, lastId);
+                link = takeNext(nextSamePriority);
+            }
+            if(link == null){
+                nextLink.setInt(1, lastPriority);
+                link = takeNext(nextLink);
+            }
+            return link;
+        } catch (SQLException exc) {
+            errors.report(null, exc);
+        }
+        return null;
+    }
+    
+    /**
+     * This method removes every hyperlink from both tables, so that the same
+     * database can be used for a new crawl.
+     */
+    public synchronized void clear(){
+        try {
+            state.executeUpdate("DELETE FROM Temp");
+            state.executeUpdate("DELETE FROM Results");
+        } catch (SQLException exc) {
+            errors.report(null, exc);
+        }
+        lastPriority = 0;
+        lastId = 0;
+        if(tempLinks != null){
+            tempLinks = load("SELECT Link FROM Temp");
+            resultLinks = load("SELECT Link FROM Results");
+        }
+    }
+    
+    @Override
+    public synchronized int requeueInProgress(){
         try {
-            ResultSet result;
-            state = conn.createStatement();
-            result = state.executeQuery("SELECT * "
-                    + "FROM Results");
+            int requeued = requeue.executeUpdate();
+            lastPriority = 0;
+            lastId = 0;
+            return requeued;
+        } catch (SQLException exc) {
+            errors.report(null, exc);
+        }
+        return 0;
+    }
+    
+    @Override
+    public LinkedList<String> returnResults(){
+        LinkedList<String> list = new LinkedList<>();
+        try (ResultSet result = results.executeQuery()) {
             while(result.next()){
-                results.add(result.getString(1));
-            }   
+                list.add(result.getString(1));
+            }
         } catch (SQLException exc) {
-            System.err.println("Error processing stream: " + exc);
+            errors.report(null, exc);
         }
-        return results;
+        return list;
     }
     
     @Override
     public void writeResult(String link) {
         try {
-            state = conn.createStatement();
-            state.executeUpdate("INSERT INTO Results" +
-                    " (Link)" +
-                    " VALUES ('" + link + "')");
+            insertResult.setString(1, link);
+            insertResult.setInt(2, link.hashCode());
+            insertResult.executeUpdate();
+            if(resultLinks != null){resultLinks.add(link);}
         } catch (SQLException exc) {
-            System.err.println("Error processing stream: " + exc);
+            errors.report(null, exc);
         }
     }
     
     @Override
     public void writeTemp(int priority, String link){
+        rewind(priority);
         try {
-            state = conn.createStatement();
-            state.executeUpdate("INSERT INTO Temp" +
-                    " (Priority, Link)" +
-                    " VALUES (" + priority + ", '" + link + "')");
+            insertTemp.setInt(1, priority);
+            insertTemp.setString(2, link);
+            insertTemp.setInt(3, link.hashCode());
+            insertTemp.executeUpdate();
+            if(tempLinks != null){tempLinks.add(link);}
         } catch (SQLException exc) {
-            System.err.println("Error processing stream: " + exc);
+            errors.report(null, exc);
+        }
+    }
+    
+    @Override
+    public int writeTempBatch(int priority, List<String> links){
+        // Remove links repeated in the list before anything is sent.
+        Set<String> unique = new LinkedHashSet<>(links);
+        if(tempLinks != null){unique.removeIf(tempLinks::contains);}
+        if(unique.isEmpty()){return 0;}
+        rewind(priority);
+        
+        // Write the links in a single transaction, skipping any in the table.
+        int written = 0;
+        boolean autoCommit = true;
+        try {
+            autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            PreparedStatement insert = tempLinks != null ? insertTemp : insertTempIfAbsent;
+            for(String link : unique){
+                insert.setInt(1, priority);
+                insert.setString(2, link);
+                insert.setInt(3, link.hashCode());
+                if(insert == insertTempIfAbsent){setLink(insert, 4, link);}
+                insert.addBatch();
+            }
+            for(int count : insert.executeBatch()){
+                if(count > 0){written++;}
+            }
+            if(autoCommit){conn.commit();}
+            if(tempLinks != null){unique.forEach(tempLinks::add);}
+        } catch (SQLException exc) {
+            errors.report(null, exc);
+            written = 0;
+            try {
+                insertTemp.clearBatch();
+                insertTempIfAbsent.clearBatch();
+                if(autoCommit){conn.rollback();}
+            } catch (SQLException rollback) {
+                errors.report(null, rollback);
+            }
+        } finally {
+            try {conn.setAutoCommit(autoCommit);} catch (SQLException exc) {
+                errors.report(null, exc);
+            }
         }
+        return written;
+    }
+    
+    @Override
+    public boolean writeTempIfAbsent(int priority, String link){
+        rewind(priority);
+        try {
+            if(tempLinks != null){
+                if(tempLinks.contains(link)){return false;}
+                insertTemp.setInt(1, priority);
+                insertTemp.setString(2, link);
+                insertTemp.setInt(3, link.hashCode());
+                insertTemp.executeUpdate();
+                return tempLinks.add(link);
+            }
+            insertTempIfAbsent.setInt(1, priority);
+            insertTempIfAbsent.setString(2, link);
+            insertTempIfAbsent.setInt(3, link.hashCode());
+            setLink(insertTempIfAbsent, 4, link);
+            return insertTempIfAbsent.executeUpdate() > 0;
+        } catch (SQLException exc) {
+            errors.report(null, exc);
+            return false;
+        }
+    }
+    
+    @Override
+    public void setErrorLog(ErrorLog errors){
+        this.errors = errors;
+    }
+    
+    /**
+     * This private method reads the fingerprints of the hyperlinks returned
+     * by a query.
+     * 
+     * @param query the query for the hyperlinks.
+     * @return the set of fingerprints.
+     */
+    private VisitedSet load(String query){
+        VisitedSet set = new VisitedSetImpl();
+        try (Statement scan = conn.createStatement();
+                ResultSet result = scan.executeQuery(query)) {
+            while(result.next()){
+                set.add(result.getString(1));
+            }
+        } catch (SQLException exc) {
+            errors.report(null, exc);
+        }
+        return set;
+    }
+    
+    /**
+     * This private method checks whether a table exists in the current schema
+     * of the connection.
+     * 
+     * @param name the name of the table in upper case.
+     * @return 'true' if the table exists.
+     */
+    private boolean tableExists(String name) throws SQLException{
+        try (ResultSet tables = conn.getMetaData().getTables(null, conn.getSchema(), name, null)) {
+            return tables.next();
+        }
+    }
+    
+    /**
+     * This private method runs a query for the next hyperlink and, if one is
+     * found, marks it as in progress and records its position.
+     * 
+     * @param query the query for the next hyperlink.
+     * @return the hyperlink and its priority, or a null if none was found.
+     */
+    private TempLink takeNext(PreparedStatement query) throws SQLException{
+        try (ResultSet result = query.executeQuery()) {
+            if(!result.next()){return null;}
+            TempLink link = new TempLink(result.getString(1), result.getInt(2));
+            lastPriority = link.getPriority();
+            lastId = result.getInt(3);
+            inProgress.setInt(1, -lastPriority);
+            inProgress.setInt(2, lastPriority);
+            inProgress.setInt(3, lastId);
+            inProgress.executeUpdate();
+            return link;
+        }
+    }
+    
+    /**
+     * This private method moves the position pollNext() searches from back
+     * to the start if a hyperlink is written with a lower priority.
+     * 
+     * @param priority the priority of the hyperlink being written.
+     */
+    private synchronized void rewind(int priority){
+        if(priority < lastPriority){
+            lastPriority = 0;
+            lastId = 0;
+        }
+    }
+    
+    /**
+     * This private method sets the Hash and Link parameters of a statement
+     * that looks up a hyperlink.
+     * 
+     * @param statement the statement to set the parameters of.
+     * @param index the position of the Hash parameter.
+     * @param link the hyperlink being looked up.
+     */
+    private void setLink(PreparedStatement statement, int index, String link) throws SQLException{
+        statement.setInt(index, link.hashCode());
+        statement.setString(index + 1, link);
     }
 }
\ No newline at end of file
@@ -0,0 +1,169 @@
+package crawler;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * This is an implementation of the LinkDB interface that keeps the 'temporary'
+ * and 'results' tables in memory instead of in a database. The priority of
+ * each hyperlink is kept in a hash map so that duplicates can be found without
+ * a search, and the hyperlinks waiting to be visited are kept in a queue for
+ * each priority number so the next hyperlink can be found without a search.
+ * 
+ * Hyperlinks that are visited or given a new priority are not removed from
+ * their queue straight away; they are skipped when they reach the front.
+ * 
+ * @author James Hill
+ */
+public class LinkDBImplMemory implements LinkDB {
+    
+    /**
+     * The 'temporary' table holding the priority number of every hyperlink.
+     */
+    private final Map<String, Integer> temp = new HashMap<>();
+    
+    /**
+     * The queues of hyperlinks waiting to be visited, ordered by priority.
+     */
+    private final TreeMap<Integer, ArrayDeque<String>> queues = new TreeMap<>();
+    
+    /**
+     * The 'results' table in the order the results were written.
+     */
+    private final LinkedHashSet<String> results = new LinkedHashSet<>();
+    
+    /**
+     * This is the basic constructor for this class.
+     */
+    public LinkDBImplMemory(){}
+    
+    @Override
+    public boolean checkExistsResult(String link){
+        return results.contains(link);
+    }
+    
+    @Override
+    public boolean checkExistsTemp(String link){
+        return temp.containsKey(link);
+    }
+    
+    @Override
+    public void checkpoint(){}
+    
+    @Override
+    public String getNextURL(){
+        String nextURL = nextInQueue();
+        return nextURL != null ? nextURL : "";
+    }
+    
+    @Override
+    public int getNextPriority(){
+        String nextURL = nextInQueue();
+        return nextURL != null ? temp.get(nextURL) : -1;
+    }
+    
+    @Override
+    public int getPriority(String link){
+        Integer priority = temp.get(link);
+        return priority != null ? priority : -1;
+    }
+    
+    @Override
+    public void linkVisited(String link){
+        if(temp.containsKey(link)){
+            temp.put(link, 0);
+        }
+    }
+    
+    @Override
+    public TempLink pollNext(){
+        String nextURL = nextInQueue();
+        if(nextURL == null){return null;}
+        int priority = temp.get(nextURL);
+        queues.firstEntry().getValue().poll();
+        temp.put(nextURL, -priority);
+        return new TempLink(nextURL, priority);
+    }
+    
+    @Override
+    public int requeueInProgress(){
+        List<String> inProgress = new ArrayList<>();
+        for(Map.Entry<String, Integer> entry : temp.entrySet()){
+            if(entry.getValue() < 0){inProgress.add(entry.getKey());}
+        }
+        // The links were taken before any still queued, so they go first.
+        for(String link : inProgress){
+            int priority = -temp.get(link);
+            temp.put(link, priority);
+            queues.computeIfAbsent(priority, key -> new ArrayDeque<>()).addFirst(link);
+        }
+        return inProgress.size();
+    }
+    
+    @Override
+    public LinkedList<String> returnResults(){
+        return new LinkedList<>(results);
+    }
+    
+    @Override
+    public void writeResult(String link){
+        results.add(link);
+    }
+    
+    @Override
+    public void writeTemp(int priority, String link){
+        temp.put(link, priority);
+        if(priority > 0){
+            queues.computeIfAbsent(priority, key -> new ArrayDeque<>()).add(link);
+        }
+    }
+    
+    @Override
+    public int writeTempBatch(int priority, List<String> links){
+        int written = 0;
+        for(String link : links){
+            if(writeTempIfAbsent(priority, link)){written++;}
+        }
+        return written;
+    }
+    
+    @Override
+    public boolean writeTempIfAbsent(int priority, String link){
+        if(temp.containsKey(link)){return false;}
+        writeTemp(priority, link);
+        return true;
+    }
+    
+    @Override
+    public void setErrorLog(ErrorLog errors){
+        // The collections in memory cannot fail, so there is nothing to report.
+    }
+    
+    /**
+     * This private method returns the hyperlink at the front of the lowest
+     * priority queue, first removing any hyperlinks that have since been
+     * visited or moved to another priority. Returns a null if every queue is
+     * empty.
+     * 
+     * @return the next hyperlink to be visited or a null.
+     */
+    private String nextInQueue(){
+        while(!queues.isEmpty()){
+            Map.Entry<Integer, ArrayDeque<String>> first = queues.firstEntry();
+            ArrayDeque<String> queue = first.getValue();
+            while(!queue.isEmpty()){
+                String link = queue.peek();
+                if(first.getKey().equals(temp.get(link))){return link;}
+                queue.poll();
+            }
+            queues.pollFirstEntry();
+        }
+        return null;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,186 @@
+package crawler;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This is a LinkDB that passes every call on to another LinkDB while
+ * recording how long each call took, in microseconds, in a histogram named
+ * 'db.' followed by the name of the method. It also keeps the size of the
+ * frontier: the hyperlinks written to the 'temporary' table during this
+ * crawl that have not yet been taken from it.
+ * 
+ * @author James Hill
+ */
+class MeteredLinkDB implements LinkDB {
+    
+    private final LinkDB db;
+    private final AtomicLong frontier = new AtomicLong();
+    
+    private final Histogram checkExistsResult;
+    private final Histogram checkExistsTemp;
+    private final Histogram checkpoint;
+    private final Histogram linkVisited;
+    private final Histogram pollNext;
+    private final Histogram requeueInProgress;
+    private final Histogram writeResult;
+    private final Histogram writeTemp;
+    private final Histogram other;
+    
+    /**
+     * This is the basic constructor for this class.
+     * 
+     * @param db the database each call is passed on to.
+     * @param metrics the registry the latencies are recorded in.
+     */
+    MeteredLinkDB(LinkDB db, MetricsRegistry metrics){
+        this.db = db;
+        checkExistsResult = metrics.histogram("db.checkExistsResult.us");
+        checkExistsTemp = metrics.histogram("db.checkExistsTemp.us");
+        checkpoint = metrics.histogram("db.checkpoint.us");
+        linkVisited = metrics.histogram("db.linkVisited.us");
+        pollNext = metrics.histogram("db.pollNext.us");
+        requeueInProgress = metrics.histogram("db.requeueInProgress.us");
+        writeResult = metrics.histogram("db.writeResult.us");
+        writeTemp = metrics.histogram("db.writeTemp.us");
+        other = metrics.histogram("db.other.us");
+    }
+    
+    /**
+     * This method returns the number of hyperlinks written to the 'temporary'
+     * table through this object that have not yet been taken from it. Links
+     * put back by requeueInProgress() are counted again.
+     * 
+     * @return the size of the frontier.
+     */
+    long getFrontierSize(){
+        return Math.max(frontier.get(), 0);
+    }
+    
+    @Override
+    public boolean checkExistsResult(String hyperlink){
+        long start = System.nanoTime();
+        boolean exists = db.checkExistsResult(hyperlink);
+        record(checkExistsResult, start);
+        return exists;
+    }
+    
+    @Override
+    public boolean checkExistsTemp(String hyperlink){
+        long start = System.nanoTime();
+        boolean exists = db.checkExistsTemp(hyperlink);
+        record(checkExistsTemp, start);
+        return exists;
+    }
+    
+    @Override
+    public void checkpoint(){
+        long start = System.nanoTime();
+        db.checkpoint();
+        record(checkpoint, start);
+    }
+    
+    @Override
+    public String getNextURL(){
+        long start = System.nanoTime();
+        String next = db.getNextURL();
+        record(other, start);
+        return next;
+    }
+    
+    @Override
+    public int getNextPriority(){
+        long start = System.nanoTime();
+        int priority = db.getNextPriority();
+        record(other, start);
+        return priority;
+    }
+    
+    @Override
+    public int getPriority(String hyperlink){
+        long start = System.nanoTime();
+        int priority = db.getPriority(hyperlink);
+        record(other, start);
+        return priority;
+    }
+    
+    @Override
+    public void linkVisited(String hyperlink){
+        long start = System.nanoTime();
+        db.linkVisited(hyperlink);
+        record(linkVisited, start);
+    }
+    
+    @Override
+    public TempLink pollNext(){
+        long start = System.nanoTime();
+        TempLink next = db.pollNext();
+        record(pollNext, start);
+        if(next != null){frontier.decrementAndGet();}
+        return next;
+    }
+    
+    @Override
+    public int requeueInProgress(){
+        long start = System.nanoTime();
+        int requeued = db.requeueInProgress();
+        record(requeueInProgress, start);
+        frontier.addAndGet(requeued);
+        return requeued;
+    }
+    
+    @Override
+    public LinkedList<String> returnResults(){
+        long start = System.nanoTime();
+        LinkedList<String> results = db.returnResults();
+        record(other, start);
+        return results;
+    }
+    
+    @Override
+    public void writeResult(String hyperlink){
+        long start = System.nanoTime();
+        db.writeResult(hyperlink);
+        record(writeResult, start);
+    }
+    
+    @Override
+    public void writeTemp(int priority, String hyperlink){
+        long start = System.nanoTime();
+        db.writeTemp(priority, hyperlink);
+        record(writeTemp, start);
+        frontier.incrementAndGet();
+    }
+    
+    @Override
+    public int writeTempBatch(int priority, List<String> hyperlinks){
+        long start = System.nanoTime();
+        int written = db.writeTempBatch(priority, hyperlinks);
+        record(writeTemp, start);
+        frontier.addAndGet(written);
+        return written;
+    }
+    
+    @Override
+    public boolean writeTempIfAbsent(int priority, String hyperlink){
+        long start = System.nanoTime();
+        boolean written = db.writeTempIfAbsent(priority, hyperlink);
+        record(writeTemp, start);
+        if(written){frontier.incrementAndGet();}
+        return written;
+    }
+    
+    @Override
+    public void setErrorLog(ErrorLog errors){
+        db.setErrorLog(errors);
+    }
+    
+    /**
+     * This private method records the microseconds since a call started.
+     */
+    private static void record(Histogram histogram, long start){
+        histogram.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+    }
+}
\ No newline at end of file
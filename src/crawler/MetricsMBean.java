@@ -0,0 +1,79 @@
+package crawler;
+
+import java.util.Map;
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.ReflectionException;
+
+/**
+ * This is the MBean that the metrics of a MetricsRegistry are registered as.
+ * As metrics can be added while a crawl runs, each metric is a read-only
+ * attribute found from a snapshot when the MBean is asked for them.
+ * 
+ * @author James Hill
+ */
+class MetricsMBean implements DynamicMBean {
+    
+    private final MetricsRegistry registry;
+    
+    /**
+     * This is the basic constructor for this class.
+     * 
+     * @param registry the metrics to be read.
+     */
+    MetricsMBean(MetricsRegistry registry){
+        this.registry = registry;
+    }
+    
+    @Override
+    public Object getAttribute(String attribute) throws AttributeNotFoundException{
+        Number value = registry.snapshot().get(attribute);
+        if(value == null){throw new AttributeNotFoundException(attribute);}
+        return value;
+    }
+    
+    @Override
+    public AttributeList getAttributes(String[] attributes){
+        Map<String, Number> values = registry.snapshot();
+        AttributeList list = new AttributeList();
+        for(String attribute : attributes){
+            if(values.containsKey(attribute)){
+                list.add(new Attribute(attribute, values.get(attribute)));
+            }
+        }
+        return list;
+    }
+    
+    @Override
+    public void setAttribute(Attribute attribute) throws AttributeNotFoundException{
+        throw new AttributeNotFoundException("The metrics cannot be changed: " + attribute.getName());
+    }
+    
+    @Override
+    public AttributeList setAttributes(AttributeList attributes){
+        return new AttributeList();
+    }
+    
+    @Override
+    public Object invoke(String actionName, Object[] params, String[] signature) throws ReflectionException{
+        throw new ReflectionException(new NoSuchMethodException(actionName));
+    }
+    
+    @Override
+    public MBeanInfo getMBeanInfo(){
+        Map<String, Number> values = registry.snapshot();
+        MBeanAttributeInfo[] attributes = new MBeanAttributeInfo[values.size()];
+        int i = 0;
+        for(Map.Entry<String, Number> entry : values.entrySet()){
+            attributes[i++] = new MBeanAttributeInfo(entry.getKey(), entry.getValue().getClass().getName(),
+                    entry.getKey(), true, false, false);
+        }
+        return new MBeanInfo(getClass().getName(), "The metrics of a crawl.", attributes,
+                null, new MBeanOperationInfo[0], null);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,135 @@
+package crawler;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * This class keeps the metrics of a crawl by name: counters, histograms of
+ * values such as latencies, and gauges that are read when the metrics are
+ * reported. Counters are LongAdders and histograms are Histograms, so the
+ * threads of a crawl record metrics without locking or waiting for each
+ * other. The metrics are created once and kept by whoever records them, so
+ * that the names are only looked up when the metrics are read.
+ * 
+ * A snapshot of every metric can be taken at any time, and the metrics can
+ * be registered as an MBean so that they can be watched with JMX tools such
+ * as JConsole, or written periodically by a MetricsReporter.
+ * 
+ * @author James Hill
+ */
+public class MetricsRegistry {
+    
+    // The percentiles reported for each histogram.
+    private static final double[] PERCENTILES = {50, 90, 99};
+    
+    private final ConcurrentMap<String, Object> metrics = new ConcurrentSkipListMap<>();
+    
+    /**
+     * This method returns the counter with a name, creating it if needed.
+     * 
+     * @param name the name of the counter.
+     * @return the counter.
+     */
+    public LongAdder counter(String name){
+        return (LongAdder) metrics.computeIfAbsent(name, key -> new LongAdder());
+    }
+    
+    /**
+     * This method returns the histogram with a name, creating it if needed.
+     * 
+     * @param name the name of the histogram.
+     * @return the histogram.
+     */
+    public Histogram histogram(String name){
+        return (Histogram) metrics.computeIfAbsent(name, key -> new Histogram());
+    }
+    
+    /**
+     * This method sets the gauge with a name, replacing any gauge already set
+     * with the same name. A gauge is only read when the metrics are read.
+     * 
+     * @param name the name of the gauge.
+     * @param gauge the supplier of the value of the gauge.
+     */
+    public void gauge(String name, DoubleSupplier gauge){
+        metrics.put(name, gauge);
+    }
+    
+    /**
+     * This method sets every counter and histogram back to zero.
+     */
+    public void reset(){
+        for(Object metric : metrics.values()){
+            if(metric instanceof LongAdder){
+                ((LongAdder) metric).reset();
+            } else if(metric instanceof Histogram){
+                ((Histogram) metric).reset();
+            }
+        }
+    }
+    
+    /**
+     * This method returns the value of every metric, in order of name. Each
+     * histogram is given as its count, mean, 50th, 90th and 99th percentiles
+     * and maximum, named by adding '.count', '.mean', '.p50' and so on to the
+     * name of the histogram.
+     * 
+     * @return the values of the metrics by name.
+     */
+    public Map<String, Number> snapshot(){
+        Map<String, Number> values = new LinkedHashMap<>();
+        for(Map.Entry<String, Object> entry : metrics.entrySet()){
+            String name = entry.getKey();
+            Object metric = entry.getValue();
+            if(metric instanceof LongAdder){
+                values.put(name, ((LongAdder) metric).sum());
+            } else if(metric instanceof Histogram){
+                Histogram histogram = (Histogram) metric;
+                values.put(name + ".count", histogram.getCount());
+                values.put(name + ".mean", histogram.getMean());
+                for(double percentile : PERCENTILES){
+                    values.put(name + ".p" + (int) percentile, histogram.getValueAtPercentile(percentile));
+                }
+                values.put(name + ".max", histogram.getMax());
+            } else {
+                values.put(name, ((DoubleSupplier) metric).getAsDouble());
+            }
+        }
+        return values;
+    }
+    
+    /**
+     * This method registers the metrics with the platform MBean server, as
+     * an MBean whose read-only attributes are the values in a snapshot.
+     * 
+     * @param name the name of the MBean, such as 'crawler:type=Metrics'.
+     * @return the name the MBean was registered under.
+     * @throws JMException if the MBean cannot be registered.
+     */
+    public ObjectName register(String name) throws JMException{
+        ObjectName objectName = new ObjectName(name);
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        if(server.isRegistered(objectName)){server.unregisterMBean(objectName);}
+        server.registerMBean(new MetricsMBean(this), objectName);
+        return objectName;
+    }
+    
+    /**
+     * This method removes an MBean registered by register().
+     * 
+     * @param name the name the MBean was registered under.
+     * @throws JMException if the MBean cannot be removed.
+     */
+    public static void unregister(ObjectName name) throws JMException{
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        if(server.isRegistered(name)){server.unregisterMBean(name);}
+    }
+}
\ No newline at end of file
@@ -0,0 +1,113 @@
+package crawler;
+
+import java.io.Closeable;
+import java.io.PrintWriter;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class writes the metrics of a MetricsRegistry periodically, either to
+ * the console as a list of names and values, or as rows of a CSV file with a
+ * column for each metric. A new header row is written whenever the metrics
+ * change, such as when a new type of error is first counted. The reports are
+ * written by a thread of their own, so the crawl never waits for them.
+ * 
+ * @author James Hill
+ */
+public class MetricsReporter implements Closeable {
+    
+    private final MetricsRegistry registry;
+    private final PrintWriter out;
+    private final boolean csv;
+    private ScheduledExecutorService timer;
+    private List<String> columns = new ArrayList<>();
+    
+    /**
+     * This is the basic constructor for this class.
+     * 
+     * @param registry the metrics to report.
+     * @param out where the reports are written.
+     * @param csv 'true' to write CSV rows rather than a list for the console.
+     */
+    public MetricsReporter(MetricsRegistry registry, PrintWriter out, boolean csv){
+        this.registry = registry;
+        this.out = out;
+        this.csv = csv;
+    }
+    
+    /**
+     * This method starts writing a report at a fixed period.
+     * 
+     * @param period the time between reports.
+     * @param unit the unit of the period.
+     */
+    public void start(long period, TimeUnit unit){
+        timer = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "metrics-reporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        timer.scheduleAtFixedRate(this::report, period, period, unit);
+    }
+    
+    /**
+     * This method writes a report of the metrics now.
+     */
+    public synchronized void report(){
+        Map<String, Number> values = registry.snapshot();
+        String time = new SimpleDateFormat("HH:mm:ss").format(new Date());
+        if(csv){
+            List<String> names = new ArrayList<>(values.keySet());
+            if(!names.equals(columns)){
+                columns = names;
+                out.println("time," + String.join(",", names));
+            }
+            StringBuilder row = new StringBuilder(time);
+            for(Number value : values.values()){
+                row.append(',').append(format(value));
+            }
+            out.println(row);
+        } else {
+            out.println("Metrics at " + time + ":");
+            for(Map.Entry<String, Number> entry : values.entrySet()){
+                out.println("  " + entry.getKey() + " = " + format(entry.getValue()));
+            }
+        }
+        out.flush();
+    }
+    
+    /**
+     * This method stops the periodic reports and writes a last report, but
+     * does not close the writer.
+     */
+    @Override
+    public void close(){
+        if(timer != null){
+            timer.shutdownNow();
+            try {
+                timer.awaitTermination(1, TimeUnit.SECONDS);
+            } catch (InterruptedException exc) {
+                Thread.currentThread().interrupt();
+            }
+            timer = null;
+        }
+        report();
+    }
+    
+    /**
+     * This private method writes a value with at most three decimal places.
+     */
+    private static String format(Number value){
+        if(value instanceof Double){
+            return String.format(Locale.ROOT, "%.3f", value.doubleValue());
+        }
+        return value.toString();
+    }
+}
\ No newline at end of file
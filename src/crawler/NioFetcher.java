@@ -0,0 +1,890 @@
+package crawler;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.net.StandardSocketOptions;
+import java.net.URL;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * This class fetches web pages over HTTP/1.1 with non-blocking socket
+ * channels that are all served by a single selector thread, so that many
+ * pages can be fetched at once without a thread for each page. The whole
+ * body of each response is read into a ByteBuffer, and the response is passed
+ * to the callback given with the request once it is complete.
+ * 
+ * Connections are kept alive and used again for the next request to the same
+ * host and port. A request sent on a connection that the server has closed
+ * while it was idle is sent again once on a new connection. Bodies sent with
+ * a Content-Length are read straight into a buffer of that size; chunked
+ * bodies and bodies ended by closing the connection are also read. Redirects
+ * are not followed. Only 'http' URL's can be fetched.
+ * 
+ * A time can be set to open a connection, to wait for more of a response and
+ * to read the whole of a response, and a most bytes for a body. A response
+ * that breaks one of these is abandoned and its connection closed, so that a
+ * slow or endless page cannot use a connection for ever.
+ * 
+ * The callbacks are called on the selector thread, so they should return
+ * quickly, for example by handing the response to another thread.
+ * 
+ * @author James Hill
+ */
+public class NioFetcher implements Closeable {
+    
+    /**
+     * The size of the buffer each connection reads the response headers into,
+     * and the largest the response headers may be.
+     */
+    private static final int BUFFER_SIZE = 16384;
+    private static final int MAX_HEADERS = 65536;
+    
+    // How often, in milliseconds, the exchanges are checked for time outs.
+    private static final long SWEEP_MILLIS = 100;
+    
+    // The states of an exchange as its response is read.
+    private static final int HEADERS = 0;
+    private static final int LENGTH = 1;
+    private static final int CHUNK_SIZE = 2;
+    private static final int CHUNK_DATA = 3;
+    private static final int CHUNK_END = 4;
+    private static final int TRAILERS = 5;
+    private static final int UNTIL_CLOSE = 6;
+    private static final int DONE = 7;
+    
+    private final Selector selector;
+    private final Thread thread;
+    
+    /**
+     * The requests waiting to be started by the selector thread.
+     */
+    private final Queue<Exchange> pending = new ConcurrentLinkedQueue<>();
+    
+    /**
+     * The connections kept alive for each host and port that are not being
+     * used. This is only used by the selector thread.
+     */
+    private final Map<String, ArrayDeque<Connection>> idle = new HashMap<>();
+    
+    private final AtomicInteger connectionsOpened = new AtomicInteger();
+    private volatile boolean closed = false;
+    
+    /**
+     * This is where an error of the selector thread itself is reported.
+     */
+    private volatile ErrorLog errors = ErrorLogImpl.CONSOLE;
+    
+    /**
+     * The limits on each exchange, in milliseconds and bytes. A limit of 0 is
+     * no limit.
+     */
+    private volatile long connectTimeout = 0;
+    private volatile long readTimeout = 0;
+    private volatile long pageTimeout = 0;
+    private volatile long maxBodyBytes = 0;
+    
+    /**
+     * This is the basic constructor for this class, which starts the selector
+     * thread.
+     * 
+     * @throws IOException if the selector cannot be opened.
+     */
+    public NioFetcher() throws IOException{
+        selector = Selector.open();
+        thread = new Thread(this::run, "nio-fetcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+    
+    /**
+     * This method checks whether a URL can be fetched by this class.
+     * 
+     * @param url the URL to be fetched.
+     * @return 'true' if the URL uses 'http'.
+     */
+    public static boolean supports(URL url){
+        return url.getProtocol().equalsIgnoreCase("http");
+    }
+    
+    /**
+     * This method sends a GET request for a URL. The host is looked up in the
+     * calling thread, and the request is then sent and its response read by
+     * the selector thread. The callback is always called once, with either
+     * the response or the error that stopped it being read.
+     * 
+     * @param url the page to be fetched, which must use 'http'.
+     * @param headers any request headers to send, or a null.
+     * @param callback the callback the response is passed to.
+     */
+    public void fetch(URL url, Map<String, String> headers, Consumer<Response> callback){
+        if(!supports(url)){
+            throw new IllegalArgumentException("Only http URL's can be fetched: " + url);
+        }
+        if(closed){
+            throw new IllegalStateException("The fetcher has been closed.");
+        }
+        pending.add(new Exchange(url, headers, callback));
+        selector.wakeup();
+    }
+    
+    /**
+     * This method sets where an error of the selector thread is reported,
+     * such as a connection that cannot be closed. An error fetching a page
+     * is passed to the callback of the page instead.
+     * 
+     * @param errors the log errors are reported to.
+     */
+    public void setErrorLog(ErrorLog errors){
+        this.errors = errors;
+    }
+    
+    /**
+     * This method sets the time allowed to open a connection. A request that
+     * has not connected in time fails with a SocketTimeoutException.
+     * 
+     * @param connectTimeout the time in milliseconds, 0 for no limit.
+     */
+    public void setConnectTimeout(long connectTimeout){
+        this.connectTimeout = Math.max(connectTimeout, 0);
+    }
+    
+    /**
+     * This method sets the time allowed to wait for more of a response once
+     * the request has been sent. A response that stops arriving for longer
+     * fails with a SocketTimeoutException.
+     * 
+     * @param readTimeout the time in milliseconds, 0 for no limit.
+     */
+    public void setReadTimeout(long readTimeout){
+        this.readTimeout = Math.max(readTimeout, 0);
+    }
+    
+    /**
+     * This method sets the time allowed to fetch a page, from the call to
+     * fetch() to the end of the response. A response that has not all been
+     * read in time fails with a SocketTimeoutException, however steadily it
+     * is arriving.
+     * 
+     * @param pageTimeout the time in milliseconds, 0 for no limit.
+     */
+    public void setPageTimeout(long pageTimeout){
+        this.pageTimeout = Math.max(pageTimeout, 0);
+    }
+    
+    /**
+     * This method sets the most bytes of a body that are read. A response
+     * with a larger body fails with a PageTooLargeException, as soon as the
+     * size is known.
+     * 
+     * @param maxBodyBytes the most bytes, 0 for no limit.
+     */
+    public void setMaxBodyBytes(long maxBodyBytes){
+        this.maxBodyBytes = Math.max(maxBodyBytes, 0);
+    }
+    
+    /**
+     * This method returns the number of connections opened since the fetcher
+     * was created.
+     * 
+     * @return the number of connections opened.
+     */
+    public int getConnectionsOpened(){
+        return connectionsOpened.get();
+    }
+    
+    /**
+     * This method stops the selector thread and closes every connection. Any
+     * response still being read is passed to its callback with an error.
+     */
+    @Override
+    public void close(){
+        closed = true;
+        selector.wakeup();
+        if(Thread.currentThread() != thread){
+            try {
+                thread.join();
+            } catch (InterruptedException exc) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+    
+    /**
+     * This private method is run by the selector thread. It starts the
+     * requests waiting and reads and writes the connections that are ready
+     * until the fetcher is closed.
+     */
+    private void run(){
+        // The exchanges are only checked for time outs once every sweep.
+        long sweep = TimeUnit.MILLISECONDS.toNanos(SWEEP_MILLIS);
+        long nextSweep = System.nanoTime() + sweep;
+        try {
+            while(!closed){
+                boolean timed = connectTimeout > 0 || readTimeout > 0 || pageTimeout > 0;
+                long wait = TimeUnit.NANOSECONDS.toMillis(nextSweep - System.nanoTime());
+                selector.select(timed ? Math.max(wait, 1) : 0);
+                Exchange exchange;
+                while((exchange = pending.poll()) != null){
+                    begin(exchange);
+                }
+                for(SelectionKey key : selector.selectedKeys()){
+                    Connection connection = (Connection) key.attachment();
+                    try {
+                        if(!key.isValid()){continue;}
+                        if(key.isConnectable()){
+                            connection.connected();
+                        } else if(key.isWritable()){
+                            connection.write();
+                        } else if(key.isReadable()){
+                            connection.read();
+                        }
+                    } catch (IOException exc) {
+                        connection.fail(exc);
+                    }
+                }
+                selector.selectedKeys().clear();
+                long now = System.nanoTime();
+                if(now - nextSweep >= 0){
+                    if(timed){expire(now);}
+                    nextSweep = now + sweep;
+                }
+            }
+        } catch (IOException exc) {
+            errors.report(null, exc);
+        } finally {
+            closed = true;
+            closeAll();
+        }
+    }
+    
+    /**
+     * This private method starts an exchange on an idle connection to its
+     * host, or on a new connection if there is none.
+     */
+    private void begin(Exchange exchange){
+        ArrayDeque<Connection> free = idle.get(exchange.host);
+        Connection connection = free != null ? free.poll() : null;
+        try {
+            if(connection != null){
+                connection.send(exchange);
+            } else if(exchange.address.isUnresolved()){
+                exchange.complete(new UnknownHostException(exchange.url.getHost()));
+            } else {
+                new Connection(exchange);
+            }
+        } catch (IOException exc) {
+            if(connection != null){
+                connection.fail(exc);
+            } else {
+                exchange.complete(exc);
+            }
+        }
+    }
+    
+    /**
+     * This private method abandons every exchange that has taken longer than
+     * it is allowed to connect, to send more of its response or to be read.
+     * 
+     * @param now the System.nanoTime() to check the exchanges at.
+     */
+    private void expire(long now){
+        for(SelectionKey key : new ArrayList<>(selector.keys())){
+            Connection connection = (Connection) key.attachment();
+            Exchange exchange = connection.exchange;
+            if(exchange == null){continue;}
+            String reason = null;
+            if(overdue(now - exchange.begun, pageTimeout)){
+                reason = "Page not read within " + pageTimeout + " ms";
+            } else if(connection.connecting && overdue(now - exchange.active, connectTimeout)){
+                reason = "Connect timed out after " + connectTimeout + " ms";
+            } else if(!connection.connecting && overdue(now - exchange.active, readTimeout)){
+                reason = "Read timed out after " + readTimeout + " ms";
+            }
+            if(reason != null){
+                connection.abandon(new SocketTimeoutException(reason + " for URL: " + exchange.url));
+            }
+        }
+    }
+    
+    /**
+     * This private method checks whether a time in nanoseconds is past a
+     * limit in milliseconds, where a limit of 0 is no limit.
+     */
+    private static boolean overdue(long elapsed, long limit){
+        return limit > 0 && elapsed >= TimeUnit.MILLISECONDS.toNanos(limit);
+    }
+    
+    /**
+     * This private method throws an error if a body is larger than the most
+     * bytes that are read.
+     */
+    private void checkSize(long size, URL url) throws PageTooLargeException{
+        long max = maxBodyBytes;
+        if(max > 0 && size > max){throw new PageTooLargeException(max, url);}
+    }
+    
+    /**
+     * This private method closes every connection and passes an error to the
+     * callback of every exchange that has not been completed.
+     */
+    private void closeAll(){
+        IOException error = new IOException("The fetcher has been closed.");
+        for(SelectionKey key : new ArrayList<>(selector.keys())){
+            Connection connection = (Connection) key.attachment();
+            Exchange exchange = connection.exchange;
+            connection.exchange = null;
+            connection.close();
+            if(exchange != null){exchange.complete(error);}
+        }
+        Exchange exchange;
+        while((exchange = pending.poll()) != null){
+            exchange.complete(error);
+        }
+        try {
+            selector.close();
+        } catch (IOException exc) {
+            errors.report(null, exc);
+        }
+    }
+    
+    /**
+     * This private method returns the index just after the first line in a
+     * buffer, or -1 if the buffer does not hold a whole line.
+     */
+    private static int lineEnd(ByteBuffer in){
+        for(int i = in.position(); i < in.limit(); i++){
+            if(in.get(i) == '\n'){return i + 1;}
+        }
+        return -1;
+    }
+    
+    /**
+     * This private method returns the index just after the blank line that
+     * ends the headers in a buffer, or -1 if the buffer does not hold them.
+     */
+    private static int headersEnd(ByteBuffer in){
+        for(int i = in.position(); i < in.limit(); i++){
+            if(in.get(i) != '\n'){continue;}
+            if(i + 1 < in.limit() && in.get(i + 1) == '\n'){return i + 2;}
+            if(i + 2 < in.limit() && in.get(i + 1) == '\r' && in.get(i + 2) == '\n'){return i + 3;}
+        }
+        return -1;
+    }
+    
+    /**
+     * This private method reads the text of a buffer up to an index as
+     * ISO-8859-1, and moves the buffer on to the index.
+     */
+    private static String text(ByteBuffer in, int end){
+        byte[] bytes = new byte[end - in.position()];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.ISO_8859_1);
+    }
+    
+    /**
+     * This private method returns a buffer with room for more bytes, holding
+     * the bytes already written to the one given.
+     */
+    private static ByteBuffer ensureRoom(ByteBuffer body, int needed){
+        if(body.remaining() >= needed){return body;}
+        int capacity = body.capacity();
+        while(capacity - body.position() < needed){
+            capacity = capacity * 2;
+        }
+        ByteBuffer bigger = ByteBuffer.allocate(capacity);
+        body.flip();
+        bigger.put(body);
+        return bigger;
+    }
+    
+    /**
+     * This class is the response to a request, or the error that stopped it
+     * being read.
+     */
+    public static final class Response {
+        
+        private final URL url;
+        private final int status;
+        private final Map<String, String> headers;
+        private final ByteBuffer body;
+        private final IOException error;
+        
+        Response(URL url, int status, Map<String, String> headers, ByteBuffer body, IOException error){
+            this.url = url;
+            this.status = status;
+            this.headers = headers;
+            this.body = body;
+            this.error = error;
+        }
+        
+        /**
+         * This method returns the URL that was requested.
+         * 
+         * @return the URL requested.
+         */
+        public URL getURL(){
+            return url;
+        }
+        
+        /**
+         * This method returns the status code of the response.
+         * 
+         * @return the status code, or 0 if the response could not be read.
+         */
+        public int getStatus(){
+            return status;
+        }
+        
+        /**
+         * This method returns a response header. Headers sent more than once
+         * are joined with commas.
+         * 
+         * @param name the name of the header, in any case.
+         * @return the value of the header, or a null if it was not sent.
+         */
+        public String getHeader(String name){
+            return headers.get(name.toLowerCase(Locale.ROOT));
+        }
+        
+        /**
+         * This method returns the body of the response, from its position to
+         * its limit.
+         * 
+         * @return the body, or a null if the response could not be read.
+         */
+        public ByteBuffer getBody(){
+            return body;
+        }
+        
+        /**
+         * This method returns the error that stopped the response being read.
+         * 
+         * @return the error, or a null if the response was read.
+         */
+        public IOException getError(){
+            return error;
+        }
+    }
+    
+    /**
+     * This private class is a single request and the state of reading its
+     * response.
+     */
+    private class Exchange {
+        
+        final URL url;
+        final String host;
+        final InetSocketAddress address;
+        final ByteBuffer request;
+        final Consumer<Response> callback;
+        final long begun = System.nanoTime();
+        long active = begun;
+        int state = HEADERS;
+        int status = 0;
+        Map<String, String> headers = new HashMap<>();
+        ByteBuffer body;
+        long remaining;
+        boolean keepAlive;
+        boolean started = false;
+        boolean retried = false;
+        
+        Exchange(URL url, Map<String, String> extra, Consumer<Response> callback){
+            this.url = url;
+            this.callback = callback;
+            int port = url.getPort() != -1 ? url.getPort() : url.getDefaultPort();
+            host = url.getHost().toLowerCase(Locale.ROOT) + ":" + port;
+            address = new InetSocketAddress(url.getHost(), port);
+            
+            // The path and query of the URL are sent, but never the fragment.
+            String file = url.getFile().isEmpty() ? "/" : url.getFile();
+            StringBuilder text = new StringBuilder(256);
+            text.append("GET ").append(file).append(" HTTP/1.1\r\n")
+                    .append("Host: ").append(url.getHost());
+            if(url.getPort() != -1){text.append(':').append(url.getPort());}
+            text.append("\r\nAccept: */*\r\nConnection: keep-alive\r\n");
+            if(extra != null){
+                for(Map.Entry<String, String> header : extra.entrySet()){
+                    text.append(header.getKey()).append(": ").append(header.getValue()).append("\r\n");
+                }
+            }
+            text.append("\r\n");
+            request = ByteBuffer.wrap(text.toString().getBytes(StandardCharsets.ISO_8859_1));
+        }
+        
+        /**
+         * This method clears what has been read of the response, so that the
+         * request can be sent again.
+         */
+        void retry(){
+            retried = true;
+            request.rewind();
+            state = HEADERS;
+            headers = new HashMap<>();
+        }
+        
+        /**
+         * This method passes the response, or the error, to the callback.
+         */
+        void complete(IOException error){
+            Response response;
+            if(error != null){
+                response = new Response(url, 0, Collections.emptyMap(), null, error);
+            } else {
+                body.flip();
+                response = new Response(url, status, headers, body, null);
+            }
+            try {
+                callback.accept(response);
+            } catch (RuntimeException exc) {
+                errors.report(url.toString(), exc);
+            }
+        }
+    }
+    
+    /**
+     * This private class is a connection to a host, which reads the response
+     * to one exchange at a time.
+     */
+    private class Connection {
+        
+        final String host;
+        final SocketChannel channel;
+        final SelectionKey key;
+        ByteBuffer in = ByteBuffer.allocate(BUFFER_SIZE);
+        Exchange exchange;
+        boolean used = false;
+        boolean connecting = false;
+        
+        /**
+         * This constructor opens a new connection for an exchange.
+         */
+        Connection(Exchange first) throws IOException{
+            host = first.host;
+            channel = SocketChannel.open();
+            try {
+                channel.configureBlocking(false);
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                key = channel.register(selector, 0, this);
+            } catch (IOException exc) {
+                channel.close();
+                throw exc;
+            }
+            connectionsOpened.incrementAndGet();
+            exchange = first;
+            first.active = System.nanoTime();
+            if(channel.connect(first.address)){
+                write();
+            } else {
+                connecting = true;
+                key.interestOps(SelectionKey.OP_CONNECT);
+            }
+        }
+        
+        /**
+         * This method starts an exchange on a connection that was idle.
+         */
+        void send(Exchange next) throws IOException{
+            idle.get(host).remove(this);
+            exchange = next;
+            write();
+        }
+        
+        /**
+         * This method finishes opening the connection and sends the request.
+         */
+        void connected() throws IOException{
+            if(channel.finishConnect()){
+                connecting = false;
+                write();
+            }
+        }
+        
+        /**
+         * This method writes as much of the request as the socket will take,
+         * and then waits for the response once it has all been sent.
+         */
+        void write() throws IOException{
+            exchange.active = System.nanoTime();
+            channel.write(exchange.request);
+            key.interestOps(exchange.request.hasRemaining() ? SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+        }
+        
+        /**
+         * This method reads what has arrived of the response. A body of known
+         * length is read straight into its own buffer.
+         */
+        void read() throws IOException{
+            if(exchange == null){
+                // The server has closed an idle connection.
+                close();
+                return;
+            }
+            int read;
+            if(exchange.state == LENGTH && in.position() == 0){
+                read = channel.read(exchange.body);
+            } else {
+                read = channel.read(in);
+            }
+            if(read < 0){
+                ended();
+                return;
+            }
+            if(read > 0){
+                exchange.started = true;
+                exchange.active = System.nanoTime();
+            }
+            in.flip();
+            try {
+                while(exchange.state != DONE && step()){}
+            } finally {
+                in.compact();
+            }
+            if(exchange.state == DONE){finish();}
+        }
+        
+        /**
+         * This method reads the next part of the response from the buffer.
+         * 
+         * @return 'true' if more of the buffer may be read.
+         */
+        private boolean step() throws IOException{
+            Exchange ex = exchange;
+            int end;
+            switch(ex.state){
+                case HEADERS:       end = headersEnd(in);
+                                    if(end < 0){
+                                        if(in.remaining() == in.capacity()){growHeaders();}
+                                        return false;
+                                    }
+                                    readHeaders(text(in, end));
+                                    return true;
+                case LENGTH:        copy(in.remaining());
+                                    if(!ex.body.hasRemaining()){ex.state = DONE;}
+                                    return false;
+                case CHUNK_SIZE:    end = lineEnd(in);
+                                    if(end < 0){return checkLine();}
+                                    String size = text(in, end).trim();
+                                    int extension = size.indexOf(';');
+                                    if(extension >= 0){size = size.substring(0, extension).trim();}
+                                    try {
+                                        ex.remaining = Long.parseLong(size, 16);
+                                    } catch (NumberFormatException exc) {
+                                        throw new IOException("Bad chunk size: " + size);
+                                    }
+                                    ex.state = ex.remaining == 0 ? TRAILERS : CHUNK_DATA;
+                                    return true;
+                case CHUNK_DATA:    int count = (int) Math.min(ex.remaining, in.remaining());
+                                    checkSize(ex.body.position() + (long) count, ex.url);
+                                    ex.body = ensureRoom(ex.body, count);
+                                    copy(count);
+                                    ex.remaining -= count;
+                                    if(ex.remaining == 0){ex.state = CHUNK_END;}
+                                    return count > 0;
+                case CHUNK_END:     end = lineEnd(in);
+                                    if(end < 0){return checkLine();}
+                                    in.position(end);
+                                    ex.state = CHUNK_SIZE;
+                                    return true;
+                case TRAILERS:      end = lineEnd(in);
+                                    if(end < 0){return checkLine();}
+                                    if(text(in, end).trim().isEmpty()){ex.state = DONE;}
+                                    return true;
+                case UNTIL_CLOSE:   checkSize(ex.body.position() + (long) in.remaining(), ex.url);
+                                    ex.body = ensureRoom(ex.body, in.remaining());
+                                    copy(in.remaining());
+                                    return false;
+                default:            return false;
+            }
+        }
+        
+        /**
+         * This method reads the status line and headers of the response, and
+         * decides how the body will be read.
+         */
+        private void readHeaders(String text) throws IOException{
+            Exchange ex = exchange;
+            String[] lines = text.split("\r?\n");
+            String[] status = lines[0].split(" ", 3);
+            if(status.length < 2 || !status[0].startsWith("HTTP/")){
+                throw new IOException("Bad status line: " + lines[0]);
+            }
+            try {
+                ex.status = Integer.parseInt(status[1]);
+            } catch (NumberFormatException exc) {
+                throw new IOException("Bad status line: " + lines[0]);
+            }
+            ex.headers = new HashMap<>();
+            for(int i = 1; i < lines.length; i++){
+                int colon = lines[i].indexOf(':');
+                if(colon <= 0){continue;}
+                String name = lines[i].substring(0, colon).trim().toLowerCase(Locale.ROOT);
+                String value = lines[i].substring(colon + 1).trim();
+                ex.headers.merge(name, value, (first, second) -> first + ", " + second);
+            }
+            
+            // Informational responses are followed by the real response.
+            if(ex.status >= 100 && ex.status < 200){return;}
+            String connection = ex.headers.get("connection");
+            ex.keepAlive = status[0].equals("HTTP/1.1") ? !"close".equalsIgnoreCase(connection)
+                    : "keep-alive".equalsIgnoreCase(connection);
+            String encoding = ex.headers.get("transfer-encoding");
+            String length = ex.headers.get("content-length");
+            if(ex.status == 204 || ex.status == 304){
+                ex.body = ByteBuffer.allocate(0);
+                ex.state = DONE;
+            } else if(encoding != null && encoding.toLowerCase(Locale.ROOT).contains("chunked")){
+                ex.body = ByteBuffer.allocate(BUFFER_SIZE);
+                ex.state = CHUNK_SIZE;
+            } else if(length != null){
+                long size;
+                try {
+                    size = Long.parseLong(length);
+                } catch (NumberFormatException exc) {
+                    throw new IOException("Bad Content-Length: " + length);
+                }
+                if(size < 0 || size > Integer.MAX_VALUE){
+                    throw new IOException("Bad Content-Length: " + length);
+                }
+                checkSize(size, ex.url);
+                ex.body = ByteBuffer.allocate((int) size);
+                ex.state = size == 0 ? DONE : LENGTH;
+            } else {
+                ex.body = ByteBuffer.allocate(BUFFER_SIZE);
+                ex.keepAlive = false;
+                ex.state = UNTIL_CLOSE;
+            }
+        }
+        
+        /**
+         * This method copies bytes from the buffer to the body.
+         */
+        private void copy(int count){
+            int limit = in.limit();
+            in.limit(in.position() + Math.min(count, exchange.body.remaining()));
+            exchange.body.put(in);
+            in.limit(limit);
+        }
+        
+        /**
+         * This method checks that a line of a chunked body is not longer than
+         * the buffer.
+         * 
+         * @return 'false', as no more of the buffer can be read.
+         */
+        private boolean checkLine() throws IOException{
+            if(in.remaining() == in.capacity()){
+                throw new IOException("Line too long in chunked body for URL: " + exchange.url);
+            }
+            return false;
+        }
+        
+        /**
+         * This method doubles the size of the buffer the headers are read
+         * into, up to the largest the headers may be.
+         */
+        private void growHeaders() throws IOException{
+            if(in.capacity() >= MAX_HEADERS){
+                throw new IOException("Response headers too large for URL: " + exchange.url);
+            }
+            ByteBuffer bigger = ByteBuffer.allocate(in.capacity() * 2);
+            bigger.put(in);
+            bigger.flip();
+            in = bigger;
+        }
+        
+        /**
+         * This method is called when the server closes the connection. This
+         * completes a body that is ended by closing the connection.
+         */
+        private void ended() throws IOException{
+            if(exchange.state == UNTIL_CLOSE){
+                exchange.state = DONE;
+                finish();
+            } else {
+                throw new IOException("Connection closed before the response was complete for URL: "
+                        + exchange.url);
+            }
+        }
+        
+        /**
+         * This method passes the completed response to its callback, and keeps
+         * the connection for the next request to the host if it can be used
+         * again.
+         */
+        private void finish(){
+            Exchange done = exchange;
+            exchange = null;
+            if(done.keepAlive && in.position() == 0){
+                used = true;
+                key.interestOps(SelectionKey.OP_READ);
+                idle.computeIfAbsent(host, name -> new ArrayDeque<>()).add(this);
+            } else {
+                close();
+            }
+            done.complete(null);
+        }
+        
+        /**
+         * This method closes the connection after an error. If nothing of the
+         * response had arrived on a connection that had been used before, the
+         * server may have closed it while it was idle, so the request is sent
+         * again once on a new connection.
+         */
+        void fail(IOException exc){
+            Exchange failed = exchange;
+            exchange = null;
+            close();
+            if(failed == null){return;}
+            if(used && !failed.started && !failed.retried){
+                failed.retry();
+                begin(failed);
+            } else {
+                failed.complete(exc);
+            }
+        }
+        
+        /**
+         * This method closes the connection and fails its exchange, without
+         * sending the request again, as the exchange took too long.
+         */
+        void abandon(IOException exc){
+            Exchange abandoned = exchange;
+            exchange = null;
+            close();
+            if(abandoned != null){abandoned.complete(exc);}
+        }
+        
+        /**
+         * This method closes the connection and forgets it.
+         */
+        void close(){
+            ArrayDeque<Connection> free = idle.get(host);
+            if(free != null){free.remove(this);}
+            key.cancel();
+            try {
+                channel.close();
+            } catch (IOException exc) {
+                errors.report(null, exc);
+            }
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,76 @@
+package crawler;
+
+import java.util.List;
+
+/**
+ * This is an interface defining a cache of the web pages fetched by the web
+ * crawler. For each URL it keeps the validators sent by the server, the ETag
+ * and Last-Modified headers, together with the hyperlinks found on the page.
+ * A later crawl can send the validators with its request and, if the server
+ * replies that the page has not been modified, use the cached hyperlinks
+ * instead of downloading and parsing the page again.
+ * 
+ * Implementations must be safe to use from several threads at once.
+ * 
+ * @author James Hill
+ */
+public interface PageCache {
+    
+    /**
+     * This method returns the cached copy of a web page and counts the
+     * lookup towards the hit rate.
+     * 
+     * @param url the address of the web page.
+     * @return the cached page, or a null if the page is not in the cache.
+     */
+    CachedPage get(String url);
+    
+    /**
+     * This method stores the validators and hyperlinks of a web page,
+     * replacing any copy already in the cache. If neither validator is given
+     * the page cannot be validated later, so any copy is removed instead.
+     * 
+     * @param url the address of the web page.
+     * @param eTag the ETag header sent with the page, or a null.
+     * @param lastModified the Last-Modified header sent with the page, or a null.
+     * @param links the hyperlinks found on the page.
+     */
+    void put(String url, String eTag, String lastModified, List<String> links);
+    
+    /**
+     * This method records that the server replied that a page returned by
+     * 'get()' has not been modified, so the cached copy was used.
+     * 
+     * @param url the address of the web page.
+     */
+    void recordHit(String url);
+    
+    /**
+     * This method returns the number of times 'get()' has been called.
+     * 
+     * @return the number of lookups.
+     */
+    int getLookups();
+    
+    /**
+     * This method returns the number of times a cached copy was used.
+     * 
+     * @return the number of hits.
+     */
+    int getHits();
+    
+    /**
+     * This method returns the share of lookups where the cached copy was used.
+     * 
+     * @return the hits divided by the lookups, or 0 if there were no lookups.
+     */
+    double getHitRate();
+    
+    /**
+     * This method sets where a failure to read or write the cache is
+     * reported. A page that cannot be read is treated as not cached.
+     * 
+     * @param errors the log errors are reported to.
+     */
+    void setErrorLog(ErrorLog errors);
+}
\ No newline at end of file
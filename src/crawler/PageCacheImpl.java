@@ -0,0 +1,302 @@
+package crawler;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This is an implementation of the PageCache interface that keeps each cached
+ * page in its own file in a directory, so that the cache is kept between
+ * sessions. The total size of the files is limited; when it is exceeded the
+ * pages that were least recently used are removed first. The order of use is
+ * kept in the modification times of the files so that it also survives
+ * between sessions.
+ * 
+ * @author James Hill
+ */
+public class PageCacheImpl implements PageCache {
+    
+    /**
+     * The total size of the cached files used by the basic constructor.
+     */
+    public static final long DEFAULT_MAX_SIZE = 64L * 1024 * 1024;
+    
+    // The ending of the name of each cached file.
+    private static final String SUFFIX = ".page";
+    
+    private final File directory;
+    private final long maxSize;
+    
+    /**
+     * The size of the file of each cached URL, in order from the least to the
+     * most recently used, and the total size of the files.
+     */
+    private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long size = 0;
+    
+    /**
+     * The counts used for the hit rate and the number of pages removed to
+     * keep the cache within its size.
+     */
+    private int lookups = 0;
+    private int hits = 0;
+    private int evictions = 0;
+    
+    /**
+     * Whether the pages already in the directory have been loaded, and the
+     * log errors are reported to.
+     */
+    private boolean opened = false;
+    private volatile ErrorLog errors = ErrorLogImpl.CONSOLE;
+    
+    /**
+     * This is the basic constructor for this class.
+     * 
+     * @param directory the directory the cached pages are kept in.
+     */
+    public PageCacheImpl(File directory){
+        this(directory, DEFAULT_MAX_SIZE);
+    }
+    
+    /**
+     * This constructor allows the total size of the cache to be set. Any
+     * pages already in the directory are loaded into the cache when it is
+     * first used, so that a failure to read them is reported to the log set
+     * by setErrorLog().
+     * 
+     * @param directory the directory the cached pages are kept in.
+     * @param maxSize the most bytes the cached files may take up.
+     */
+    public PageCacheImpl(File directory, long maxSize){
+        this.directory = directory;
+        this.maxSize = maxSize;
+    }
+    
+    @Override
+    public synchronized CachedPage get(String url){
+        open();
+        lookups++;
+        if(entries.get(url) == null){return null;}
+        File file = fileFor(url);
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(file)))) {
+            if(!in.readUTF().equals(url)){return null;}
+            String eTag = readOptional(in);
+            String lastModified = readOptional(in);
+            int count = in.readInt();
+            List<String> links = new ArrayList<>(count);
+            for(int i = 0; i < count; i++){
+                links.add(in.readUTF());
+            }
+            return new CachedPage(eTag, lastModified, links);
+        } catch (IOException exc) {
+            errors.report(null, exc);
+            remove(url);
+        }
+        return null;
+    }
+    
+    @Override
+    public synchronized void put(String url, String eTag, String lastModified, List<String> links){
+        open();
+        if(eTag == null && lastModified == null){
+            remove(url);
+            return;
+        }
+        File file = fileFor(url);
+        File temp = new File(directory, file.getName() + ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(new FileOutputStream(temp)))) {
+                out.writeUTF(url);
+                writeOptional(out, eTag);
+                writeOptional(out, lastModified);
+                out.writeInt(links.size());
+                for(String link : links){
+                    out.writeUTF(link);
+                }
+            }
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            Long old = entries.put(url, file.length());
+            size += file.length() - (old != null ? old : 0);
+            evict();
+        } catch (IOException exc) {
+            errors.report(null, exc);
+            temp.delete();
+        }
+    }
+    
+    @Override
+    public synchronized void recordHit(String url){
+        open();
+        hits++;
+        if(entries.get(url) != null){
+            fileFor(url).setLastModified(System.currentTimeMillis());
+        }
+    }
+    
+    @Override
+    public synchronized int getLookups(){
+        return lookups;
+    }
+    
+    @Override
+    public synchronized int getHits(){
+        return hits;
+    }
+    
+    @Override
+    public synchronized double getHitRate(){
+        return lookups > 0 ? (double) hits / lookups : 0;
+    }
+    
+    @Override
+    public void setErrorLog(ErrorLog errors){
+        this.errors = errors;
+    }
+    
+    /**
+     * This method returns the number of pages removed to keep the cache
+     * within its size.
+     * 
+     * @return the number of pages removed.
+     */
+    public synchronized int getEvictions(){
+        return evictions;
+    }
+    
+    /**
+     * This method returns the number of pages in the cache.
+     * 
+     * @return the number of cached pages.
+     */
+    public synchronized int getPageCount(){
+        open();
+        return entries.size();
+    }
+    
+    /**
+     * This method returns the total size of the cached files.
+     * 
+     * @return the size in bytes.
+     */
+    public synchronized long getSize(){
+        open();
+        return size;
+    }
+    
+    /**
+     * This private method creates the directory and loads the pages already
+     * in it the first time the cache is used.
+     */
+    private void open(){
+        if(opened){return;}
+        opened = true;
+        if(!directory.isDirectory() && !directory.mkdirs()){
+            errors.report(null, new IOException("cannot create " + directory));
+        }
+        load();
+    }
+    
+    /**
+     * This private method loads the pages already in the directory, in order
+     * of when they were last used. Files that cannot be read are deleted.
+     */
+    private void load(){
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(SUFFIX));
+        if(files == null){return;}
+        Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+        for(File file : files){
+            try (DataInputStream in = new DataInputStream(
+                    new BufferedInputStream(new FileInputStream(file)))) {
+                String url = in.readUTF();
+                if(fileFor(url).getName().equals(file.getName())){
+                    entries.put(url, file.length());
+                    size += file.length();
+                    continue;
+                }
+            } catch (IOException exc) {
+                errors.report(null, exc);
+            }
+            file.delete();
+        }
+        evict();
+    }
+    
+    /**
+     * This private method removes the least recently used pages until the
+     * cache is within its size.
+     */
+    private void evict(){
+        Iterator<Map.Entry<String, Long>> eldest = entries.entrySet().iterator();
+        while(size > maxSize && eldest.hasNext()){
+            Map.Entry<String, Long> entry = eldest.next();
+            fileFor(entry.getKey()).delete();
+            size -= entry.getValue();
+            eldest.remove();
+            evictions++;
+        }
+    }
+    
+    /**
+     * This private method removes a page from the cache.
+     */
+    private void remove(String url){
+        Long old = entries.remove(url);
+        if(old != null){
+            size -= old;
+            fileFor(url).delete();
+        }
+    }
+    
+    /**
+     * This private method returns the file a URL is cached in, which is named
+     * after the SHA-256 digest of the URL.
+     */
+    private File fileFor(String url){
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                    .digest(url.getBytes(StandardCharsets.UTF_8));
+            StringBuilder name = new StringBuilder(digest.length * 2 + SUFFIX.length());
+            for(byte b : digest){
+                name.append(Character.forDigit((b >> 4) & 0xF, 16))
+                        .append(Character.forDigit(b & 0xF, 16));
+            }
+            return new File(directory, name.append(SUFFIX).toString());
+        } catch (NoSuchAlgorithmException exc) {
+            throw new IllegalStateException(exc);
+        }
+    }
+    
+    /**
+     * This private method writes a string that may be a null.
+     */
+    private static void writeOptional(DataOutputStream out, String value) throws IOException{
+        out.writeBoolean(value != null);
+        if(value != null){out.writeUTF(value);}
+    }
+    
+    /**
+     * This private method reads a string written by writeOptional().
+     */
+    private static String readOptional(DataInputStream in) throws IOException{
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,25 @@
+package crawler;
+
+import java.io.IOException;
+import java.net.URL;
+
+/**
+ * This exception is thrown when a page is given up on because its body is
+ * larger than the most bytes the crawler will read of a page.
+ * 
+ * @author James Hill
+ */
+public class PageTooLargeException extends IOException {
+    
+    private static final long serialVersionUID = 1L;
+    
+    /**
+     * This is the basic constructor for this class.
+     * 
+     * @param maxBytes the most bytes that may be read of a page.
+     * @param url the page that was requested.
+     */
+    public PageTooLargeException(long maxBytes, URL url){
+        super("Page larger than " + maxBytes + " bytes for URL: " + url);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,43 @@
+package crawler;
+
+/**
+ * This class holds a hyperlink taken from the 'temporary' table together with
+ * the priority number it was written with, which is the depth of the web page
+ * away from the initial URL.
+ * 
+ * @author James Hill
+ */
+public class TempLink {
+    
+    private final String link;
+    private final int priority;
+    
+    /**
+     * This is the basic constructor for this class.
+     * 
+     * @param link the address of the web page.
+     * @param priority the priority number of the hyperlink.
+     */
+    public TempLink(String link, int priority){
+        this.link = link;
+        this.priority = priority;
+    }
+    
+    /**
+     * This method returns the hyperlink.
+     * 
+     * @return the address of the web page.
+     */
+    public String getLink(){
+        return link;
+    }
+    
+    /**
+     * This method returns the priority number of the hyperlink.
+     * 
+     * @return the priority number of the hyperlink.
+     */
+    public int getPriority(){
+        return priority;
+    }
+}
\ No newline at end of file
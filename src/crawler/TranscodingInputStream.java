@@ -0,0 +1,94 @@
+package crawler;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * This is an InputStream that decodes a page written in a character set
+ * whose tags are not written in ASCII, such as UTF-16, and returns it encoded
+ * as UTF-8, so that it can be searched for tags a byte at a time. The page is
+ * decoded and encoded in blocks rather than a character at a time.
+ * 
+ * @author James Hill
+ */
+class TranscodingInputStream extends InputStream {
+    
+    private static final int BUFFER_SIZE = 4096;
+    
+    private final Reader reader;
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    
+    /**
+     * The characters decoded that have not been encoded yet, and the bytes
+     * encoded that have not been read yet. A UTF-16 character is never more
+     * than three bytes of UTF-8, so all of the characters always fit.
+     */
+    private final CharBuffer chars = CharBuffer.allocate(BUFFER_SIZE);
+    private final ByteBuffer bytes = ByteBuffer.allocate(BUFFER_SIZE * 3);
+    private boolean ended = false;
+    
+    /**
+     * This is the basic constructor for this class.
+     * 
+     * @param in the stream of the page.
+     * @param charset the character set the page is written in.
+     */
+    TranscodingInputStream(InputStream in, Charset charset){
+        reader = new InputStreamReader(in, charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE));
+        bytes.flip();
+    }
+    
+    @Override
+    public int read() throws IOException{
+        byte[] b = new byte[1];
+        return read(b, 0, 1) < 0 ? -1 : b[0] & 0xff;
+    }
+    
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException{
+        if(len == 0){return 0;}
+        while(!bytes.hasRemaining()){
+            if(ended){return -1;}
+            fill();
+        }
+        int count = Math.min(len, bytes.remaining());
+        bytes.get(b, off, count);
+        return count;
+    }
+    
+    /**
+     * This private method decodes the next block of the page and encodes it
+     * as UTF-8.
+     */
+    private void fill() throws IOException{
+        int read = reader.read(chars.array(), chars.position(), chars.remaining());
+        if(read < 0){
+            ended = true;
+        } else {
+            chars.position(chars.position() + read);
+        }
+        chars.flip();
+        bytes.clear();
+        encoder.encode(chars, bytes, ended);
+        if(ended){encoder.flush(bytes);}
+        chars.compact();
+        bytes.flip();
+    }
+    
+    @Override
+    public void close() throws IOException{
+        reader.close();
+    }
+}
\ No newline at end of file
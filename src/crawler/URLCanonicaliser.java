@@ -0,0 +1,29 @@
+package crawler;
+
+import java.net.URL;
+
+/**
+ * This is an interface defining the rewriting of a URL into a canonical form,
+ * so that different addresses for the same web page, such as one with a
+ * fragment or with the default port written out, are crawled only once.
+ * 
+ * @author James Hill
+ */
+public interface URLCanonicaliser {
+    
+    /**
+     * This method returns the canonical form of a URL. Two URL's for the same
+     * web page should have the same canonical form.
+     * 
+     * @param url the URL found by the crawler.
+     * @return the canonical URL, or the URL given if it cannot be rewritten.
+     */
+    URL canonicalise(URL url);
+    
+    /**
+     * This method sets where a URL that cannot be rewritten is reported.
+     * 
+     * @param errors the log errors are reported to.
+     */
+    void setErrorLog(ErrorLog errors);
+}
\ No newline at end of file
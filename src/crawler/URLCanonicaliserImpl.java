@@ -0,0 +1,194 @@
+package crawler;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * This is an implementation of the URLCanonicaliser interface for 'http' and
+ * 'https' URL's, which follows the normalisations of RFC 3986 that do not
+ * change the page a URL points to:
+ * 
+ *   - the scheme and host are written in lower case.
+ *   - the default port for the scheme is removed.
+ *   - the fragment is removed, as it is never sent to the server.
+ *   - percent-encodings are written in upper case, and those of letters,
+ *     digits, '-', '.', '_' and '~' are decoded.
+ *   - '.' and '..' segments are removed from the path, and an empty path is
+ *     written as '/'.
+ *   - an empty query is removed.
+ * 
+ * The parameters of the query can also be sorted by name, and parameters
+ * used only to track where a visitor came from, such as 'utm_source' and
+ * 'gclid', can be removed. Few servers care about either, but some do, so
+ * both are optional. URL's with other schemes are returned unchanged.
+ * 
+ * @author James Hill
+ */
+public class URLCanonicaliserImpl implements URLCanonicaliser {
+    
+    // The names of the tracking parameters other than those starting 'utm_'.
+    private static final Set<String> TRACKING = new HashSet<>(Arrays.asList(
+            "gclid", "dclid", "fbclid", "msclkid", "yclid", "mc_cid", "mc_eid",
+            "_ga", "_hsenc", "_hsmi"));
+    
+    private final boolean sortQuery;
+    private final boolean stripTracking;
+    private volatile ErrorLog errors = ErrorLogImpl.CONSOLE;
+    
+    /**
+     * This is the basic constructor for this class, which leaves the query
+     * parameters in the order they are found.
+     */
+    public URLCanonicaliserImpl(){
+        this(false, false);
+    }
+    
+    /**
+     * This constructor allows the query parameters to be sorted and tracking
+     * parameters to be removed.
+     * 
+     * @param sortQuery 'true' to sort the query parameters by name.
+     * @param stripTracking 'true' to remove tracking parameters.
+     */
+    public URLCanonicaliserImpl(boolean sortQuery, boolean stripTracking){
+        this.sortQuery = sortQuery;
+        this.stripTracking = stripTracking;
+    }
+    
+    @Override
+    public URL canonicalise(URL url){
+        String scheme = url.getProtocol().toLowerCase(Locale.ROOT);
+        if(!scheme.equals("http") && !scheme.equals("https")){return url;}
+        StringBuilder canonical = new StringBuilder(url.toString().length());
+        canonical.append(scheme).append("://");
+        if(url.getUserInfo() != null){
+            canonical.append(url.getUserInfo()).append('@');
+        }
+        canonical.append(url.getHost().toLowerCase(Locale.ROOT));
+        if(url.getPort() != -1 && url.getPort() != url.getDefaultPort()){
+            canonical.append(':').append(url.getPort());
+        }
+        canonical.append(removeDotSegments(decodeEscapes(url.getPath())));
+        String query = url.getQuery() != null ? canonicalQuery(decodeEscapes(url.getQuery())) : "";
+        if(!query.isEmpty()){
+            canonical.append('?').append(query);
+        }
+        try {
+            return new URL(canonical.toString());
+        } catch (MalformedURLException exc) {
+            errors.report(url.toString(), exc);
+        }
+        return url;
+    }
+    
+    @Override
+    public void setErrorLog(ErrorLog errors){
+        this.errors = errors;
+    }
+    
+    /**
+     * This private method removes tracking parameters from a query and sorts
+     * the rest by name, if either has been asked for. Parameters with the
+     * same name are kept in the order they were found.
+     */
+    private String canonicalQuery(String query){
+        if(!sortQuery && !stripTracking){return query;}
+        List<String> parameters = new ArrayList<>();
+        for(String parameter : query.split("&")){
+            if(parameter.isEmpty()){continue;}
+            if(stripTracking && isTracking(name(parameter))){continue;}
+            parameters.add(parameter);
+        }
+        if(sortQuery){
+            parameters.sort(Comparator.comparing(URLCanonicaliserImpl::name));
+        }
+        return String.join("&", parameters);
+    }
+    
+    /**
+     * This private method checks whether a query parameter is only used to
+     * track where a visitor came from.
+     */
+    private static boolean isTracking(String name){
+        String lower = name.toLowerCase(Locale.ROOT);
+        return lower.startsWith("utm_") || TRACKING.contains(lower);
+    }
+    
+    /**
+     * This private method returns the name of a query parameter.
+     */
+    private static String name(String parameter){
+        int equals = parameter.indexOf('=');
+        return equals >= 0 ? parameter.substring(0, equals) : parameter;
+    }
+    
+    /**
+     * This private method writes each percent-encoding in upper case, or as
+     * the character itself if it is a letter, digit, '-', '.', '_' or '~'.
+     */
+    private static String decodeEscapes(String text){
+        if(text.indexOf('%') < 0){return text;}
+        StringBuilder decoded = new StringBuilder(text.length());
+        for(int i = 0; i < text.length(); i++){
+            char c = text.charAt(i);
+            int high = i + 2 < text.length() ? Character.digit(text.charAt(i + 1), 16) : -1;
+            int low = high >= 0 ? Character.digit(text.charAt(i + 2), 16) : -1;
+            if(c != '%' || low < 0){
+                decoded.append(c);
+                continue;
+            }
+            char escaped = (char) (high * 16 + low);
+            if(isUnreserved(escaped)){
+                decoded.append(escaped);
+            } else {
+                decoded.append('%').append(Character.toUpperCase(text.charAt(i + 1)))
+                        .append(Character.toUpperCase(text.charAt(i + 2)));
+            }
+            i += 2;
+        }
+        return decoded.toString();
+    }
+    
+    /**
+     * This private method checks whether a character never needs to be
+     * percent-encoded.
+     */
+    private static boolean isUnreserved(char c){
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+                || c == '-' || c == '.' || c == '_' || c == '~';
+    }
+    
+    /**
+     * This private method removes the '.' and '..' segments from a path, as
+     * described in section 5.2.4 of RFC 3986.
+     */
+    private static String removeDotSegments(String path){
+        if(!path.startsWith("/")){return "/" + path;}
+        if(!path.contains("/.")){return path;}
+        List<String> kept = new ArrayList<>();
+        String[] segments = path.split("/", -1);
+        boolean directory = false;
+        for(int i = 1; i < segments.length; i++){
+            String segment = segments[i];
+            directory = segment.equals(".") || segment.equals("..");
+            if(segment.equals("..")){
+                if(!kept.isEmpty()){kept.remove(kept.size() - 1);}
+            } else if(!segment.equals(".")){
+                kept.add(segment);
+            }
+        }
+        StringBuilder resolved = new StringBuilder(path.length());
+        for(String segment : kept){
+            resolved.append('/').append(segment);
+        }
+        if(directory || resolved.length() == 0){resolved.append('/');}
+        return resolved.toString();
+    }
+}
\ No newline at end of file
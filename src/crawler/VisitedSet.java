@@ -0,0 +1,38 @@
+package crawler;
+
+/**
+ * This is an interface defining a set of the hyperlinks the web crawler has
+ * already seen, used to find duplicates without searching the tables of a
+ * LinkDB. Hyperlinks can be added but never removed.
+ * 
+ * Implementations may keep only a fingerprint of each hyperlink rather than
+ * the hyperlink itself, in which case two different hyperlinks may very
+ * rarely be taken for the same one.
+ * 
+ * @author James Hill
+ */
+public interface VisitedSet {
+    
+    /**
+     * This method adds a hyperlink to the set.
+     * 
+     * @param hyperlink the hyperlink to add.
+     * @return 'true' if the hyperlink was not already in the set.
+     */
+    boolean add(String hyperlink);
+    
+    /**
+     * This method checks whether a hyperlink is in the set.
+     * 
+     * @param hyperlink the hyperlink to look for.
+     * @return 'true' if the hyperlink is in the set.
+     */
+    boolean contains(String hyperlink);
+    
+    /**
+     * This method returns the number of hyperlinks in the set.
+     * 
+     * @return the number of hyperlinks.
+     */
+    long size();
+}
\ No newline at end of file
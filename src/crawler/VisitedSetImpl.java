@@ -0,0 +1,226 @@
+package crawler;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+
+/**
+ * This is an implementation of the VisitedSet interface that keeps a 64 bit
+ * fingerprint of each hyperlink in open addressing hash tables held outside
+ * the Java heap, so once the set has grown each hyperlink takes between 11 and
+ * 22 bytes however long it is, and the set adds nothing for the garbage
+ * collector to trace. With a hundred million hyperlinks the chance of any two
+ * sharing a fingerprint is about one in four thousand.
+ * 
+ * The fingerprints are split between sixteen tables by their top bits, and
+ * each table is doubled in size on its own once it is three quarters full.
+ * 
+ * A Bloom filter can also be kept in front of the tables. It takes about 1.25
+ * bytes for each hyperlink expected and, because it is much smaller than the
+ * tables, answers most lookups for new hyperlinks from the processor's cache.
+ * Each lookup reads a single 64 bit word of the filter. Once more hyperlinks
+ * than expected have been added, more lookups pass through to the tables.
+ * 
+ * @author James Hill
+ */
+public class VisitedSetImpl implements VisitedSet {
+    
+    // The number of tables is 1 << SEGMENT_BITS.
+    private static final int SEGMENT_BITS = 4;
+    
+    // The smallest and largest number of fingerprints a single table can hold.
+    private static final int MIN_SLOTS = 64;
+    private static final int MAX_SLOTS = 1 << 27;
+    
+    // The number of bits of the Bloom filter for each hyperlink expected.
+    private static final int BLOOM_BITS = 10;
+    
+    // The number of bits set in the Bloom filter for each hyperlink.
+    private static final int BLOOM_HASHES = 6;
+    
+    private final LongBuffer[] tables = new LongBuffer[1 << SEGMENT_BITS];
+    private final int[] counts = new int[1 << SEGMENT_BITS];
+    private final LongBuffer bloom;
+    private long size = 0;
+    
+    /**
+     * This is the basic constructor for this class, which starts small and
+     * keeps no Bloom filter.
+     */
+    public VisitedSetImpl(){
+        this(0, false);
+    }
+    
+    /**
+     * This constructor sizes the tables for the number of hyperlinks expected
+     * so that they do not have to grow, and can keep a Bloom filter.
+     * 
+     * @param expected the number of hyperlinks expected.
+     * @param bloomFilter 'true' to keep a Bloom filter in front of the tables.
+     */
+    public VisitedSetImpl(long expected, boolean bloomFilter){
+        long perTable = expected / tables.length * 4 / 3 + 1;
+        int slots = MIN_SLOTS;
+        while(slots < perTable && slots < MAX_SLOTS){
+            slots <<= 1;
+        }
+        for(int i = 0; i < tables.length; i++){
+            tables[i] = allocate(slots);
+        }
+        if(bloomFilter){
+            long words = 1;
+            while(words * 64 < Math.max(expected, 1) * BLOOM_BITS){
+                words <<= 1;
+            }
+            bloom = allocate((int) Math.min(words, MAX_SLOTS));
+        } else {
+            bloom = null;
+        }
+    }
+    
+    @Override
+    public synchronized boolean add(String link){
+        long print = fingerprint(link);
+        if(bloom != null){
+            int word = bloomWord(print);
+            long bits = bloomBits(print);
+            long old = bloom.get(word);
+            bloom.put(word, old | bits);
+            
+            // A hyperlink whose bits were not all set cannot be in the tables.
+            if((old & bits) != bits){
+                insert(print);
+                return true;
+            }
+        }
+        if(find(print)){return false;}
+        insert(print);
+        return true;
+    }
+    
+    @Override
+    public synchronized boolean contains(String link){
+        long print = fingerprint(link);
+        if(bloom != null){
+            long bits = bloomBits(print);
+            if((bloom.get(bloomWord(print)) & bits) != bits){return false;}
+        }
+        return find(print);
+    }
+    
+    @Override
+    public synchronized long size(){
+        return size;
+    }
+    
+    /**
+     * This method returns the number of bytes held outside the heap by the
+     * tables and the Bloom filter.
+     * 
+     * @return the number of bytes used.
+     */
+    public synchronized long getMemoryUsed(){
+        long bytes = bloom != null ? bloom.capacity() * 8L : 0;
+        for(LongBuffer table : tables){
+            bytes += table.capacity() * 8L;
+        }
+        return bytes;
+    }
+    
+    /**
+     * This private method checks whether a fingerprint is in its table.
+     */
+    private boolean find(long print){
+        int segment = (int) (print >>> (64 - SEGMENT_BITS));
+        LongBuffer table = tables[segment];
+        int mask = table.capacity() - 1;
+        for(int slot = (int) print & mask; ; slot = (slot + 1) & mask){
+            long found = table.get(slot);
+            if(found == print){return true;}
+            if(found == 0){return false;}
+        }
+    }
+    
+    /**
+     * This private method adds a fingerprint that is not in its table,
+     * doubling the size of the table first if it is three quarters full.
+     */
+    private void insert(long print){
+        int segment = (int) (print >>> (64 - SEGMENT_BITS));
+        LongBuffer table = tables[segment];
+        if((counts[segment] + 1) * 4L > table.capacity() * 3L){
+            if(table.capacity() >= MAX_SLOTS){
+                throw new IllegalStateException("The visited set is full.");
+            }
+            LongBuffer larger = allocate(table.capacity() * 2);
+            for(int i = 0; i < table.capacity(); i++){
+                long old = table.get(i);
+                if(old != 0){place(larger, old);}
+            }
+            tables[segment] = larger;
+            table = larger;
+        }
+        place(table, print);
+        counts[segment]++;
+        size++;
+    }
+    
+    /**
+     * This private method writes a fingerprint into the first empty slot
+     * from its position in a table.
+     */
+    private static void place(LongBuffer table, long print){
+        int mask = table.capacity() - 1;
+        int slot = (int) print & mask;
+        while(table.get(slot) != 0){
+            slot = (slot + 1) & mask;
+        }
+        table.put(slot, print);
+    }
+    
+    /**
+     * This private method returns the word of the Bloom filter that holds the
+     * bits of a fingerprint, taken from above the bits used by bloomBits().
+     */
+    private int bloomWord(long print){
+        return (int) (print >>> (BLOOM_HASHES * 6)) & (bloom.capacity() - 1);
+    }
+    
+    /**
+     * This private method returns the bits of a fingerprint in its word of
+     * the Bloom filter, taking six bits of the fingerprint for each.
+     */
+    private static long bloomBits(long print){
+        long bits = 0;
+        for(int i = 0; i < BLOOM_HASHES; i++){
+            bits |= 1L << (print >>> (i * 6));
+        }
+        return bits;
+    }
+    
+    /**
+     * This private method allocates a table of longs outside the heap.
+     */
+    private static LongBuffer allocate(int longs){
+        return ByteBuffer.allocateDirect(longs * 8).order(ByteOrder.nativeOrder()).asLongBuffer();
+    }
+    
+    /**
+     * This private method returns the 64 bit fingerprint of a hyperlink: the
+     * FNV-1a hash of its characters, mixed so that every bit depends on every
+     * character. A fingerprint is never 0, which marks an empty slot.
+     */
+    private static long fingerprint(String link){
+        long hash = 0xcbf29ce484222325L;
+        for(int i = 0; i < link.length(); i++){
+            hash ^= link.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash != 0 ? hash : 1;
+    }
+}
\ No newline at end of file
@@ -2,6 +2,7 @@ package crawler;
 
 import java.sql.Connection;
 import java.util.LinkedList;
+import java.util.function.Consumer;
 
 /**
  * The web crawler is a class that constructs a database of URL links.  Having
@@ -27,4 +28,40 @@ public interface WebCrawler {
      * @param conn the connection that will be used to build the database.
      */
     LinkedList<String> crawl(String startURL, Connection conn);
+    
+    /**
+     * This crawl method works in the same way as the method above but records
+     * the progress of the crawl in the LinkDB object provided, which does not
+     * need to be backed by a database connection.
+     * 
+     * @return a LinkedList of all links found by the WebCrawler.
+     * @param startURL the URL from which the WebCrawler will start crawling.
+     * @param dataBase the object that will store the links and results.
+     */
+    LinkedList<String> crawl(String startURL, LinkDB dataBase);
+    
+    /**
+     * This crawl method works in the same way as the methods above but passes
+     * each result to the consumer as soon as it has been written to the
+     * results table, instead of returning every result once the crawl has
+     * finished.
+     * 
+     * @return the number of results found, or -1 if the crawl could not start.
+     * @param startURL the URL from which the WebCrawler will start crawling.
+     * @param dataBase the object that will store the links and results.
+     * @param consumer the consumer that each result is passed to.
+     */
+    int crawl(String startURL, LinkDB dataBase, Consumer<String> consumer);
+    
+    /**
+     * This method resumes a crawl that was stopped part way through, using
+     * the links and results already recorded in the LinkDB object provided.
+     * Links that were being processed when the crawl stopped are processed
+     * again, and each new result is passed to the consumer as it is written.
+     * 
+     * @return the number of new results found, or -1 if the crawl could not start.
+     * @param dataBase the object holding the links and results of the crawl.
+     * @param consumer the consumer that each result is passed to.
+     */
+    int resume(LinkDB dataBase, Consumer<String> consumer);
 }
\ No newline at end of file
@@ -2,11 +2,32 @@ package crawler;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.PrintStream;
+import java.lang.reflect.Method;
+import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
+import java.net.SocketTimeoutException;
 import java.net.URL;
+import java.net.URLConnection;
+import java.nio.ByteBuffer;
 import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
 
 /**
  * This is an abstract implementation of the WebCrawler class.  It provides a
@@ -16,10 +37,54 @@ import java.util.List;
  * This is to allow for different implementations of the 'search()' method that
  * can still be consistently called by the 'crawl()' method.
  * 
+ * If more than one thread is requested the pages are fetched and parsed by a
+ * pool of worker threads which also call 'search()', so implementations of
+ * 'search()' must be safe to call from several threads at once. The database
+ * is only ever used by the thread that called 'crawl()'.
+ * 
+ * The number of pages fetched from one host at once and the delay between
+ * starting pages from the same host can also be limited. Each page is read
+ * to the end and closed, so that the connection can be kept alive and used
+ * again for the next page from the same host.
+ * 
+ * Pages can instead be fetched on non-blocking connections that are all
+ * served by a single NioFetcher thread. The calling thread then parses each
+ * page once it has been read and calls 'search()' itself.
+ * 
+ * So that a slow or endless page cannot hold up the crawl, each page is given
+ * a time to connect, a time to wait for each read, a time to fetch the whole
+ * page and a most bytes to read, after which it is abandoned. The links found
+ * before a page is abandoned are still crawled.
+ * 
+ * Errors are reported to an ErrorLogImpl, which counts them by category in
+ * the metrics, keeps the latest error of each page and writes them to
+ * System.err on a thread of its own, so that no thread of the crawl ever
+ * waits for an error to be written. The same log is given to the parser,
+ * the database and the NioFetcher used by each crawl.
+ * 
  * @author James Hill
  */
 public abstract class WebCrawlerImpl implements WebCrawler {
     
+    /**
+     * The most links found on a page that are passed on together while the
+     * page is still being read.
+     */
+    private static final int LINK_BATCH = 32;
+    
+    /**
+     * The most redirects followed for a page fetched on a non-blocking
+     * connection, which is the same as for an HttpURLConnection.
+     */
+    private static final int MAX_REDIRECTS = 20;
+    
+    /**
+     * The thread that closes the connection of a page that has not been
+     * read in time, so that a read waiting on it stops. This is shared by
+     * every crawler, and its thread is only started when first needed.
+     */
+    private static final ScheduledThreadPoolExecutor DEADLINES = createDeadlines();
+    
     /**
      * The maximum number of links that will be searched by the 'crawl' method.
      */
@@ -39,12 +104,136 @@ public abstract class WebCrawlerImpl implements WebCrawler {
     private int linksProcessed = 0;
     
     /**
-     * This priority queue number is assigned to links on the temporary table.
-     * The links will be given a priority number that reflects the depth of the
-     * web page away from the initial URL provided to the class.
+     * This priority queue number is assigned to the initial URL on the
+     * temporary table. The links found on a web page are given the priority
+     * number of that page plus one, so that the priority number reflects the
+     * depth of the web page away from the initial URL provided to the class.
      */
     private int priority = 1;
     
+    /**
+     * The number of pages processed between each checkpoint of the database,
+     * and the number processed since the last checkpoint.
+     */
+    private int checkpointInterval = 1000;
+    private int sinceCheckpoint = 0;
+    
+    /**
+     * The number of worker threads that fetch and parse pages at the same
+     * time. A single thread crawls the pages one at a time in the calling
+     * thread.
+     */
+    private int threads = 1;
+    
+    /**
+     * This records whether each page should be fetched on its own virtual
+     * thread rather than by a fixed pool of worker threads.
+     */
+    private boolean virtualThreads = false;
+    
+    /**
+     * This records whether pages are fetched on non-blocking connections
+     * served by a single selector thread rather than by worker threads.
+     */
+    private boolean nonBlocking = false;
+    
+    /**
+     * This records whether pages are requested compressed with gzip or
+     * deflate.
+     */
+    private boolean compression = true;
+    
+    /**
+     * The milliseconds allowed to open a connection, to wait for each read
+     * and to fetch the whole of a page, and the most bytes read of a page
+     * once decompressed. A limit of 0 is no limit.
+     */
+    private int connectTimeout = 10000;
+    private int readTimeout = 30000;
+    private long pageTimeout = 60000;
+    private long maxPageBytes = 10 * 1024 * 1024;
+    
+    /**
+     * This records the number of results written during the current crawl
+     * and the consumer, if any, that each result is passed to when written.
+     */
+    private int resultsFound = 0;
+    private Consumer<String> resultConsumer;
+    
+    /**
+     * The metrics of the current crawl, and the time it started. The
+     * metrics that are recorded for every page are kept here so that they
+     * are only looked up once.
+     */
+    private final MetricsRegistry metrics = new MetricsRegistry();
+    private volatile long crawlStart = System.nanoTime();
+    
+    /**
+     * These record the number of pages fetched, bytes read and bytes of
+     * pages once decompressed during the current crawl. They are updated by
+     * the worker threads.
+     */
+    private final LongAdder pagesFetched = metrics.counter("pages.fetched");
+    private final LongAdder bytesRead = metrics.counter("bytes.read");
+    private final LongAdder bytesDecoded = metrics.counter("bytes.decoded");
+    
+    /**
+     * This records the number of pages fetched during the current crawl that
+     * had no bytes available when the stream was opened. Earlier versions of
+     * the crawler skipped these pages.
+     */
+    private final LongAdder pagesNotReady = metrics.counter("pages.notReady");
+    
+    /**
+     * This records the number of pages abandoned during the current crawl
+     * because they took too long or were too large.
+     */
+    private final LongAdder pagesAbandoned = metrics.counter("pages.abandoned");
+    
+    /**
+     * These record the microseconds from sending each request to receiving
+     * the response headers, or the whole response for a non-blocking fetch,
+     * the microseconds taken to read and parse each page, and the number of
+     * hyperlinks found on each page.
+     */
+    private final Histogram fetchLatency = metrics.histogram("fetch.latency.us");
+    private final Histogram pageRead = metrics.histogram("page.read.us");
+    private final Histogram pageLinks = metrics.histogram("page.links");
+    
+    /**
+     * The log the errors of the crawl are reported to.
+     */
+    private ErrorLogImpl errors = new ErrorLogImpl(metrics, System.err);
+    
+    /**
+     * The most pages fetched from a single host at once, or 0 for no limit,
+     * and the milliseconds between starting pages from the same host.
+     */
+    private int maxPerHost = 0;
+    private long hostDelay = 0;
+    
+    /**
+     * The pages fetched from each host during the current crawl.
+     */
+    private final Map<String, HostStats> hostStats = new ConcurrentHashMap<>();
+    
+    /**
+     * The cache of pages from earlier crawls, or a null if pages are not
+     * cached, and the number of pages taken from the cache during the
+     * current crawl.
+     */
+    private PageCache pageCache;
+    private final LongAdder pagesFromCache = metrics.counter("pages.fromCache");
+    
+    /**
+     * The object that rewrites each URL found into its canonical form before
+     * it is checked for duplicates, or a null to keep the URL's as found.
+     */
+    private URLCanonicaliser canonicaliser = new URLCanonicaliserImpl();
+    {
+        canonicaliser.setErrorLog(errors);
+    }
+    
     /**
      * This is the basic constructor without parameters for the WebCrawler.
      * This is used when the programmer wishes to use the default values for
@@ -66,55 +255,312 @@ public abstract class WebCrawlerImpl implements WebCrawler {
         }
     }
     
+    /**
+     * This constructor also allows the number of worker threads used to fetch
+     * and parse pages to be set.
+     * 
+     * @param maxLinks the maximum number of links to be processed.
+     * @param maxDepth the maximum depth of web pages to be processed.
+     * @param threads the number of pages that can be fetched at once.
+     */
+    public WebCrawlerImpl(Integer maxLinks, Integer maxDepth, Integer threads){
+        this(maxLinks, maxDepth);
+        if(threads != null && threads > 0){
+            this.threads = threads;
+        }
+    }
+    
+    /**
+     * This method sets whether each page is fetched on its own virtual thread
+     * instead of by a fixed pool of worker threads. The number of threads set
+     * for the crawler then limits how many pages can be fetched at once. If
+     * the Java runtime does not provide virtual threads a new platform thread
+     * is used for each page instead.
+     * 
+     * @param virtualThreads 'true' to fetch each page on a virtual thread.
+     */
+    public void setVirtualThreads(boolean virtualThreads){
+        this.virtualThreads = virtualThreads;
+    }
+    
+    /**
+     * This method sets whether pages are fetched on non-blocking connections
+     * that are all served by a single selector thread, instead of each page
+     * being fetched by a thread of its own. The number of threads set for the
+     * crawler then limits how many pages can be fetched at once, so it can be
+     * set much higher. Pages that do not use 'http' are still fetched with a
+     * URLConnection.
+     * 
+     * @param nonBlocking 'true' to fetch pages on non-blocking connections.
+     */
+    public void setNonBlocking(boolean nonBlocking){
+        this.nonBlocking = nonBlocking;
+    }
+    
+    /**
+     * This method sets whether pages are requested compressed with gzip or
+     * deflate. A compressed page is inflated as it is read, so hyperlinks are
+     * still found before the rest of the page has arrived. Compression is
+     * used by default.
+     * 
+     * @param compression 'true' to request compressed pages.
+     */
+    public void setCompression(boolean compression){
+        this.compression = compression;
+    }
+    
+    /**
+     * This method sets the time allowed to open a connection to a host. The
+     * default is 10 seconds.
+     * 
+     * @param connectTimeout the time in milliseconds, 0 for no limit.
+     */
+    public void setConnectTimeout(int connectTimeout){
+        this.connectTimeout = Math.max(connectTimeout, 0);
+    }
+    
+    /**
+     * This method sets the time allowed to wait for each read of a page, so
+     * that a host that stops sending is given up on. The default is 30
+     * seconds.
+     * 
+     * @param readTimeout the time in milliseconds, 0 for no limit.
+     */
+    public void setReadTimeout(int readTimeout){
+        this.readTimeout = Math.max(readTimeout, 0);
+    }
+    
+    /**
+     * This method sets the time allowed to fetch the whole of a page, from
+     * sending the request to reading the last byte, so that a host that
+     * sends a page a few bytes at a time cannot hold up the crawl. The
+     * default is 60 seconds.
+     * 
+     * @param pageTimeout the time in milliseconds, 0 for no limit.
+     */
+    public void setPageTimeout(long pageTimeout){
+        this.pageTimeout = Math.max(pageTimeout, 0);
+    }
+    
+    /**
+     * This method sets the most bytes read of a page once it has been
+     * decompressed. A page with more is abandoned once the limit has been
+     * read. The default is 10 megabytes.
+     * 
+     * @param maxPageBytes the most bytes, 0 for no limit.
+     */
+    public void setMaxPageBytes(long maxPageBytes){
+        this.maxPageBytes = Math.max(maxPageBytes, 0);
+    }
+    
+    /**
+     * This method sets the most pages that can be fetched from a single host
+     * at once. The number of threads set for the crawler still limits the
+     * number of pages fetched from all hosts at once.
+     * 
+     * @param maxPerHost the most pages from one host at once, 0 for no limit.
+     */
+    public void setMaxPerHost(int maxPerHost){
+        this.maxPerHost = Math.max(maxPerHost, 0);
+    }
+    
+    /**
+     * This method sets the time to wait between starting pages from the same
+     * host.
+     * 
+     * @param hostDelay the delay in milliseconds, 0 for no delay.
+     */
+    public void setHostDelay(long hostDelay){
+        this.hostDelay = Math.max(hostDelay, 0);
+    }
+    
+    /**
+     * This method sets the cache used to avoid downloading pages again that
+     * have not changed since an earlier crawl. Each page in the cache is
+     * requested with its ETag and Last-Modified date, and if the server
+     * replies that it has not been modified the cached hyperlinks are used.
+     * 
+     * @param pageCache the cache of pages, or a null to not cache pages.
+     */
+    public void setPageCache(PageCache pageCache){
+        this.pageCache = pageCache;
+        if(pageCache != null){pageCache.setErrorLog(errors);}
+    }
+    
+    /**
+     * This method sets the object that rewrites the start URL and each URL
+     * found into its canonical form before it is checked for duplicates, so
+     * that different addresses for the same page are only crawled once. By
+     * default a URLCanonicaliserImpl that keeps the query as found is used.
+     * 
+     * @param canonicaliser the object used, or a null to keep URL's as found.
+     */
+    public void setCanonicaliser(URLCanonicaliser canonicaliser){
+        this.canonicaliser = canonicaliser;
+        if(canonicaliser != null){canonicaliser.setErrorLog(errors);}
+    }
+    
+    /**
+     * This method sets the stream the errors of the crawler are written to,
+     * which is System.err by default. The errors are written by a thread of
+     * their own, so the crawl never waits for the stream; if it falls too far
+     * behind, errors are counted but not written. This should be set before
+     * a crawl starts.
+     * 
+     * @param log the stream errors are written to, or a null to not write them.
+     */
+    public void setErrorOutput(PrintStream log){
+        errors.close();
+        errors = new ErrorLogImpl(metrics, log);
+        if(pageCache != null){pageCache.setErrorLog(errors);}
+        if(canonicaliser != null){canonicaliser.setErrorLog(errors);}
+    }
+    
+    /**
+     * This method returns the log the errors of the most recent crawl were
+     * reported to, which counts them by category and keeps the latest error
+     * of each page that failed.
+     * 
+     * @return the log of errors.
+     */
+    public ErrorLogImpl getErrorLog(){
+        return errors;
+    }
+    
+    /**
+     * This method returns the number of pages during the most recent crawl
+     * that had not been modified, so their hyperlinks were taken from the
+     * cache. These pages are also counted by getPagesFetched().
+     * 
+     * @return the number of pages taken from the cache.
+     */
+    public int getPagesFromCache(){
+        return (int) pagesFromCache.sum();
+    }
+    
+    /**
+     * This method returns the pages fetched from each host during the most
+     * recent crawl, in order of the host and port.
+     * 
+     * @return the statistics of each host.
+     */
+    public Map<String, HostStats> getHostStats(){
+        return new TreeMap<>(hostStats);
+    }
+    
+    /**
+     * This method returns the number of pages fetched and parsed during the
+     * most recent crawl.
+     * 
+     * @return the number of pages fetched.
+     */
+    public int getPagesFetched(){
+        return (int) pagesFetched.sum();
+    }
+    
+    /**
+     * This method returns the number of bytes read from web pages during the
+     * most recent crawl, as they were sent, so compressed pages are counted
+     * by their compressed size.
+     * 
+     * @return the number of bytes read.
+     */
+    public long getBytesRead(){
+        return bytesRead.sum();
+    }
+    
+    /**
+     * This method returns the number of bytes of the web pages read during
+     * the most recent crawl once they had been decompressed. This is the same
+     * as getBytesRead() if no pages were compressed.
+     * 
+     * @return the number of bytes decoded.
+     */
+    public long getBytesDecoded(){
+        return bytesDecoded.sum();
+    }
+    
+    /**
+     * This method returns the number of pages fetched during the most recent
+     * crawl that had no bytes ready to be read when the stream was opened.
+     * These pages are now read to the end of the stream like any other page,
+     * but earlier versions of the crawler skipped them.
+     * 
+     * @return the number of pages that were not ready when opened.
+     */
+    public int getPagesNotReady(){
+        return (int) pagesNotReady.sum();
+    }
+    
+    /**
+     * This method returns the number of pages abandoned during the most
+     * recent crawl because they took longer than the time allowed or were
+     * larger than the most bytes read of a page.
+     * 
+     * @return the number of pages abandoned.
+     */
+    public int getPagesAbandoned(){
+        return (int) pagesAbandoned.sum();
+    }
+    
+    /**
+     * This method returns the metrics of the most recent crawl, which are
+     * updated while the crawl runs. Besides the counts of pages and bytes
+     * these include the latencies of fetching and reading pages and of each
+     * database call, in microseconds, the hyperlinks found on each page, the
+     * pages fetched per second, the size of the frontier and the number of
+     * errors of each category.
+     * 
+     * @return the metrics of the crawler.
+     */
+    public MetricsRegistry getMetrics(){
+        return metrics;
+    }
+    
     @Override
     final public LinkedList<String> crawl(String startURL, Connection conn){
-        // Setup all required variables and objects.
-        LinkDB dataBase = new LinkDBImpl(conn);
-        InputStream input;
-        HyperlinkListBuilder builder;
-        List<URL> linkList = null;
-        String URLstring = startURL;
-        URL tempURL = null;
-        
+        return crawl(startURL, new LinkDBImpl(conn));
+    }
+    
+    @Override
+    final public LinkedList<String> crawl(String startURL, LinkDB dataBase){
+        if(crawl(startURL, dataBase, null) < 0){return null;}
+        return dataBase.returnResults();
+    }
+    
+    @Override
+    final public int crawl(String startURL, LinkDB dataBase, Consumer<String> consumer){
         // Try creating a URL object from the startURL.
         try {
-            tempURL = new URL(URLstring);
-            dataBase.writeTemp(priority, tempURL.toString());
-            
-            // Loop through the links.
-            do{
-                if(dataBase.checkExistsTemp(tempURL.toString())
-                        && dataBase.getPriority(tempURL.toString()) > 0){
-                    try {
-                        input = tempURL.openStream();
-                        if(input.available() > 0){
-                            builder = new HyperlinkListBuilderImpl();
-                            linkList = builder.createList(tempURL.toString(), input);
-                            writeToTemp(linkList, dataBase);
-                            if(search(tempURL)){writeToResults(dataBase, tempURL.toString());}
-                        }
-                        input.close();
-                    } catch (IOException exc) {
-                        System.err.println("Error processing stream: " + exc);
-                    }
-                }
-
-                // Prepare for next loop.
-                dataBase.linkVisited(tempURL.toString());
-                URLstring = dataBase.getNextURL();
-                priority = dataBase.getNextPriority();
-                linksProcessed++;
-
-                // Try creating a URL object from the startURL.
-                try {tempURL = new URL(URLstring);} catch (MalformedURLException exc)
-                    {System.err.println("Error processing stream: " + exc);}
-            } while(priority <= maxDepth && linksProcessed <= maxLinks);
-
-            return dataBase.returnResults();
+            URL tempURL = canonical(new URL(startURL));
+            reset(consumer);
+            LinkDB db = meter(dataBase);
+            db.writeTemp(priority, tempURL.toString());
+            return crawlLinks(db);
         } catch (MalformedURLException exc) {
-            System.err.println("Error processing stream: " + exc);
+            error(startURL, exc);
         }
-        return null;
+        return -1;
+    }
+    
+    @Override
+    final public int resume(LinkDB dataBase, Consumer<String> consumer){
+        reset(consumer);
+        LinkDB db = meter(dataBase);
+        db.requeueInProgress();
+        return crawlLinks(db);
+    }
+    
+    /**
+     * This method sets the number of pages processed between each checkpoint
+     * of the database, so that less work is lost and a resumed crawl can
+     * start sooner if the crawler is stopped. The database is always
+     * checkpointed when a crawl finishes.
+     * 
+     * @param checkpointInterval the pages between checkpoints, 0 for none.
+     */
+    public void setCheckpointInterval(int checkpointInterval){
+        this.checkpointInterval = Math.max(checkpointInterval, 0);
     }
     
     /**
@@ -130,19 +576,652 @@ public abstract class WebCrawlerImpl implements WebCrawler {
      */
     abstract public boolean search(URL currentURL, String...searchTerms);
     
+    /**
+     * This private method resets the counts kept for the most recent crawl.
+     * 
+     * @param consumer the consumer that each result is passed to, or a null.
+     */
+    private void reset(Consumer<String> consumer){
+        linksProcessed = 0;
+        sinceCheckpoint = 0;
+        resultsFound = 0;
+        resultConsumer = consumer;
+        hostStats.clear();
+        metrics.reset();
+        errors.clear();
+        crawlStart = System.nanoTime();
+        metrics.gauge("pages.perSecond",
+                () -> pagesFetched.sum() / Math.max((System.nanoTime() - crawlStart) / 1e9, 1e-3));
+    }
+    
+    /**
+     * This private method wraps the database so that the latency of each
+     * call and the size of the frontier are recorded in the metrics.
+     * 
+     * @param db the database object to wrap.
+     * @return the database object to crawl with.
+     */
+    private LinkDB meter(LinkDB db){
+        db.setErrorLog(errors);
+        MeteredLinkDB metered = new MeteredLinkDB(db, metrics);
+        metrics.gauge("frontier.size", metered::getFrontierSize);
+        return metered;
+    }
+    
+    /**
+     * This private method returns the microseconds since a time given by
+     * System.nanoTime().
+     */
+    private static long micros(long start){
+        return TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start);
+    }
+    
+    /**
+     * This private method reports an error to the log, which counts it in
+     * the metrics by its category. A page that timed out or was too large
+     * is also counted as abandoned.
+     * 
+     * @param url the page the error happened to, or a null.
+     * @param exc the exception thrown.
+     */
+    private void error(String url, Exception exc){
+        ErrorCategory category = ErrorCategory.of(exc);
+        if(url != null && (category == ErrorCategory.TIMEOUT || category == ErrorCategory.TOO_LARGE)){
+            pagesAbandoned.increment();
+        }
+        errors.report(url, exc);
+    }
+    
+    /**
+     * This private method creates the executor that closes the connections
+     * of pages that have not been read in time.
+     */
+    private static ScheduledThreadPoolExecutor createDeadlines(){
+        ScheduledThreadPoolExecutor deadlines = new ScheduledThreadPoolExecutor(1, task -> {
+            Thread thread = new Thread(task, "page-deadline");
+            thread.setDaemon(true);
+            return thread;
+        });
+        deadlines.setRemoveOnCancelPolicy(true);
+        return deadlines;
+    }
+    
+    /**
+     * This private method returns the nanoseconds left to fetch a page.
+     * 
+     * @param start the System.nanoTime() when the page was requested.
+     * @return the time left, or 0 if there is no limit.
+     */
+    private long timeLeft(long start){
+        if(pageTimeout == 0){return 0;}
+        return Math.max(TimeUnit.MILLISECONDS.toNanos(pageTimeout) - (System.nanoTime() - start), 1);
+    }
+    
+    /**
+     * This private method throws the reason a page was ended early, if it
+     * was.
+     * 
+     * @param limited the stream the page was read from.
+     * @param url the page.
+     * @throws IOException if the page was too large, timed out or failed.
+     */
+    private void checkLimits(LimitedInputStream limited, URL url) throws IOException{
+        if(limited.isTooLarge()){throw new PageTooLargeException(maxPageBytes, url);}
+        if(limited.isTimedOut()){throw timedOut(url);}
+        if(limited.getFailure() != null){throw limited.getFailure();}
+    }
+    
+    /**
+     * This private method returns the exception for a page that was not
+     * fetched in the time allowed.
+     */
+    private SocketTimeoutException timedOut(URL url){
+        return new SocketTimeoutException("Page not read within " + pageTimeout + " ms for URL: " + url);
+    }
+    
+    /**
+     * This private method creates a parser that reports its errors to the
+     * log.
+     */
+    private HyperlinkListBuilder newBuilder(){
+        HyperlinkListBuilder builder = new HyperlinkListBuilderImplScanner();
+        builder.setErrorLog(errors);
+        return builder;
+    }
+    
+    /**
+     * This private method crawls the links on the Temp table, lowest priority
+     * first, and then checkpoints the database.
+     * 
+     * @param db the database object holding the links to be crawled.
+     * @return the number of results found.
+     */
+    private int crawlLinks(LinkDB db){
+        if(nonBlocking){
+            crawlNonBlocking(db);
+        } else if(threads > 1 || hostDelay > 0){
+            crawlParallel(db);
+        } else {
+            HyperlinkListBuilder builder = newBuilder();
+            TempLink next;
+            
+            // Loop through the links, lowest priority first, writing the links
+            // found on each page in batches as the page is read.
+            while(linksProcessed < maxLinks && (next = db.pollNext()) != null){
+                if(next.getPriority() > maxDepth){break;}
+                fetchPage(db, builder, next.getLink(), next.getPriority());
+                markVisited(db, next.getLink());
+                linksProcessed++;
+            }
+        }
+        db.checkpoint();
+        return resultsFound;
+    }
+    
+    /**
+     * This private method crawls the links on the Temp table using a pool of
+     * worker threads. The calling thread takes links from the database into a
+     * HostScheduler and hands them to the workers as the limits for each host
+     * allow. The workers fetch and parse each page and call the 'search()'
+     * method. The links found by the workers are passed back in batches while
+     * each page is still being read, and written to the database by the
+     * calling thread, so that they can be fetched before the page they were
+     * found on has been completed. The queue of batches is bounded, so a
+     * worker waits for the calling thread rather than holding every link on a
+     * large page. No more than maxLinks pages are fetched and pages deeper
+     * than maxDepth are not fetched.
+     * 
+     * @param db the database object holding the start URL.
+     */
+    private void crawlParallel(LinkDB db){
+        ExecutorService pool = createPool();
+        BlockingQueue<PageEvent> events = new ArrayBlockingQueue<>(threads * 4);
+        ThreadLocal<HyperlinkListBuilder> builders = ThreadLocal.withInitial(this::newBuilder);
+        HostScheduler scheduler = new HostScheduler(maxPerHost, hostDelay);
+        
+        // Enough links are held in the queues for the workers to be kept busy
+        // while some hosts are held back.
+        int queueLimit = threads * 8;
+        int inFlight = 0;
+        TempLink next;
+        try {
+            do{
+                // Take links from the database until the queues are full.
+                while(scheduler.size() < queueLimit && linksProcessed < maxLinks){
+                    next = db.pollNext();
+                    if(next == null || next.getPriority() > maxDepth){break;}
+                    scheduler.add(next);
+                    linksProcessed++;
+                }
+                
+                // Hand out links until every worker is busy or no host can be used.
+                while(inFlight < threads && (next = scheduler.next(System.nanoTime())) != null){
+                    pool.execute(new Page(next.getLink(), next.getPriority(), builders, events));
+                    inFlight++;
+                }
+                if(inFlight == 0 && scheduler.size() == 0){break;}
+                
+                // Wait for links from a page, a page to be completed or a host to be ready.
+                long wait = inFlight < threads ? scheduler.waitTime(System.nanoTime()) : -1;
+                if(inFlight == 0){
+                    TimeUnit.NANOSECONDS.sleep(wait);
+                    continue;
+                }
+                PageEvent event = wait < 0 ? events.take()
+                        : events.poll(wait, TimeUnit.NANOSECONDS);
+                if(event == null){continue;}
+                
+                // Write the links found, and record the page if it has been completed.
+                Page page = event.page;
+                if(event.links != null){
+                    writeToTemp(event.links, db, page.depth + 1);
+                }
+                if(event.done){
+                    inFlight--;
+                    scheduler.finished(page.link);
+                    markVisited(db, page.link);
+                    if(page.found){writeToResults(db, page.url.toString());}
+                }
+            } while(true);
+        } catch (InterruptedException exc) {
+            Thread.currentThread().interrupt();
+            error(null, exc);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+    
+    /**
+     * This private method crawls the links on the Temp table with a
+     * NioFetcher, so that as many pages as the number of threads set are
+     * fetched at once on non-blocking connections served by a single selector
+     * thread. The calling thread hands out links as the limits for each host
+     * allow, and once a page has been read it parses the page from the buffer
+     * it was read into, calls the 'search()' method and writes to the
+     * database. Pages that do not use 'http' are fetched by the calling
+     * thread. No more than maxLinks pages are fetched and pages deeper than
+     * maxDepth are not fetched.
+     * 
+     * @param db the database object holding the start URL.
+     */
+    private void crawlNonBlocking(LinkDB db){
+        BlockingQueue<Fetch> completed = new LinkedBlockingQueue<>();
+        HyperlinkListBuilder builder = newBuilder();
+        HostScheduler scheduler = new HostScheduler(maxPerHost, hostDelay);
+        int queueLimit = threads * 8;
+        int inFlight = 0;
+        TempLink next;
+        try (NioFetcher fetcher = new NioFetcher()) {
+            fetcher.setErrorLog(errors);
+            fetcher.setConnectTimeout(connectTimeout);
+            fetcher.setReadTimeout(readTimeout);
+            fetcher.setPageTimeout(pageTimeout);
+            fetcher.setMaxBodyBytes(maxPageBytes);
+            do{
+                // Take links from the database until the queues are full.
+                while(scheduler.size() < queueLimit && linksProcessed < maxLinks){
+                    next = db.pollNext();
+                    if(next == null || next.getPriority() > maxDepth){break;}
+                    scheduler.add(next);
+                    linksProcessed++;
+                }
+                
+                // Start fetching links until enough pages are being fetched or
+                // no host can be used.
+                while(inFlight < threads && (next = scheduler.next(System.nanoTime())) != null){
+                    Fetch fetch = new Fetch(next.getLink(), next.getPriority());
+                    if(fetch.url != null && NioFetcher.supports(fetch.url)){
+                        if(compression){fetch.headers.put("Accept-Encoding", ContentEncoding.ACCEPTED);}
+                        CachedPage cached = pageCache != null ? pageCache.get(fetch.link) : null;
+                        if(cached != null){
+                            fetch.cached = cached;
+                            if(cached.getETag() != null){
+                                fetch.headers.put("If-None-Match", cached.getETag());
+                            }
+                            if(cached.getLastModified() != null){
+                                fetch.headers.put("If-Modified-Since", cached.getLastModified());
+                            }
+                        }
+                        send(fetch, fetcher, completed);
+                        inFlight++;
+                    } else {
+                        fetchPage(db, builder, fetch.link, fetch.depth);
+                        scheduler.finished(fetch.link);
+                        markVisited(db, fetch.link);
+                    }
+                }
+                if(inFlight == 0 && scheduler.size() == 0){break;}
+                
+                // Wait for a page to be read or for a host to be ready.
+                long wait = inFlight < threads ? scheduler.waitTime(System.nanoTime()) : -1;
+                if(inFlight == 0){
+                    TimeUnit.NANOSECONDS.sleep(wait);
+                    continue;
+                }
+                Fetch done = wait < 0 ? completed.take()
+                        : completed.poll(wait, TimeUnit.NANOSECONDS);
+                if(done == null){continue;}
+                if(readPage(db, builder, done, fetcher, completed)){
+                    inFlight--;
+                    scheduler.finished(done.link);
+                    markVisited(db, done.link);
+                }
+            } while(true);
+        } catch (InterruptedException exc) {
+            Thread.currentThread().interrupt();
+            error(null, exc);
+        } catch (IOException exc) {
+            error(null, exc);
+        }
+    }
+    
+    /**
+     * This private method sends the request for a page to the NioFetcher,
+     * which adds the page to the queue once its response has been read.
+     */
+    private void send(Fetch fetch, NioFetcher fetcher, BlockingQueue<Fetch> completed){
+        fetcher.fetch(fetch.url, fetch.headers, response -> {
+            fetch.response = response;
+            completed.add(fetch);
+        });
+    }
+    
+    /**
+     * This private method handles the response to a page fetched by a
+     * NioFetcher in the same way as fetchLinks(), then searches the page. A
+     * redirect is followed by sending another request, and relative links are
+     * found from the address the page was redirected to.
+     * 
+     * @param db the database object to write with.
+     * @param builder the object used to parse the page.
+     * @param fetch the page whose response has been read.
+     * @param fetcher the fetcher used to follow a redirect.
+     * @param completed the queue the redirected page is added to.
+     * @return 'false' if a redirect is being followed, otherwise 'true'.
+     */
+    private boolean readPage(LinkDB db, HyperlinkListBuilder builder, Fetch fetch,
+            NioFetcher fetcher, BlockingQueue<Fetch> completed){
+        NioFetcher.Response response = fetch.response;
+        int depth = fetch.depth + 1;
+        Consumer<List<URL>> sink = depth <= maxDepth ? links -> writeToTemp(links, db, depth) : links -> {};
+        try {
+            if(response.getError() != null){throw response.getError();}
+            fetchLatency.record(micros(fetch.start));
+            int code = response.getStatus();
+            String location = response.getHeader("Location");
+            if(code >= 300 && code < 400 && location != null && fetch.redirects < MAX_REDIRECTS){
+                URL target = new URL(fetch.url, location);
+                if(NioFetcher.supports(target)){
+                    // The validators belong to the page first asked for, so a
+                    // reply of 304 from the new target must not use its copy.
+                    fetch.url = target;
+                    fetch.redirects++;
+                    fetch.headers.remove("If-None-Match");
+                    fetch.headers.remove("If-Modified-Since");
+                    fetch.cached = null;
+                    send(fetch, fetcher, completed);
+                    return false;
+                }
+            }
+            URL page = new URL(fetch.link);
+            if(code == HttpURLConnection.HTTP_NOT_MODIFIED && fetch.cached != null){
+                useCached(page, fetch.cached, fetch.start, sink);
+            } else if(code >= 400){
+                throw new HttpStatusException(code, fetch.url);
+            } else {
+                ByteBuffer body = response.getBody();
+                List<String> found = pageCache != null ? new ArrayList<>() : null;
+                LinkBatcher batcher = new LinkBatcher(sink, null);
+                Consumer<URL> listener = found == null ? batcher : link -> {
+                    found.add(link.toString());
+                    batcher.accept(link);
+                };
+                builder.setCharset(HTMLcharset.fromContentType(response.getHeader("Content-Type")));
+                String encoding = response.getHeader("Content-Encoding");
+                long reading = System.nanoTime();
+                int links;
+                LimitedInputStream limited = null;
+                if(encoding == null){
+                    links = builder.readLinks(fetch.url.toString(), body, listener);
+                    bytesDecoded.add(body.remaining());
+                } else {
+                    // The compressed body is inflated into the parser a block at a time.
+                    limited = new LimitedInputStream(ContentEncoding.decode(
+                            new ByteBufferInputStream(body.duplicate()), encoding), maxPageBytes, 0);
+                    CountingInputStream decoded = new CountingInputStream(limited);
+                    links = builder.readLinks(fetch.url.toString(), decoded, listener);
+                    bytesDecoded.add(decoded.getCount());
+                }
+                batcher.flush();
+                if(limited != null){checkLimits(limited, fetch.url);}
+                pagesFetched.increment();
+                pageRead.record(micros(reading));
+                pageLinks.record(links);
+                bytesRead.add(body.remaining());
+                if(found != null){
+                    pageCache.put(fetch.link, response.getHeader("ETag"),
+                            response.getHeader("Last-Modified"), found);
+                }
+                recordHost(page, body.remaining(), fetch.start);
+            }
+            if(search(page)){writeToResults(db, page.toString());}
+        } catch (IOException exc) {
+            error(fetch.link, exc);
+        }
+        return true;
+    }
+    
+    /**
+     * This private method creates the executor that runs the workers. This is
+     * either a fixed pool of threads, or an executor that starts a virtual
+     * thread for each page. The virtual thread executor is looked up when the
+     * crawl starts so that the crawler still runs on Java versions without
+     * virtual threads.
+     * 
+     * @return the executor for the worker tasks.
+     */
+    private ExecutorService createPool(){
+        if(virtualThreads){
+            try {
+                Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+                return (ExecutorService) factory.invoke(null);
+            } catch (ReflectiveOperationException exc) {
+                return Executors.newCachedThreadPool();
+            }
+        }
+        return Executors.newFixedThreadPool(threads);
+    }
+    
+    /**
+     * This private method fetches and parses a single page in the calling
+     * thread, writing the links found to the Temp table unless the page is at
+     * the maximum depth, and then searches the page.
+     * 
+     * @param db the database object to write with.
+     * @param builder the object used to parse the page.
+     * @param link the page to be fetched.
+     * @param priority the priority number of the page.
+     */
+    private void fetchPage(LinkDB db, HyperlinkListBuilder builder, String link, int priority){
+        int depth = priority + 1;
+        try {
+            URL url = new URL(link);
+            fetchLinks(url, builder, depth <= maxDepth ? links -> writeToTemp(links, db, depth) : links -> {});
+            if(search(url)){writeToResults(db, url.toString());}
+        } catch (IOException exc) {
+            error(link, exc);
+        }
+    }
+    
+    /**
+     * This private method opens a stream to the URL and passes the links
+     * found on the page to the sink in batches as they are read, reading until
+     * the end of the stream. The stream is then closed so that an HTTP
+     * connection can be used again. If the server returns an error the body
+     * of the error is read and discarded for the same reason. If the page is
+     * in the cache and the server replies that it has not been modified, the
+     * cached links are passed to the sink instead.
+     * 
+     * @param url the page to be fetched.
+     * @param builder the object used to parse the page.
+     * @param sink the sink each batch of links is passed to.
+     * @throws IOException if the page cannot be read.
+     */
+    private void fetchLinks(URL url, HyperlinkListBuilder builder, Consumer<List<URL>> sink) throws IOException{
+        long start = System.nanoTime();
+        URLConnection connection = url.openConnection();
+        connection.setConnectTimeout(connectTimeout);
+        connection.setReadTimeout(readTimeout);
+        
+        // An HTTP connection still open when the time is up is closed.
+        ScheduledFuture<?> deadline = pageTimeout > 0 && connection instanceof HttpURLConnection
+                ? DEADLINES.schedule(((HttpURLConnection) connection)::disconnect, pageTimeout, TimeUnit.MILLISECONDS)
+                : null;
+        try {
+            fetchLinks(url, connection, start, builder, sink);
+        } catch (IOException exc) {
+            if(pageTimeout > 0 && System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(pageTimeout)){
+                throw timedOut(url);
+            }
+            throw exc;
+        } finally {
+            if(deadline != null){deadline.cancel(false);}
+        }
+    }
+    
+    /**
+     * This private method fetches a page for fetchLinks() once its
+     * connection has been created.
+     * 
+     * @param url the page to be fetched.
+     * @param connection the connection to the page, which is not yet open.
+     * @param start the System.nanoTime() when the page was requested.
+     * @param builder the object used to parse the page.
+     * @param sink the sink each batch of links is passed to.
+     * @throws IOException if the page cannot be read.
+     */
+    private void fetchLinks(URL url, URLConnection connection, long start, HyperlinkListBuilder builder,
+            Consumer<List<URL>> sink) throws IOException{
+        boolean http = connection instanceof HttpURLConnection;
+        if(http){
+            HttpURLConnection httpConnection = (HttpURLConnection) connection;
+            if(compression){httpConnection.setRequestProperty("Accept-Encoding", ContentEncoding.ACCEPTED);}
+            CachedPage cached = pageCache != null ? pageCache.get(url.toString()) : null;
+            if(cached != null){
+                if(cached.getETag() != null){
+                    httpConnection.setRequestProperty("If-None-Match", cached.getETag());
+                }
+                if(cached.getLastModified() != null){
+                    httpConnection.setRequestProperty("If-Modified-Since", cached.getLastModified());
+                }
+            }
+            int code = httpConnection.getResponseCode();
+            fetchLatency.record(micros(start));
+            if(code == HttpURLConnection.HTTP_NOT_MODIFIED && cached != null){
+                discard(httpConnection.getInputStream());
+                useCached(url, cached, start, sink);
+                return;
+            }
+            if(code >= 400){
+                discard(httpConnection.getErrorStream());
+                throw new HttpStatusException(code, url);
+            }
+        }
+        // The links are only kept if they are needed for the cache.
+        List<String> found = http && pageCache != null ? new ArrayList<>() : null;
+        // The bytes are counted as they arrive and again once decompressed.
+        // Whether more bytes are ready is checked before they are inflated.
+        CountingInputStream input = new CountingInputStream(connection.getInputStream());
+        if(!http){fetchLatency.record(micros(start));}
+        long reading = System.nanoTime();
+        CountingInputStream decoded = null;
+        LinkBatcher batcher = new LinkBatcher(sink, input);
+        try {
+            if(input.available() == 0){pagesNotReady.increment();}
+            LimitedInputStream limited = new LimitedInputStream(
+                    ContentEncoding.decode(input, connection.getContentEncoding()), maxPageBytes, timeLeft(start));
+            decoded = new CountingInputStream(limited);
+            builder.setCharset(HTMLcharset.fromContentType(connection.getContentType()));
+            int links = builder.readLinks(url.toString(), decoded, found == null ? batcher : link -> {
+                found.add(link.toString());
+                batcher.accept(link);
+            });
+            batcher.flush();
+            checkLimits(limited, url);
+            
+            // A connection closed before the whole body was sent is not an
+            // error for the stream, so the bytes read are checked.
+            long length = connection.getContentLengthLong();
+            if(length >= 0 && input.getCount() < length){
+                throw new IOException("Connection closed before the response was complete for URL: " + url);
+            }
+            pagesFetched.increment();
+            pageRead.record(micros(reading));
+            pageLinks.record(links);
+        } finally {
+            if(decoded != null){decoded.close();}
+            input.close();
+            bytesRead.add(input.getCount());
+            if(decoded != null){bytesDecoded.add(decoded.getCount());}
+        }
+        if(found != null){
+            pageCache.put(url.toString(), connection.getHeaderField("ETag"),
+                    connection.getHeaderField("Last-Modified"), found);
+        }
+        recordHost(url, input.getCount(), start);
+    }
+    
+    /**
+     * This private method passes the links of a cached page that has not
+     * been modified to the sink, and counts the page as fetched.
+     * 
+     * @param url the page that has not been modified.
+     * @param cached the page in the cache.
+     * @param start the System.nanoTime() when the page was requested.
+     * @param sink the sink each batch of links is passed to.
+     */
+    private void useCached(URL url, CachedPage cached, long start, Consumer<List<URL>> sink)
+            throws MalformedURLException{
+        pageCache.recordHit(url.toString());
+        pagesFromCache.increment();
+        pagesFetched.increment();
+        recordHost(url, 0, start);
+        LinkBatcher batcher = new LinkBatcher(sink, null);
+        for(String link : cached.getLinks()){
+            batcher.accept(new URL(link));
+        }
+        batcher.flush();
+    }
+    
+    /**
+     * This private method records a page fetched in the statistics of its
+     * host.
+     * 
+     * @param url the page that has been fetched.
+     * @param bytes the number of bytes read from the page.
+     * @param start the System.nanoTime() when the page was requested.
+     */
+    private void recordHost(URL url, long bytes, long start){
+        String host = HostScheduler.hostOf(url.toString());
+        hostStats.computeIfAbsent(host, HostStats::new)
+                .record(bytes, start, System.nanoTime());
+    }
+    
+    /**
+     * This private method reads a stream to the end and closes it.
+     * 
+     * @param in the stream to be discarded, which may be a null.
+     */
+    private void discard(InputStream in) throws IOException{
+        if(in == null){return;}
+        try {
+            byte[] skip = new byte[4096];
+            while(in.read(skip) != -1){}
+        } finally {
+            in.close();
+        }
+    }
+    
+    /**
+     * This private method marks a link as visited, and checkpoints the
+     * database if the checkpoint interval has been reached.
+     * 
+     * @param db the database object to write with.
+     * @param link the link that has been visited.
+     */
+    private void markVisited(LinkDB db, String link){
+        db.linkVisited(link);
+        if(checkpointInterval > 0 && ++sinceCheckpoint >= checkpointInterval){
+            db.checkpoint();
+            sinceCheckpoint = 0;
+        }
+    }
+    
+    /**
+     * This private method returns the canonical form of a URL, or the URL
+     * itself if URL's are kept as found.
+     * 
+     * @param url the URL found.
+     * @return the URL to check for duplicates and crawl.
+     */
+    private URL canonical(URL url){
+        return canonicaliser != null ? canonicaliser.canonicalise(url) : url;
+    }
+    
     /**
      * This private method writes extracted URL's to the Temp table.
      * 
      * @param tempList a list of the URL's.
      * @param db the database object to write with.
+     * @param depth the priority number given to the URL's.
      */
-    private void writeToTemp(List<URL> tempList, LinkDB db){
+    private void writeToTemp(List<URL> tempList, LinkDB db, int depth){
         if(!tempList.isEmpty()){
+            List<String> links = new ArrayList<>(tempList.size());
             for(URL link : tempList){
-                if(!db.checkExistsTemp(link.toString())){
-                    db.writeTemp(priority, link.toString());
-                }
+                links.add(canonical(link).toString());
             }
+            db.writeTempBatch(depth, links);
         }
     }
     
@@ -156,6 +1235,149 @@ public abstract class WebCrawlerImpl implements WebCrawler {
     private void writeToResults(LinkDB db, String tempString){
         if(!db.checkExistsResult(tempString)){
             db.writeResult(tempString);
+            resultsFound++;
+            if(resultConsumer != null){resultConsumer.accept(tempString);}
+        }
+    }
+    
+    /**
+     * This private class fetches and parses a single page on a worker thread
+     * and calls the 'search()' method. The links found are passed back to the
+     * calling thread in batches while the page is read, followed by an event
+     * when the page has been completed.
+     */
+    private class Page implements Runnable {
+        
+        final String link;
+        final int depth;
+        final ThreadLocal<HyperlinkListBuilder> builders;
+        final BlockingQueue<PageEvent> events;
+        URL url;
+        boolean found = false;
+        
+        Page(String link, int depth, ThreadLocal<HyperlinkListBuilder> builders,
+                BlockingQueue<PageEvent> events){
+            this.link = link;
+            this.depth = depth;
+            this.builders = builders;
+            this.events = events;
+        }
+        
+        @Override
+        public void run(){
+            try {
+                url = new URL(link);
+                fetchLinks(url, builders.get(), depth < maxDepth
+                        ? links -> send(new PageEvent(this, links, false)) : links -> {});
+                found = search(url);
+            } catch (IOException exc) {
+                error(link, exc);
+            } finally {
+                send(new PageEvent(this, null, true));
+            }
+        }
+        
+        /**
+         * This method passes an event to the calling thread, waiting for room
+         * in the queue. The event is dropped if the crawl has been stopped.
+         */
+        private void send(PageEvent event){
+            try {
+                events.put(event);
+            } catch (InterruptedException exc) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+    
+    /**
+     * This private class is a page being fetched by a NioFetcher, with the
+     * request headers sent, the address the page has been redirected to and
+     * its response once it has been read.
+     */
+    private static class Fetch {
+        
+        final String link;
+        final int depth;
+        final long start = System.nanoTime();
+        final Map<String, String> headers = new HashMap<>();
+        URL url;
+        CachedPage cached;
+        int redirects = 0;
+        NioFetcher.Response response;
+        
+        Fetch(String link, int depth){
+            this.link = link;
+            this.depth = depth;
+            try {
+                url = new URL(link);
+            } catch (MalformedURLException exc) {
+                url = null;
+            }
+        }
+    }
+    
+    /**
+     * This private class is passed from a worker to the calling thread with
+     * a batch of links found on a page, or when the page has been completed.
+     */
+    private static class PageEvent {
+        
+        final Page page;
+        final List<URL> links;
+        final boolean done;
+        
+        PageEvent(Page page, List<URL> links, boolean done){
+            this.page = page;
+            this.links = links;
+            this.done = done;
+        }
+    }
+    
+    /**
+     * This private class collects the links found on a page and hands them on
+     * in batches, so that no more than one batch of the links on a page is
+     * held at once. A batch is handed on when it is full, or when none of the
+     * page is waiting to be read, so that no links are held back while the
+     * rest of the page is downloaded.
+     */
+    private static class LinkBatcher implements Consumer<URL> {
+        
+        private final Consumer<List<URL>> sink;
+        private final InputStream in;
+        private List<URL> batch = new ArrayList<>(LINK_BATCH);
+        
+        LinkBatcher(Consumer<List<URL>> sink, InputStream in){
+            this.sink = sink;
+            this.in = in;
+        }
+        
+        @Override
+        public void accept(URL link){
+            batch.add(link);
+            if(batch.size() == LINK_BATCH || waiting()){flush();}
+        }
+        
+        /**
+         * This method hands on the links collected since the last batch.
+         */
+        void flush(){
+            if(!batch.isEmpty()){
+                sink.accept(batch);
+                batch = new ArrayList<>(LINK_BATCH);
+            }
+        }
+        
+        /**
+         * This method checks whether the next read of the page would have to
+         * wait for more of it to arrive.
+         */
+        private boolean waiting(){
+            try {
+                return in != null && in.available() == 0;
+            } catch (IOException exc) {
+                return true;
+            }
         }
     }
 }
\ No newline at end of file
@@ -33,6 +33,18 @@ public class WebCrawlerImplNoSearch extends WebCrawlerImpl {
         super(maxLinks, maxDepth);
     }
     
+    /**
+     * This constructor also takes in the number of worker threads that will
+     * fetch and parse pages at the same time.
+     * 
+     * @param maxLinks the maximum number of links to be processed.
+     * @param maxDepth the maximum depth of web pages to be processed.
+     * @param threads the number of pages that can be fetched at once.
+     */
+    public WebCrawlerImplNoSearch(Integer maxLinks, Integer maxDepth, Integer threads) {
+        super(maxLinks, maxDepth, threads);
+    }
+    
     @Override
     public boolean search(URL currentURL, String...searchTerms){
         return true;
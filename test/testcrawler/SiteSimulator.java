@@ -0,0 +1,635 @@
+package testcrawler;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * This class serves a generated web site from an HTTP server on the loopback
+ * address, so that the web crawler can be tested without network access.
+ * Each response is written to the socket in a single write and connections
+ * are kept alive between requests. A delay can also be set between sending
+ * the headers and the body of each response, to simulate a body that arrives
+ * after the headers, or between each quarter of the body, to simulate a page
+ * that is downloaded slowly. Bodies can also be sent with chunked transfer
+ * encoding instead of a Content-Length, and compressed with gzip or deflate
+ * when the request accepts it. The connections and requests received are
+ * counted, so that tests can check how often connections are used again.
+ * 
+ * Every page is sent with an ETag and a Last-Modified date. A request that
+ * gives the current ETag in If-None-Match, or the Last-Modified date in
+ * If-Modified-Since, is answered with a 304 response with no body. Changing
+ * the version of the site changes every ETag and Last-Modified date.
+ * 
+ * The site is a tree of pages. The home page is page 0 and page n links to
+ * pages n*fanOut+1 to n*fanOut+fanOut, down to the depth given. Every page
+ * also links back to the home page. The pages are padded with text to the
+ * page size given, and each response can be delayed to simulate a slow
+ * server. The same settings always produce the same site.
+ * 
+ * The pages can also link to each child a second time through a different
+ * address for the same page, such as one with a fragment, a tracking
+ * parameter or a '.' segment, as many real sites do.
+ * 
+ * Some of the pages can also be made to fail, in turn: with a 500 response,
+ * by closing the connection half way through the body, or with a hyperlink
+ * that is not a valid URL. The failures sent of each kind are counted.
+ * 
+ * Other pages can be made to stall instead, in turn: by never answering the
+ * request, or by sending the first quarter of the body and then trickling
+ * the rest a byte at a time, so that the page takes minutes to arrive. The
+ * stalled pages are counted.
+ * 
+ * @author James Hill
+ */
+public class SiteSimulator {
+    
+    // Text used to pad the pages.
+    private static final String FILLER = "<p>Lorem ipsum dolor sit amet, consectetur"
+            + " adipiscing elit, sed do eiusmod tempor incididunt ut labore.</p>\n";
+    
+    // The end of each chunk of a chunked body.
+    private static final byte[] CRLF = {'\r', '\n'};
+    
+    // The ways a page can fail.
+    private static final int NONE = 0;
+    private static final int SERVER_ERROR = 1;
+    private static final int TRUNCATED = 2;
+    private static final int BAD_LINK = 3;
+    
+    // The ways a page can stall, and the milliseconds between bytes trickled.
+    private static final int NO_ANSWER = 4;
+    private static final int TRICKLE = 5;
+    private static final int TRICKLE_DELAY = 20;
+    
+    private final int fanOut;
+    private final int depth;
+    private final int pageSize;
+    private final int latency;
+    private final int pageCount;
+    private volatile int bodyDelay = 0;
+    private volatile int chunkDelay = 0;
+    private volatile int version = 1;
+    private volatile boolean duplicateLinks = false;
+    private volatile boolean chunked = false;
+    private volatile String compression = null;
+    private volatile int failEvery = 0;
+    private volatile int stallEvery = 0;
+    private final AtomicInteger serverErrors = new AtomicInteger();
+    private final AtomicInteger truncated = new AtomicInteger();
+    private final AtomicInteger badLinks = new AtomicInteger();
+    private final AtomicInteger stalled = new AtomicInteger();
+    private final AtomicInteger notModified = new AtomicInteger();
+    private final AtomicInteger connections = new AtomicInteger();
+    private final AtomicInteger requests = new AtomicInteger();
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicInteger mostActive = new AtomicInteger();
+    private ServerSocket server;
+    private ExecutorService executor;
+    
+    /**
+     * This is the basic constructor for this class.
+     * 
+     * @param fanOut the number of pages each page links to.
+     * @param depth the number of links from the home page to the deepest page.
+     * @param pageSize the minimum number of bytes in each page.
+     * @param latency the number of milliseconds to wait before each response.
+     */
+    public SiteSimulator(int fanOut, int depth, int pageSize, int latency){
+        this.fanOut = fanOut;
+        this.depth = depth;
+        this.pageSize = pageSize;
+        this.latency = latency;
+        int count = 1;
+        int level = 1;
+        for(int i = 0; i < depth; i++){
+            level *= fanOut;
+            count += level;
+        }
+        this.pageCount = count;
+    }
+    
+    /**
+     * This method starts the server on a free port of the loopback address.
+     * 
+     * @throws IOException if the server cannot be started.
+     */
+    public void start() throws IOException{
+        server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        executor = Executors.newCachedThreadPool(task -> {
+            Thread thread = new Thread(task);
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.execute(this::accept);
+    }
+    
+    /**
+     * This method stops the server from accepting any more connections.
+     */
+    public void stop(){
+        if(server != null){
+            try {
+                server.close();
+            } catch (IOException exc) {
+                System.err.println("Error processing stream: " + exc);
+            }
+            executor.shutdownNow();
+            server = null;
+        }
+    }
+    
+    /**
+     * This method sets the number of milliseconds to wait between sending the
+     * headers and the body of each response. With no delay the headers and
+     * body are sent in a single write.
+     * 
+     * @param bodyDelay the delay before each body is sent.
+     */
+    public void setBodyDelay(int bodyDelay){
+        this.bodyDelay = bodyDelay;
+    }
+    
+    /**
+     * This method sets the number of milliseconds to wait between sending
+     * each quarter of the body of each response. The hyperlinks on each page
+     * are all in the first quarter.
+     * 
+     * @param chunkDelay the delay between each part of the body.
+     */
+    public void setChunkDelay(int chunkDelay){
+        this.chunkDelay = chunkDelay;
+    }
+    
+    /**
+     * This method sets whether each body is sent with chunked transfer
+     * encoding, in four chunks, instead of with a Content-Length.
+     * 
+     * @param chunked 'true' to send the bodies in chunks.
+     */
+    public void setChunked(boolean chunked){
+        this.chunked = chunked;
+    }
+    
+    /**
+     * This method sets how each page is compressed when the Accept-Encoding
+     * header of the request includes it. A 'raw-deflate' page is sent as
+     * 'deflate' but without the zlib header, as some servers do.
+     * 
+     * @param compression 'gzip', 'deflate', 'raw-deflate' or a null for none.
+     */
+    public void setCompression(String compression){
+        this.compression = compression;
+    }
+    
+    /**
+     * This method sets the version of the site, which is part of the ETag
+     * and Last-Modified date of every page.
+     * 
+     * @param version the version of the site.
+     */
+    public void setVersion(int version){
+        this.version = version;
+    }
+    
+    /**
+     * This method sets whether each page links to its children a second time
+     * through different addresses for the same pages.
+     * 
+     * @param duplicateLinks 'true' to add the second links.
+     */
+    public void setDuplicateLinks(boolean duplicateLinks){
+        this.duplicateLinks = duplicateLinks;
+    }
+    
+    /**
+     * This method makes every page whose number is a multiple of the number
+     * given fail, apart from the home page. The failing pages are given a 500
+     * response, a body cut off half way by closing the connection, and a bad
+     * hyperlink in turn.
+     * 
+     * @param failEvery the pages between each failing page, or 0 for none.
+     */
+    public void setFailEvery(int failEvery){
+        this.failEvery = failEvery;
+    }
+    
+    /**
+     * This method makes every page whose number is a multiple of the number
+     * given stall, apart from the home page. The stalling pages are never
+     * answered, or have their bodies trickled after the first quarter, in
+     * turn. A page that fails does not also stall.
+     * 
+     * @param stallEvery the pages between each stalling page, or 0 for none.
+     */
+    public void setStallEvery(int stallEvery){
+        this.stallEvery = stallEvery;
+    }
+    
+    /**
+     * This method returns the number of requests for pages that stalled.
+     * 
+     * @return the number of stalled pages.
+     */
+    public int getStalledCount(){
+        return stalled.get();
+    }
+    
+    /**
+     * This method returns the number of 500 responses sent.
+     * 
+     * @return the number of server errors.
+     */
+    public int getServerErrorCount(){
+        return serverErrors.get();
+    }
+    
+    /**
+     * This method returns the number of bodies cut off by closing the
+     * connection.
+     * 
+     * @return the number of bodies cut off.
+     */
+    public int getTruncatedCount(){
+        return truncated.get();
+    }
+    
+    /**
+     * This method returns the number of pages sent with a bad hyperlink.
+     * 
+     * @return the number of pages with a bad hyperlink.
+     */
+    public int getBadLinkCount(){
+        return badLinks.get();
+    }
+    
+    /**
+     * This method returns the number of requests answered with a 304 response
+     * because the page had not been modified.
+     * 
+     * @return the number of 304 responses.
+     */
+    public int getNotModifiedCount(){
+        return notModified.get();
+    }
+    
+    /**
+     * This method returns the number of connections accepted by the server.
+     * 
+     * @return the number of connections.
+     */
+    public int getConnectionCount(){
+        return connections.get();
+    }
+    
+    /**
+     * This method returns the number of requests answered by the server.
+     * 
+     * @return the number of requests.
+     */
+    public int getRequestCount(){
+        return requests.get();
+    }
+    
+    /**
+     * This method returns the most requests that were being answered at the
+     * same time.
+     * 
+     * @return the most requests at once.
+     */
+    public int getMostConcurrentRequests(){
+        return mostActive.get();
+    }
+    
+    /**
+     * This method returns the address of the home page.
+     * 
+     * @return the URL of page 0.
+     */
+    public String getHome(){
+        return url(0);
+    }
+    
+    /**
+     * This method returns the address of a page.
+     * 
+     * @param page the number of the page.
+     * @return the URL of the page.
+     */
+    public String url(int page){
+        String host = "http://" + server.getInetAddress().getHostAddress() + ":"
+                + server.getLocalPort();
+        return page == 0 ? host + "/" : host + "/page" + page + ".html";
+    }
+    
+    /**
+     * This method returns the number of pages in the site.
+     * 
+     * @return the number of pages.
+     */
+    public int getPageCount(){
+        return pageCount;
+    }
+    
+    /**
+     * This method returns the number of pages that are no more than the given
+     * number of links away from the home page.
+     * 
+     * @param links the number of links from the home page.
+     * @return the number of pages within reach.
+     */
+    public int pagesWithin(int links){
+        int count = 1;
+        int level = 1;
+        for(int i = 0; i < links && i < depth; i++){
+            level *= fanOut;
+            count += level;
+        }
+        return count;
+    }
+    
+    /**
+     * This method builds the HTML for a page.
+     * 
+     * @param page the number of the page.
+     * @return the page encoded as ISO-8859-1.
+     */
+    public byte[] page(int page){
+        StringBuilder html = new StringBuilder(pageSize + 256);
+        html.append("<html>\n<head>\n<title>Page ").append(page)
+                .append("</title>\n</head>\n<body>\n<a href=\"/\">Home</a>\n");
+        if(failure(page) == BAD_LINK){
+            html.append("<a href=\"http://[bad\">Broken</a>\n");
+        }
+        if((long)page * fanOut + fanOut < pageCount){
+            for(int i = 1; i <= fanOut; i++){
+                int child = page * fanOut + i;
+                html.append("<a href=\"page").append(child).append(".html\">Page ")
+                        .append(child).append("</a>\n");
+                if(duplicateLinks){
+                    html.append("<a href=\"").append(duplicate(child)).append("\">Page ")
+                            .append(child).append("</a>\n");
+                }
+            }
+        }
+        while(html.length() < pageSize){
+            html.append(FILLER);
+        }
+        html.append("</body>\n</html>\n");
+        return html.toString().getBytes(StandardCharsets.ISO_8859_1);
+    }
+    
+    /**
+     * This private method accepts connections until the server is stopped,
+     * handing each one to its own thread.
+     */
+    private void accept(){
+        ServerSocket listener = server;
+        while(!listener.isClosed()){
+            try {
+                Socket socket = listener.accept();
+                connections.incrementAndGet();
+                executor.execute(() -> serve(socket));
+            } catch (IOException exc) {
+                // The server has been stopped.
+            }
+        }
+    }
+    
+    /**
+     * This private method answers the requests sent on a connection until the
+     * client closes it. A page that is not part of the site is given a 404
+     * response.
+     */
+    private void serve(Socket socket){
+        try (Socket client = socket;
+                BufferedReader in = new BufferedReader(new InputStreamReader(
+                        client.getInputStream(), StandardCharsets.ISO_8859_1))) {
+            OutputStream out = client.getOutputStream();
+            String request;
+            while((request = in.readLine()) != null){
+                // Read the validators from the request headers.
+                String header;
+                String ifNoneMatch = null;
+                String ifModifiedSince = null;
+                String acceptEncoding = "";
+                while((header = in.readLine()) != null && !header.isEmpty()){
+                    String lower = header.toLowerCase();
+                    if(lower.startsWith("if-none-match:")){
+                        ifNoneMatch = header.substring(14).trim();
+                    } else if(lower.startsWith("if-modified-since:")){
+                        ifModifiedSince = header.substring(18).trim();
+                    } else if(lower.startsWith("accept-encoding:")){
+                        acceptEncoding = lower.substring(16);
+                    }
+                }
+                
+                String[] parts = request.split(" ");
+                int page = parts.length > 1 ? pageNumber(parts[1]) : -1;
+                boolean unchanged = page >= 0 && (ifNoneMatch != null
+                        ? ifNoneMatch.equals(eTag(page))
+                        : lastModified().equals(ifModifiedSince));
+                requests.incrementAndGet();
+                int now = active.incrementAndGet();
+                mostActive.accumulateAndGet(now, Math::max);
+                try {
+                    if(latency > 0){Thread.sleep(latency);}
+                    if(unchanged){
+                        notModified.incrementAndGet();
+                        out.write(("HTTP/1.1 304 Not Modified\r\nETag: " + eTag(page)
+                                + "\r\n\r\n").getBytes(StandardCharsets.ISO_8859_1));
+                        out.flush();
+                        continue;
+                    }
+                    int failure = unchanged ? NONE : failure(page);
+                    if(failure == SERVER_ERROR){
+                        serverErrors.incrementAndGet();
+                        out.write(("HTTP/1.1 500 Internal Server Error\r\nContent-Length: 0\r\n\r\n")
+                                .getBytes(StandardCharsets.ISO_8859_1));
+                        out.flush();
+                        continue;
+                    }
+                    if(failure == BAD_LINK){badLinks.incrementAndGet();}
+                    byte[] body = page < 0 ? new byte[0] : page(page);
+                    if(failure == NO_ANSWER){
+                        // The connection is held open until the server stops.
+                        stalled.incrementAndGet();
+                        Thread.sleep(Long.MAX_VALUE);
+                    }
+                    if(failure == TRICKLE){
+                        stalled.incrementAndGet();
+                        out.write(head(page, body.length, null));
+                        out.write(body, 0, body.length / 4);
+                        for(int i = body.length / 4; i < body.length; i++){
+                            out.flush();
+                            Thread.sleep(TRICKLE_DELAY);
+                            out.write(body[i]);
+                        }
+                        out.flush();
+                        return;
+                    }
+                    if(failure == TRUNCATED){
+                        truncated.incrementAndGet();
+                        out.write(head(page, body.length, null));
+                        out.write(body, 0, body.length / 2);
+                        out.flush();
+                        return;
+                    }
+                    String encoding = compression == null ? null
+                            : compression.equals("raw-deflate") ? "deflate" : compression;
+                    if(encoding != null && page >= 0 && acceptEncoding.contains(encoding)){
+                        body = compress(body);
+                    } else {
+                        encoding = null;
+                    }
+                    byte[] head = head(page, body.length, encoding);
+                    if(chunked){
+                        out.write(head);
+                        for(int i = 0; i < 4; i++){
+                            if(i > 0 && chunkDelay > 0){Thread.sleep(chunkDelay);}
+                            int from = body.length * i / 4;
+                            int length = body.length * (i + 1) / 4 - from;
+                            if(length == 0){continue;}
+                            out.write((Integer.toHexString(length) + "\r\n").getBytes(StandardCharsets.ISO_8859_1));
+                            out.write(body, from, length);
+                            out.write(CRLF);
+                            out.flush();
+                        }
+                        out.write(("0\r\n\r\n").getBytes(StandardCharsets.ISO_8859_1));
+                    } else if(bodyDelay > 0){
+                        out.write(head);
+                        out.flush();
+                        Thread.sleep(bodyDelay);
+                        out.write(body);
+                    } else if(chunkDelay > 0){
+                        out.write(head);
+                        for(int i = 0; i < 4; i++){
+                            if(i > 0){Thread.sleep(chunkDelay);}
+                            out.write(body, body.length * i / 4, body.length * (i + 1) / 4 - body.length * i / 4);
+                            out.flush();
+                        }
+                    } else {
+                        ByteArrayOutputStream response = new ByteArrayOutputStream(head.length + body.length);
+                        response.write(head);
+                        response.write(body);
+                        out.write(response.toByteArray());
+                    }
+                    out.flush();
+                } finally {
+                    active.decrementAndGet();
+                }
+            }
+        } catch (SocketException exc) {
+            // The client or the server has closed the connection.
+        } catch (IOException exc) {
+            System.err.println("Error processing stream: " + exc);
+        } catch (InterruptedException exc) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    /**
+     * This private method returns how a page fails or stalls, if it does.
+     */
+    private int failure(int page){
+        int every = failEvery;
+        if(every > 0 && page > 0 && page % every == 0){return 1 + page / every % 3;}
+        every = stallEvery;
+        if(every > 0 && page > 0 && page % every == 0){return NO_ANSWER + page / every % 2;}
+        return NONE;
+    }
+    
+    /**
+     * This private method compresses the body of a page.
+     */
+    private byte[] compress(byte[] body) throws IOException{
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(body.length / 4 + 64);
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, compression.equals("raw-deflate"));
+        try (OutputStream out = compression.equals("gzip") ? new GZIPOutputStream(compressed)
+                : new DeflaterOutputStream(compressed, deflater)) {
+            out.write(body);
+        } finally {
+            deflater.end();
+        }
+        return compressed.toByteArray();
+    }
+    
+    /**
+     * This private method builds the HTTP headers of the response for a page.
+     */
+    private byte[] head(int page, int length, String encoding){
+        String head = (page < 0 ? "HTTP/1.1 404 Not Found" : "HTTP/1.1 200 OK") + "\r\n"
+                + "Content-Type: text/html; charset=ISO-8859-1\r\n"
+                + (encoding == null ? "" : "Content-Encoding: " + encoding + "\r\n")
+                + (page < 0 ? "" : "ETag: " + eTag(page) + "\r\n"
+                        + "Last-Modified: " + lastModified() + "\r\n")
+                + (chunked ? "Transfer-Encoding: chunked" : "Content-Length: " + length)
+                + "\r\n\r\n";
+        return head.getBytes(StandardCharsets.ISO_8859_1);
+    }
+    
+    /**
+     * This private method returns the ETag of a page.
+     */
+    private String eTag(int page){
+        return "\"" + page + "-" + version + "\"";
+    }
+    
+    /**
+     * This private method returns the Last-Modified date of every page, which
+     * is a day later for each version of the site.
+     */
+    private String lastModified(){
+        return String.format("Thu, %02d Jan 2015 00:00:00 GMT", version % 28 + 1);
+    }
+    
+    /**
+     * This private method returns a different address for a page, taking
+     * each of the different forms in turn.
+     */
+    private String duplicate(int page){
+        switch(page % 4){
+            case 0:     return "page" + page + ".html#top";
+            case 1:     return "page" + page + ".html?utm_source=crawler";
+            case 2:     return "/./page" + page + ".html";
+            default:    return url(page).replace("http://", "HTTP://").replace("/page", "/x/../page");
+        }
+    }
+    
+    /**
+     * This private method returns the number of the page at a path, or -1 if
+     * there is no such page. Any query is ignored and '.' and '..' segments
+     * are resolved.
+     */
+    private int pageNumber(String target){
+        String path;
+        try {
+            path = new URI(target).normalize().getPath();
+        } catch (URISyntaxException exc) {
+            return -1;
+        }
+        if(path.equals("/")){return 0;}
+        if(!path.startsWith("/page") || !path.endsWith(".html")){return -1;}
+        try {
+            int page = Integer.parseInt(path.substring(5, path.length() - 5));
+            return page > 0 && page < pageCount ? page : -1;
+        } catch (NumberFormatException exc) {
+            return -1;
+        }
+    }
+}
\ No newline at end of file
@@ -12,9 +12,20 @@ import org.junit.runners.Suite;
 @RunWith(Suite.class)
 @Suite.SuiteClasses(
         {
+            TestErrorLog.class,
+            TestHTMLcharset.class,
             TestHTMLread.class,
+            TestHTMLreadBuffered.class,
             TestHyperlinkListBuilder.class,
-            TestLinkDB.class
+            TestHyperlinkListBuilderScanner.class,
+            TestLinkDB.class,
+            TestLinkDBMemory.class,
+            TestMetrics.class,
+            TestNioFetcher.class,
+            TestPageCache.class,
+            TestURLCanonicaliser.class,
+            TestVisitedSet.class,
+            TestWebCrawler.class
         })
 
 public class SuiteCrawler {}
\ No newline at end of file
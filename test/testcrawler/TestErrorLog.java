@@ -0,0 +1,117 @@
+package testcrawler;
+
+import crawler.CrawlError;
+import crawler.ErrorCategory;
+import crawler.ErrorLogImpl;
+import crawler.HttpStatusException;
+import crawler.MetricsRegistry;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.MalformedURLException;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.net.UnknownHostException;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.zip.ZipException;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ * This is a testing class for the ErrorLogImpl class in 'Crawler'.
+ * 
+ * @author James Hill
+ */
+public class TestErrorLog {
+    
+    @Test
+    public void testExceptionsAreCategorised(){
+        assertEquals("The category is not correct.", ErrorCategory.DNS,
+                ErrorCategory.of(new UnknownHostException("nowhere")));
+        assertEquals("The category is not correct.", ErrorCategory.TIMEOUT,
+                ErrorCategory.of(new SocketTimeoutException()));
+        assertEquals("The category is not correct.", ErrorCategory.PARSE,
+                ErrorCategory.of(new MalformedURLException()));
+        assertEquals("The category is not correct.", ErrorCategory.PARSE,
+                ErrorCategory.of(new ZipException()));
+        assertEquals("The category is not correct.", ErrorCategory.DB,
+                ErrorCategory.of(new SQLException()));
+        assertEquals("The category is not correct.", ErrorCategory.IO,
+                ErrorCategory.of(new IOException()));
+        assertEquals("The category is not correct.", ErrorCategory.OTHER,
+                ErrorCategory.of(new InterruptedException()));
+    }
+    
+    @Test
+    public void testErrorsAreCountedAndKeptByPage() throws MalformedURLException{
+        MetricsRegistry metrics = new MetricsRegistry();
+        ErrorLogImpl errors = new ErrorLogImpl(metrics, null);
+        String page = "http://www.example.com/missing.html";
+        errors.report(page, new IOException("Premature EOF"));
+        errors.report(page, new HttpStatusException(404, new URL(page)));
+        errors.report(null, new SQLException("closed"));
+        
+        assertEquals("The count is not correct.", 1, errors.getCount(ErrorCategory.HTTP_STATUS));
+        assertEquals("The count is not correct.", 3, errors.getTotal());
+        assertEquals("The metric is not correct.", 1L, metrics.snapshot().get("errors.db"));
+        
+        // Test only the latest error of the page is kept.
+        Map<String, CrawlError> failures = errors.getFailures();
+        assertEquals("The number of pages is not correct.", 1, failures.size());
+        CrawlError error = failures.get(page);
+        assertEquals("The category is not correct.", ErrorCategory.HTTP_STATUS, error.getCategory());
+        assertEquals("The status is not correct.", 404, error.getStatus());
+        
+        errors.clear();
+        assertEquals("The count is not correct.", 0, errors.getTotal());
+        assertTrue("The pages were kept.", errors.getFailures().isEmpty());
+    }
+    
+    @Test
+    public void testFailuresAreLimited(){
+        ErrorLogImpl errors = new ErrorLogImpl();
+        errors.setMaxFailures(10);
+        for(int i = 0; i < 100; i++){
+            errors.report("http://www.example.com/page" + i + ".html", new IOException());
+        }
+        assertEquals("The number of pages is not correct.", 10, errors.getFailures().size());
+        assertEquals("The count is not correct.", 100, errors.getCount(ErrorCategory.IO));
+    }
+    
+    @Test
+    public void testErrorsAreWrittenWhenClosed(){
+        ByteArrayOutputStream text = new ByteArrayOutputStream();
+        ErrorLogImpl errors = new ErrorLogImpl(new MetricsRegistry(), new PrintStream(text, true));
+        errors.report("http://www.example.com/", new UnknownHostException("www.example.com"));
+        errors.close();
+        assertEquals("The error was not written.", "Error processing stream: DNS http://www.example.com/:"
+                + " java.net.UnknownHostException: www.example.com", text.toString().trim());
+    }
+    
+    @Test(timeout = 10000)
+    public void testReportingDoesNotWaitForBlockedStream(){
+        // A stream that never returns from a write.
+        CountDownLatch never = new CountDownLatch(1);
+        PrintStream blocked = new PrintStream(new OutputStream(){
+            @Override
+            public void write(int b) throws IOException{
+                try {
+                    never.await();
+                } catch (InterruptedException exc) {
+                    throw new IOException(exc);
+                }
+            }
+        });
+        ErrorLogImpl errors = new ErrorLogImpl(new MetricsRegistry(), blocked);
+        for(int i = 0; i < 100000; i++){
+            errors.report(null, new IOException());
+        }
+        assertEquals("The count is not correct.", 100000, errors.getCount(ErrorCategory.IO));
+        assertTrue("The errors not written were not counted.", errors.getNotLogged() > 90000);
+        errors.close();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,78 @@
+package testcrawler;
+
+import crawler.HTMLcharset;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ * This is a testing class for the HTMLcharset class in 'Crawler'.
+ * 
+ * @author James Hill
+ */
+public class TestHTMLcharset {
+    
+    @Test
+    public void checkCharsetIsReadFromContentType(){
+        assertEquals("The charset is not correct.", StandardCharsets.UTF_8,
+                HTMLcharset.fromContentType("text/html; charset=UTF-8"));
+        assertEquals("The charset is not correct.", StandardCharsets.UTF_8,
+                HTMLcharset.fromContentType("text/html; Charset=\"utf-8\"; format=flowed"));
+        assertEquals("The charset is not correct.", Charset.forName("windows-1252"),
+                HTMLcharset.fromContentType("text/html;charset='windows-1252'"));
+    }
+    
+    @Test
+    public void checkCharsetIsReadInAnyLocale(){
+        Locale locale = Locale.getDefault();
+        try {
+            Locale.setDefault(new Locale("tr", "TR"));
+            assertEquals("The charset is not correct.", StandardCharsets.UTF_8,
+                    HTMLcharset.fromContentType("text/html; CHARSET=UTF-8"));
+        } finally {
+            Locale.setDefault(locale);
+        }
+    }
+    
+    @Test
+    public void checkMissingOrUnknownCharsetIsNull(){
+        assertNull("A charset was found.", HTMLcharset.fromContentType(null));
+        assertNull("A charset was found.", HTMLcharset.fromContentType("text/html"));
+        assertNull("A charset was found.", HTMLcharset.fromContentType("text/html; charset=no-such-set"));
+        assertNull("A charset was found.", HTMLcharset.fromContentType("text/html; charset=bad name"));
+    }
+    
+    @Test
+    public void checkByteOrderMarkIsFound(){
+        byte[] page = {'x', (byte) 0xef, (byte) 0xbb, (byte) 0xbf, '<'};
+        assertEquals("The charset is not correct.", StandardCharsets.UTF_8, HTMLcharset.fromBOM(page, 1, 5));
+        assertNull("A charset was found.", HTMLcharset.fromBOM(page, 1, 3));
+        assertEquals("The charset is not correct.", StandardCharsets.UTF_16BE,
+                HTMLcharset.fromBOM(new byte[]{(byte) 0xfe, (byte) 0xff}, 0, 2));
+        assertEquals("The charset is not correct.", StandardCharsets.UTF_16LE,
+                HTMLcharset.fromBOM(new byte[]{(byte) 0xff, (byte) 0xfe}, 0, 2));
+        assertNull("A charset was found.", HTMLcharset.fromBOM(new byte[]{'<', 'a'}, 0, 2));
+    }
+    
+    @Test
+    public void checkAsciiCompatibleCharsets(){
+        assertTrue("UTF-8 is ASCII compatible.", HTMLcharset.isAsciiCompatible(StandardCharsets.UTF_8));
+        assertTrue("windows-1252 is ASCII compatible.",
+                HTMLcharset.isAsciiCompatible(Charset.forName("windows-1252")));
+        assertFalse("UTF-16 is not ASCII compatible.", HTMLcharset.isAsciiCompatible(StandardCharsets.UTF_16LE));
+    }
+    
+    @Test
+    public void checkNonAsciiCharactersAreEscapedAsUTF8(){
+        assertEquals("The hyperlink is not correct.", "/a b?c=d", HTMLcharset.escape("/a b?c=d"));
+        assertEquals("The hyperlink is not correct.", "/caf%C3%A9", HTMLcharset.escape("/caf\u00e9"));
+        assertEquals("The hyperlink is not correct.", "/%E2%82%AC/%F0%9F%98%80",
+                HTMLcharset.escape("/\u20ac/\ud83d\ude00"));
+        assertEquals("The hyperlink is not correct.", "/%EF%BF%BD", HTMLcharset.escape("/\ud83d"));
+    }
+}
\ No newline at end of file
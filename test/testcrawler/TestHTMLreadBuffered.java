@@ -0,0 +1,47 @@
+package testcrawler;
+
+import crawler.HTMLreadImplBuffered;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import org.junit.*;
+import static org.junit.Assert.*;
+
+/**
+ * This is a testing class for the HTMLreadImplBuffered class in 'Crawler'. It
+ * repeats every test from TestHTMLread against the buffered reader, using a
+ * very small buffer so that the buffer has to be refilled during each test.
+ * 
+ * @author James Hill
+ */
+public class TestHTMLreadBuffered extends TestHTMLread {
+    
+    @Before
+    @Override
+    public void prepare(){
+        super.prepare();
+        reader = new HTMLreadImplBuffered(4);
+    }
+    
+    @Test
+    public void checkReadCallsContinueFromTheSamePosition(){
+        exists = reader.readUntil(chStream, 'c', '9');
+        assertTrue("Character not found.", exists);
+        blankString = reader.readString(chStream, 'h', '9');
+        assertEquals("Incorrect string was returned.", "defg", blankString);
+        ch2 = reader.skipSpace(chStream, '9');
+        assertEquals("Incorrect character was returned.", 'i', ch2);
+    }
+    
+    @Test
+    public void checkReadStringReturnsLongString(){
+        StringBuilder longString = new StringBuilder();
+        for(int i = 0; i < 1000; i++){
+            longString.append(testString);
+        }
+        InputStream longStream = new ByteArrayInputStream(
+                (longString + "z").getBytes(StandardCharsets.ISO_8859_1));
+        blankString = reader.readString(longStream, 'z', '9');
+        assertEquals("Incorrect string was returned.", longString.toString(), blankString);
+    }
+}
\ No newline at end of file
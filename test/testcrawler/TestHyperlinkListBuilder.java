@@ -3,6 +3,7 @@ package testcrawler;
 import crawler.HyperlinkListBuilder;
 import crawler.HyperlinkListBuilderImpl;
 import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.MalformedURLException;
@@ -389,4 +390,96 @@ public class TestHyperlinkListBuilder {
         listSize = testList.size();
         assertEquals("The List size is incorrect.", 0, listSize);
     }
+    
+    @Test
+    public void checkCreateListReadsToEndOfStream(){
+        doubleString =
+                docType +
+                openHTML +
+                openBody +
+                hyperlink1 +
+                hyperlink2 +
+                closeBody +
+                closeHTML;
+        
+        // A stream that never reports any bytes as available, like a socket
+        // whose next packet has not yet arrived.
+        doubleStream = new FilterInputStream(new ByteArrayInputStream(
+                doubleString.getBytes(StandardCharsets.ISO_8859_1))){
+            @Override
+            public int available(){
+                return 0;
+            }
+        };
+        testList = build.createList(base, doubleStream);
+        listSize = testList.size();
+        assertEquals("The List size is incorrect.", 2, listSize);
+    }
+    
+    @Test
+    public void checkReadLinksPassesEachHyperlink() throws MalformedURLException{
+        doubleString =
+                docType +
+                openHTML +
+                openBody +
+                hyperlink1 +
+                hyperlink2 +
+                closeBody +
+                closeHTML;
+        doubleStream = new ByteArrayInputStream(
+                doubleString.getBytes(StandardCharsets.ISO_8859_1));
+        testList = new LinkedList<>();
+        listSize = build.readLinks(base, doubleStream, testList::add);
+        assertEquals("The count is incorrect.", 2, listSize);
+        assertEquals("The first URL is incorrect.", new URL(link1), testList.get(0));
+        assertEquals("The second URL is incorrect.", new URL(link2), testList.get(1));
+    }
+    
+    @Test
+    public void checkReadLinksPassesHyperlinkBeforeEndOfStream(){
+        StringBuilder page = new StringBuilder(docType + openHTML + openBody + hyperlink1);
+        while(page.length() < 10000){
+            page.append("<p>Padding after the hyperlink.</p>").append(sep);
+        }
+        page.append(closeBody).append(closeHTML);
+        byte[] bytes = page.toString().getBytes(StandardCharsets.ISO_8859_1);
+        
+        // Record how much of the stream had been read when the link was passed on.
+        long[] read = new long[1];
+        long[] readAtLink = new long[1];
+        InputStream counting = new FilterInputStream(new ByteArrayInputStream(bytes)){
+            @Override
+            public int read() throws IOException{
+                int b = super.read();
+                if(b != -1){read[0]++;}
+                return b;
+            }
+            
+            @Override
+            public int read(byte[] buffer, int offset, int length) throws IOException{
+                int count = super.read(buffer, offset, length);
+                if(count > 0){read[0] += count;}
+                return count;
+            }
+        };
+        build.readLinks(base, counting, link -> readAtLink[0] = read[0]);
+        assertTrue("The link was not passed on before the end.", readAtLink[0] < bytes.length / 2);
+    }
+    
+    @Test
+    public void checkHyperlinkIsDecodedInCharsetGiven() throws MalformedURLException{
+        String page = openBody + "<a href=\"caf\u00e9/\u00fcber.html\">Caf\u00e9</a>" + sep + closeBody;
+        build.setCharset(StandardCharsets.UTF_8);
+        testList = build.createList(base, new ByteArrayInputStream(page.getBytes(StandardCharsets.UTF_8)));
+        assertEquals("The List size is incorrect.", 1, testList.size());
+        assertEquals("The URL is incorrect.", new URL(base + "caf%C3%A9/%C3%BCber.html"), testList.get(0));
+    }
+    
+    @Test
+    public void checkHyperlinkIsEscapedAsUTF8WithoutCharset() throws MalformedURLException{
+        String page = openBody + "<a href=\"caf\u00e9/\">Caf\u00e9</a>" + sep + closeBody;
+        testList = build.createList(base, new ByteArrayInputStream(page.getBytes(StandardCharsets.ISO_8859_1)));
+        assertEquals("The List size is incorrect.", 1, testList.size());
+        assertEquals("The URL is incorrect.", new URL(base + "caf%C3%A9/"), testList.get(0));
+    }
 }
\ No newline at end of file
@@ -0,0 +1,147 @@
+package testcrawler;
+
+import crawler.HyperlinkListBuilderImplScanner;
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedList;
+import org.junit.*;
+import static org.junit.Assert.*;
+
+/**
+ * This is a testing class for the HyperlinkListBuilderImplScanner class in
+ * 'Crawler'. It repeats every test from TestHyperlinkListBuilder against the
+ * scanner, using a very small buffer so that tags are cut off between the
+ * blocks read from each stream.
+ * 
+ * @author James Hill
+ */
+public class TestHyperlinkListBuilderScanner extends TestHyperlinkListBuilder {
+    
+    @Before
+    @Override
+    public void prepare(){
+        build = new HyperlinkListBuilderImplScanner(4);
+    }
+    
+    /**
+     * This method returns a stream of the ISO-8859-1 bytes of a string.
+     */
+    private InputStream stream(String html){
+        return new ByteArrayInputStream(html.getBytes(StandardCharsets.ISO_8859_1));
+    }
+    
+    @Test
+    public void checkQuotedAndUnquotedHrefsAreRead() throws MalformedURLException{
+        testList = build.createList(base, stream(openBody
+                + "<a href='" + link1 + "'>One</a>"
+                + "<a class=x href=" + relative1 + ">Two</a>"
+                + "<a HREF = \" " + link2 + " \">Three</a>"
+                + closeBody));
+        assertEquals("The List size is incorrect.", 3, testList.size());
+        assertEquals("The first URL is incorrect.", new URL(link1), testList.get(0));
+        assertEquals("The second URL is incorrect.", new URL(base + relative1), testList.get(1));
+        assertEquals("The third URL is incorrect.", new URL(link2), testList.get(2));
+    }
+    
+    @Test
+    public void checkTagWithoutHrefIsSkipped() throws MalformedURLException{
+        testList = build.createList(base, stream(openBody
+                + "<a name=\"top\">Top</a>" + sep
+                + "<abbr href=\"" + link1 + "\">Not a link</abbr>" + sep
+                + "<b>Bold</b>" + sep
+                + relativeLink1 + closeBody));
+        assertEquals("The List size is incorrect.", 1, testList.size());
+        assertEquals("The URL is incorrect.", new URL(base + relative1), testList.get(0));
+    }
+    
+    @Test
+    public void checkJavaScriptInAnyCaseIsIgnored(){
+        testList = build.createList(base, stream("<a href=\"JavaScript:go()\">Go</a>"));
+        assertTrue("The returned List is not empty.", testList.isEmpty());
+    }
+    
+    @Test
+    public void checkDirectBufferIsScanned() throws MalformedURLException{
+        byte[] html = (docType + openHTML + openHead + "<base href=\"" + link2 + "\">"
+                + closeHead + openBody + relativeLink2 + hyperlink1 + closeBody + closeHTML)
+                .getBytes(StandardCharsets.ISO_8859_1);
+        ByteBuffer page = ByteBuffer.allocateDirect(html.length + 10);
+        page.position(10);
+        page.put(html);
+        page.position(10);
+        testList = new LinkedList<>();
+        listSize = build.readLinks(base, page, testList::add);
+        assertEquals("The count is incorrect.", 2, listSize);
+        assertEquals("The first URL is incorrect.", new URL(link2 + relative2), testList.get(0));
+        assertEquals("The second URL is incorrect.", new URL(link1), testList.get(1));
+        assertEquals("The position of the buffer was changed.", 10, page.position());
+    }
+    
+    @Test
+    public void checkStreamReadOneByteAtATimeIsScanned() throws MalformedURLException{
+        // A stream that returns a single byte from each read.
+        InputStream slowStream = new FilterInputStream(stream(openBody + hyperlink1
+                + hyperbaseSpaced + relativeLink1Spaced + closeBody)){
+            @Override
+            public int read(byte[] buffer, int offset, int length) throws IOException{
+                return super.read(buffer, offset, Math.min(length, 1));
+            }
+        };
+        testList = build.createList(link2, slowStream);
+        assertEquals("The List size is incorrect.", 2, testList.size());
+        assertEquals("The first URL is incorrect.", new URL(link1), testList.get(0));
+        assertEquals("The second URL is incorrect.", new URL(base + relative1), testList.get(1));
+    }
+    
+    @Test
+    public void checkMetaCharsetIsUsed() throws MalformedURLException{
+        String page = openHead + "<meta charset=\"utf-8\">" + closeHead
+                + openBody + "<a href=\"\u00e9t\u00e9/\">Summer</a>" + closeBody;
+        testList = build.createList(base, new ByteArrayInputStream(page.getBytes(StandardCharsets.UTF_8)));
+        assertEquals("The List size is incorrect.", 1, testList.size());
+        assertEquals("The URL is incorrect.", new URL(base + "%C3%A9t%C3%A9/"), testList.get(0));
+    }
+    
+    @Test
+    public void checkMetaContentTypeIsUsed() throws MalformedURLException, UnsupportedEncodingException{
+        String page = "<META http-equiv=\"Content-Type\" content=\"text/html; charset=windows-1251\">"
+                + openBody + "<a href=\"\u043c\u0438\u0440/\">Mir</a>" + closeBody;
+        testList = build.createList(base, new ByteArrayInputStream(page.getBytes("windows-1251")));
+        assertEquals("The List size is incorrect.", 1, testList.size());
+        assertEquals("The URL is incorrect.", new URL(base + "%D0%BC%D0%B8%D1%80/"), testList.get(0));
+    }
+    
+    @Test
+    public void checkCharsetGivenOverridesMeta() throws MalformedURLException{
+        String page = "<meta charset=\"utf-8\">" + openBody + "<a href=\"caf\u00e9/\">Cafe</a>" + closeBody;
+        build.setCharset(StandardCharsets.ISO_8859_1);
+        testList = build.createList(base, stream(page));
+        assertEquals("The URL is incorrect.", new URL(base + "caf%C3%A9/"), testList.get(0));
+    }
+    
+    @Test
+    public void checkByteOrderMarkIsUsed() throws MalformedURLException{
+        String page = "\ufeff" + openBody + "<a href=\"caf\u00e9/\">Cafe</a>" + relativeLink2 + closeBody;
+        build.setCharset(StandardCharsets.ISO_8859_1);
+        for(Charset charset : new Charset[]{
+                StandardCharsets.UTF_8, StandardCharsets.UTF_16BE, StandardCharsets.UTF_16LE}){
+            testList = build.createList(base, new ByteArrayInputStream(page.getBytes(charset)));
+            assertEquals("The List size is incorrect for " + charset, 2, testList.size());
+            assertEquals("The first URL is incorrect for " + charset, new URL(base + "caf%C3%A9/"), testList.get(0));
+            assertEquals("The second URL is incorrect for " + charset, new URL(base + relative2), testList.get(1));
+            
+            testList = new LinkedList<>();
+            listSize = build.readLinks(base, ByteBuffer.wrap(page.getBytes(charset)), testList::add);
+            assertEquals("The count is incorrect for " + charset, 2, listSize);
+            assertEquals("The buffered URL is incorrect for " + charset, new URL(base + "caf%C3%A9/"), testList.get(0));
+        }
+    }
+}
\ No newline at end of file
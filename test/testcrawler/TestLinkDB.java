@@ -1,18 +1,23 @@
 package testcrawler;
 
+import crawler.ErrorCategory;
+import crawler.ErrorLogImpl;
 import crawler.LinkDB;
 import crawler.LinkDBImpl;
+import crawler.TempLink;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.junit.After;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import org.junit.Before;
 import org.junit.Test;
@@ -412,4 +417,207 @@ public class TestLinkDB {
         int nextPriority = dataBase.getPriority(link3);
         assertEquals("The priorities are not identical.", 2, nextPriority);
     }
+    
+    @Test
+    public void testWriteTempIfAbsent(){
+        LinkDB dataBase = new LinkDBImpl(conn);
+        
+        // Write to database table, including a duplicate.
+        boolean written1 = dataBase.writeTempIfAbsent(1, link1);
+        boolean written2 = dataBase.writeTempIfAbsent(2, link1);
+        
+        // Test only the first link was written.
+        assertTrue("The link was not written.", written1);
+        assertFalse("The duplicate was written.", written2);
+        assertEquals("The priorities are not identical.", 1, dataBase.getPriority(link1));
+    }
+    
+    @Test
+    public void testLinkWithApostrophe(){
+        LinkDB dataBase = new LinkDBImpl(conn);
+        String quoted = "http://www.google.com/o'reilly";
+        
+        // Write to database table.
+        dataBase.writeTemp(1, quoted);
+        dataBase.writeResult(quoted);
+        
+        // Check the link can be found again.
+        assertTrue("The link is not recognized.", dataBase.checkExistsTemp(quoted));
+        assertTrue("The link is not recognized.", dataBase.checkExistsResult(quoted));
+        assertEquals("The URLs are not identical.", quoted, dataBase.getNextURL());
+    }
+    
+    @Test
+    public void testWriteTempBatch(){
+        LinkDB dataBase = new LinkDBImpl(conn);
+        
+        // Write to database table, with duplicates in the table and the list.
+        dataBase.writeTemp(1, link3);
+        int written = dataBase.writeTempBatch(2, Arrays.asList(link1, link2, link1, link3));
+        
+        // Test only the new links were written.
+        assertEquals("The count of links written is incorrect.", 2, written);
+        assertEquals("The priorities are not identical.", 2, dataBase.getPriority(link1));
+        assertEquals("The priorities are not identical.", 2, dataBase.getPriority(link2));
+        assertEquals("The priorities are not identical.", 1, dataBase.getPriority(link3));
+    }
+    
+    @Test
+    public void testPollNextReturnsLowestPriorityFirst(){
+        LinkDB dataBase = new LinkDBImpl(conn);
+        
+        // Write to database table out of priority order.
+        dataBase.writeTemp(2, link1);
+        dataBase.writeTemp(1, link2);
+        dataBase.writeTemp(1, link3);
+        
+        // Check the links are taken lowest priority first, then in order.
+        TempLink next = dataBase.pollNext();
+        assertEquals("The URLs are not identical.", link2, next.getLink());
+        assertEquals("The priorities are not identical.", 1, next.getPriority());
+        assertEquals("The URLs are not identical.", link3, dataBase.pollNext().getLink());
+        next = dataBase.pollNext();
+        assertEquals("The URLs are not identical.", link1, next.getLink());
+        assertEquals("The priorities are not identical.", 2, next.getPriority());
+        assertNull("A link was returned from an empty table.", dataBase.pollNext());
+    }
+    
+    @Test
+    public void testPollNextMarksLinkInProgress(){
+        LinkDB dataBase = new LinkDBImpl(conn);
+        
+        dataBase.writeTemp(1, link1);
+        dataBase.pollNext();
+        
+        // Check the link is no longer the next link, until visited.
+        assertEquals("The URLs are not identical.", "", dataBase.getNextURL());
+        assertEquals("The priorities are not identical.", -1, dataBase.getPriority(link1));
+        dataBase.linkVisited(link1);
+        assertEquals("The priorities are not identical.", 0, dataBase.getPriority(link1));
+    }
+    
+    @Test
+    public void testPollNextSkipsVisitedLinksAfterLowerPriorityWrite(){
+        LinkDB dataBase = new LinkDBImpl(conn);
+        String link4 = "http://www.google.com/search";
+        
+        dataBase.writeTemp(1, link1);
+        dataBase.pollNext();
+        dataBase.linkVisited(link1);
+        dataBase.writeTemp(2, link2);
+        dataBase.pollNext();
+        dataBase.linkVisited(link2);
+        
+        // Check a link written at a lower priority is taken, not a visited link.
+        dataBase.writeTemp(1, link4);
+        TempLink next = dataBase.pollNext();
+        assertEquals("The URLs are not identical.", link4, next.getLink());
+        assertEquals("The priorities are not identical.", 1, next.getPriority());
+        assertNull("A link was returned from an empty table.", dataBase.pollNext());
+    }
+    
+    @Test
+    public void testClearEmptiesTables(){
+        LinkDBImpl dataBase = new LinkDBImpl(conn, true);
+        
+        dataBase.writeTemp(1, link1);
+        dataBase.pollNext();
+        dataBase.linkVisited(link1);
+        dataBase.writeResult(link2);
+        dataBase.clear();
+        
+        // Check the links can be found and written again as for a new crawl.
+        assertFalse("The link was found.", dataBase.checkExistsTemp(link1));
+        assertFalse("The result was found.", dataBase.checkExistsResult(link2));
+        assertTrue("The link was not written.", dataBase.writeTempIfAbsent(1, link1));
+        assertEquals("The URLs are not identical.", link1, dataBase.pollNext().getLink());
+        assertTrue("The results are not empty.", dataBase.returnResults().isEmpty());
+    }
+    
+    @Test
+    public void testReopenKeepsTables(){
+        LinkDB dataBase = new LinkDBImpl(conn);
+        
+        dataBase.writeTemp(1, link1);
+        dataBase.writeResult(link2);
+        
+        // Check a second object on the same database keeps the rows.
+        dataBase = new LinkDBImpl(conn);
+        assertEquals("The priorities are not identical.", 1, dataBase.getPriority(link1));
+        assertTrue("The result was not kept.", dataBase.checkExistsResult(link2));
+    }
+    
+    @Test
+    public void testRequeueInProgress(){
+        LinkDB dataBase = new LinkDBImpl(conn);
+        
+        dataBase.writeTemp(1, link1);
+        dataBase.writeTemp(2, link2);
+        dataBase.writeTemp(2, link3);
+        dataBase.pollNext();
+        dataBase.pollNext();
+        dataBase.linkVisited(link1);
+        
+        // Check only the link still in progress is taken again.
+        dataBase = new LinkDBImpl(conn);
+        assertEquals("The links requeued are not correct.", 1, dataBase.requeueInProgress());
+        assertEquals("The priorities are not identical.", 2, dataBase.getPriority(link2));
+        assertEquals("The URLs are not identical.", link2, dataBase.pollNext().getLink());
+        assertEquals("The URLs are not identical.", link3, dataBase.pollNext().getLink());
+        assertNull("A link was returned from an empty table.", dataBase.pollNext());
+    }
+    
+    @Test
+    public void testFingerprintsFindLinks(){
+        LinkDB dataBase = new LinkDBImpl(conn, true);
+        
+        dataBase.writeTemp(1, link1);
+        dataBase.writeResult(link2);
+        assertTrue("The link was not found.", dataBase.checkExistsTemp(link1));
+        assertFalse("A link that was not written was found.", dataBase.checkExistsTemp(link2));
+        assertTrue("The result was not found.", dataBase.checkExistsResult(link2));
+        assertFalse("The link was written twice.", dataBase.writeTempIfAbsent(2, link1));
+        assertTrue("The link was not written.", dataBase.writeTempIfAbsent(2, link3));
+        assertEquals("The priorities are not identical.", 2, dataBase.getPriority(link3));
+    }
+    
+    @Test
+    public void testFingerprintsSkipLinksInBatch(){
+        LinkDB dataBase = new LinkDBImpl(conn, true);
+        
+        dataBase.writeTemp(1, link1);
+        int written = dataBase.writeTempBatch(2, Arrays.asList(link1, link2, link2, link3));
+        assertEquals("The number written is not correct.", 2, written);
+        assertTrue("The link was not found.", dataBase.checkExistsTemp(link3));
+        assertEquals("The priorities are not identical.", 1, dataBase.getPriority(link1));
+    }
+    
+    @Test
+    public void testFingerprintsAreReadFromTables(){
+        LinkDB dataBase = new LinkDBImpl(conn);
+        
+        dataBase.writeTemp(1, link1);
+        dataBase.writeResult(link2);
+        
+        // Check a second object reads the links already in the tables.
+        dataBase = new LinkDBImpl(conn, true);
+        assertTrue("The link was not found.", dataBase.checkExistsTemp(link1));
+        assertTrue("The result was not found.", dataBase.checkExistsResult(link2));
+        assertFalse("The link was written twice.", dataBase.writeTempIfAbsent(1, link1));
+    }
+    
+    @Test
+    public void testFailedLookupIsReportedAndNotTakenAsFound() throws SQLException{
+        LinkDB dataBase = new LinkDBImpl(conn);
+        ErrorLogImpl errors = new ErrorLogImpl();
+        dataBase.setErrorLog(errors);
+        dataBase.writeTemp(1, link1);
+        dataBase.writeResult(link1);
+        
+        // Test a link is not taken to exist when the database has failed.
+        conn.close();
+        assertFalse("The link was found.", dataBase.checkExistsTemp(link1));
+        assertFalse("The result was found.", dataBase.checkExistsResult(link1));
+        assertEquals("The errors were not reported.", 2, errors.getCount(ErrorCategory.DB));
+    }
 }
\ No newline at end of file
@@ -0,0 +1,256 @@
+package testcrawler;
+
+import crawler.LinkDB;
+import crawler.LinkDBImplMemory;
+import crawler.TempLink;
+import java.util.Arrays;
+import java.util.LinkedList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * This is a testing class for the LinkDBImplMemory class. It repeats the
+ * tests from TestLinkDB that do not read the database tables directly.
+ * 
+ * @author James Hill
+ */
+public class TestLinkDBMemory {
+    
+    // The object being tested.
+    LinkDB dataBase;
+    
+    // Strings representing hyperlinks.
+    String link1 = "https://wikileaks.org";
+    String link2 = "http://www.google.com";
+    String link3 = "https://wikileaks.org/index.en.html/index";
+    
+    @Before
+    public void prepare(){
+        dataBase = new LinkDBImplMemory();
+    }
+    
+    @Test
+    public void testCheckExistsTemp(){
+        // Write to the table.
+        dataBase.writeTemp(1, link1);
+        dataBase.writeTemp(2, link2);
+        dataBase.writeTemp(3, link3);
+        
+        // Test for duplicates.
+        assertTrue("The duplicate is not recognized.", dataBase.checkExistsTemp(link1));
+        assertTrue("The duplicate is not recognized.", dataBase.checkExistsTemp(link2));
+        assertTrue("The duplicate is not recognized.", dataBase.checkExistsTemp(link3));
+    }
+    
+    @Test
+    public void testCheckExistsTempFails(){
+        dataBase.writeTemp(1, link1);
+        dataBase.writeTemp(2, link2);
+        dataBase.writeTemp(3, link3);
+        assertFalse("The duplicate is not recognized.", dataBase.checkExistsTemp("https://github.com/"));
+    }
+    
+    @Test
+    public void testCheckExistsResults(){
+        // Write to the table.
+        dataBase.writeResult(link1);
+        dataBase.writeResult(link2);
+        dataBase.writeResult(link3);
+        
+        // Test for duplicates.
+        assertTrue("The duplicate is not recognized.", dataBase.checkExistsResult(link1));
+        assertTrue("The duplicate is not recognized.", dataBase.checkExistsResult(link2));
+        assertTrue("The duplicate is not recognized.", dataBase.checkExistsResult(link3));
+    }
+    
+    @Test
+    public void testCheckExistsResultsFails(){
+        dataBase.writeResult(link1);
+        dataBase.writeResult(link2);
+        dataBase.writeResult(link3);
+        assertFalse("The duplicate is not recognized.", dataBase.checkExistsResult("https://github.com/"));
+    }
+    
+    @Test
+    public void checkLinkVisitedChangesPriority(){
+        dataBase.writeTemp(1, link1);
+        dataBase.writeTemp(2, link2);
+        dataBase.writeTemp(3, link3);
+        
+        // Rewrite priorities.
+        dataBase.linkVisited(link1);
+        dataBase.linkVisited(link2);
+        dataBase.linkVisited(link3);
+        
+        assertEquals("The priorities are not identical.", 0, dataBase.getPriority(link1));
+        assertEquals("The priorities are not identical.", 0, dataBase.getPriority(link2));
+        assertEquals("The priorities are not identical.", 0, dataBase.getPriority(link3));
+    }
+    
+    @Test
+    public void testLowestPriorityReturned(){
+        dataBase.writeTemp(0, link1);
+        dataBase.writeTemp(1, link2);
+        dataBase.writeTemp(2, link3);
+        
+        // Rewrite priorities.
+        dataBase.linkVisited(link2);
+        
+        // Check next priority link3.
+        assertEquals("The URLs are not identical.", link3, dataBase.getNextURL());
+    }
+    
+    @Test
+    public void testLowestPriorityReturnedWhenWrittenOutOfOrder(){
+        dataBase.writeTemp(3, link1);
+        dataBase.writeTemp(2, link2);
+        dataBase.writeTemp(1, link3);
+        
+        assertEquals("The URLs are not identical.", link3, dataBase.getNextURL());
+        assertEquals("The priorities are not identical.", 1, dataBase.getNextPriority());
+    }
+    
+    @Test
+    public void testLowestPriorityReturnedWithMultipleSamePriority(){
+        dataBase.writeTemp(0, link1);
+        dataBase.writeTemp(1, link2);
+        dataBase.writeTemp(1, link3);
+        
+        assertEquals("The URLs are not identical.", link2, dataBase.getNextURL());
+    }
+    
+    @Test
+    public void testLowestPriorityReturnedProducesErrorOnAllZeroes(){
+        dataBase.writeTemp(0, link1);
+        dataBase.writeTemp(0, link2);
+        dataBase.writeTemp(0, link3);
+        
+        assertEquals("The URLs are not identical.", "", dataBase.getNextURL());
+        assertEquals("The priorities are not identical.", -1, dataBase.getNextPriority());
+    }
+    
+    @Test
+    public void testReturnResults(){
+        LinkedList<String> results;
+        
+        dataBase.writeResult(link1);
+        dataBase.writeResult(link2);
+        dataBase.writeResult(link3);
+        
+        // Check the results are returned in the order they were written.
+        results = dataBase.returnResults();
+        assertEquals("The results table is the wrong size", 3, results.size());
+        assertEquals("The links are not identical.", link1, results.get(0));
+        assertEquals("The links are not identical.", link3, results.get(2));
+    }
+    
+    @Test
+    public void testPrioritySet(){
+        dataBase.writeTemp(0, link1);
+        dataBase.writeTemp(1, link2);
+        dataBase.writeTemp(2, link3);
+        
+        // Rewrite priorities.
+        dataBase.linkVisited(link2);
+        dataBase.linkVisited(link3);
+        
+        assertEquals("The URLs are not identical.", "", dataBase.getNextURL());
+    }
+    
+    @Test
+    public void testGetNextPriority(){
+        dataBase.writeTemp(0, link1);
+        dataBase.writeTemp(1, link2);
+        dataBase.writeTemp(2, link3);
+        
+        // Rewrite priorities.
+        dataBase.linkVisited(link2);
+        
+        assertEquals("The priorities are not identical.", 2, dataBase.getNextPriority());
+    }
+    
+    @Test
+    public void testGetPriority(){
+        dataBase.writeTemp(0, link1);
+        dataBase.writeTemp(1, link2);
+        dataBase.writeTemp(2, link3);
+        
+        // Rewrite priorities.
+        dataBase.linkVisited(link2);
+        
+        assertEquals("The priorities are not identical.", 2, dataBase.getPriority(link3));
+        assertEquals("The priorities are not identical.", -1, dataBase.getPriority("https://github.com/"));
+    }
+    
+    @Test
+    public void testWriteTempIfAbsent(){
+        // Write to the table, including a duplicate.
+        assertTrue("The link was not written.", dataBase.writeTempIfAbsent(1, link1));
+        assertFalse("The duplicate was written.", dataBase.writeTempIfAbsent(2, link1));
+        assertEquals("The priorities are not identical.", 1, dataBase.getPriority(link1));
+    }
+    
+    @Test
+    public void testWriteTempBatch(){
+        // Write to database table, with duplicates in the table and the list.
+        dataBase.writeTemp(1, link3);
+        int written = dataBase.writeTempBatch(2, Arrays.asList(link1, link2, link1, link3));
+        
+        // Test only the new links were written.
+        assertEquals("The count of links written is incorrect.", 2, written);
+        assertEquals("The priorities are not identical.", 2, dataBase.getPriority(link1));
+        assertEquals("The priorities are not identical.", 2, dataBase.getPriority(link2));
+        assertEquals("The priorities are not identical.", 1, dataBase.getPriority(link3));
+    }
+    
+    @Test
+    public void testPollNextReturnsLowestPriorityFirst(){
+        // Write to database table out of priority order.
+        dataBase.writeTemp(2, link1);
+        dataBase.writeTemp(1, link2);
+        dataBase.writeTemp(1, link3);
+        
+        // Check the links are taken lowest priority first, then in order.
+        TempLink next = dataBase.pollNext();
+        assertEquals("The URLs are not identical.", link2, next.getLink());
+        assertEquals("The priorities are not identical.", 1, next.getPriority());
+        assertEquals("The URLs are not identical.", link3, dataBase.pollNext().getLink());
+        next = dataBase.pollNext();
+        assertEquals("The URLs are not identical.", link1, next.getLink());
+        assertEquals("The priorities are not identical.", 2, next.getPriority());
+        assertNull("A link was returned from an empty table.", dataBase.pollNext());
+    }
+    
+    @Test
+    public void testPollNextMarksLinkInProgress(){
+        dataBase.writeTemp(1, link1);
+        dataBase.pollNext();
+        
+        // Check the link is no longer the next link, until visited.
+        assertEquals("The URLs are not identical.", "", dataBase.getNextURL());
+        assertEquals("The priorities are not identical.", -1, dataBase.getPriority(link1));
+        dataBase.linkVisited(link1);
+        assertEquals("The priorities are not identical.", 0, dataBase.getPriority(link1));
+    }
+    
+    @Test
+    public void testRequeueInProgress(){
+        dataBase.writeTemp(1, link1);
+        dataBase.writeTemp(2, link2);
+        dataBase.writeTemp(2, link3);
+        dataBase.pollNext();
+        dataBase.pollNext();
+        dataBase.linkVisited(link1);
+        
+        // Check only the link still in progress is taken again.
+        assertEquals("The links requeued are not correct.", 1, dataBase.requeueInProgress());
+        assertEquals("The priorities are not identical.", 2, dataBase.getPriority(link2));
+        assertEquals("The URLs are not identical.", link2, dataBase.pollNext().getLink());
+        assertEquals("The URLs are not identical.", link3, dataBase.pollNext().getLink());
+        assertNull("A link was returned from an empty table.", dataBase.pollNext());
+    }
+}
\ No newline at end of file
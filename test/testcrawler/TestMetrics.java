@@ -0,0 +1,122 @@
+package testcrawler;
+
+import crawler.Histogram;
+import crawler.MetricsRegistry;
+import crawler.MetricsReporter;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ * This is a testing class for the Histogram, MetricsRegistry and
+ * MetricsReporter classes in 'Crawler'.
+ * 
+ * @author James Hill
+ */
+public class TestMetrics {
+    
+    @Test
+    public void testHistogramPercentilesAreWithinBucket(){
+        Histogram histogram = new Histogram();
+        for(long i = 1; i <= 100000; i++){
+            histogram.record(i);
+        }
+        assertEquals("The count is not correct.", 100000, histogram.getCount());
+        assertEquals("The mean is not correct.", 50000.5, histogram.getMean(), 0.001);
+        assertEquals("The maximum is not correct.", 100000, histogram.getMax());
+        for(double percentile : new double[]{50, 90, 99}){
+            double expected = percentile * 1000;
+            assertEquals("The percentile is not correct.", expected,
+                    histogram.getValueAtPercentile(percentile), expected * 0.07);
+        }
+        assertEquals("The percentile is not correct.", 100000, histogram.getValueAtPercentile(100));
+    }
+    
+    @Test
+    public void testHistogramKeepsSmallValuesExactly(){
+        Histogram histogram = new Histogram();
+        histogram.record(3);
+        histogram.record(7);
+        histogram.record(-5);
+        assertEquals("The count is not correct.", 3, histogram.getCount());
+        assertEquals("The percentile is not correct.", 0, histogram.getValueAtPercentile(1));
+        assertEquals("The percentile is not correct.", 3, histogram.getValueAtPercentile(50));
+        assertEquals("The percentile is not correct.", 7, histogram.getValueAtPercentile(99));
+        histogram.reset();
+        assertEquals("The count is not correct.", 0, histogram.getCount());
+        assertEquals("The percentile is not correct.", 0, histogram.getValueAtPercentile(50));
+    }
+    
+    @Test
+    public void testHistogramCountsValuesFromManyThreads() throws InterruptedException{
+        Histogram histogram = new Histogram();
+        Thread[] threads = new Thread[4];
+        for(int t = 0; t < threads.length; t++){
+            threads[t] = new Thread(() -> {
+                for(int i = 0; i < 10000; i++){histogram.record(i);}
+            });
+            threads[t].start();
+        }
+        for(Thread thread : threads){thread.join();}
+        assertEquals("The count is not correct.", 40000, histogram.getCount());
+        assertEquals("The maximum is not correct.", 9999, histogram.getMax());
+    }
+    
+    @Test
+    public void testSnapshotHasEveryMetric(){
+        MetricsRegistry metrics = new MetricsRegistry();
+        metrics.counter("pages").add(5);
+        metrics.histogram("latency").record(100);
+        metrics.gauge("rate", () -> 2.5);
+        Map<String, Number> values = metrics.snapshot();
+        assertEquals("The counter is not correct.", 5L, values.get("pages"));
+        assertEquals("The count is not correct.", 1L, values.get("latency.count"));
+        assertEquals("The percentile is not correct.", 100L, values.get("latency.p99"));
+        assertEquals("The gauge is not correct.", 2.5, values.get("rate"));
+        
+        // Test resetting keeps the metrics but clears them.
+        metrics.reset();
+        values = metrics.snapshot();
+        assertEquals("The counter is not correct.", 0L, values.get("pages"));
+        assertEquals("The count is not correct.", 0L, values.get("latency.count"));
+    }
+    
+    @Test
+    public void testReporterWritesHeaderWhenMetricsChange(){
+        MetricsRegistry metrics = new MetricsRegistry();
+        metrics.counter("pages").increment();
+        StringWriter text = new StringWriter();
+        MetricsReporter reporter = new MetricsReporter(metrics, new PrintWriter(text), true);
+        reporter.report();
+        reporter.report();
+        metrics.counter("errors").increment();
+        reporter.close();
+        String[] lines = text.toString().split("\\R");
+        assertEquals("The number of lines is not correct.", 5, lines.length);
+        assertEquals("The header is not correct.", "time,pages", lines[0]);
+        assertTrue("The row is not correct.", lines[2].endsWith(",1"));
+        assertEquals("The header is not correct.", "time,errors,pages", lines[3]);
+        assertTrue("The row is not correct.", lines[4].endsWith(",1,1"));
+    }
+    
+    @Test
+    public void testMetricsAreReadThroughJMX() throws JMException{
+        MetricsRegistry metrics = new MetricsRegistry();
+        metrics.counter("pages.fetched").add(3);
+        ObjectName name = metrics.register("crawler:type=Metrics,name=test");
+        try {
+            assertEquals("The attribute is not correct.", 3L,
+                    ManagementFactory.getPlatformMBeanServer().getAttribute(name, "pages.fetched"));
+        } finally {
+            MetricsRegistry.unregister(name);
+        }
+        assertFalse("The MBean is still registered.", ManagementFactory.getPlatformMBeanServer().isRegistered(name));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,155 @@
+package testcrawler;
+
+import crawler.NioFetcher;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * This is a testing class for the NioFetcher class in 'Crawler'. The pages
+ * are served by a SiteSimulator.
+ * 
+ * @author James Hill
+ */
+public class TestNioFetcher {
+    
+    SiteSimulator site;
+    NioFetcher fetcher;
+    BlockingQueue<NioFetcher.Response> responses = new LinkedBlockingQueue<>();
+    
+    @Before
+    public void setup() throws IOException{
+        site = new SiteSimulator(3, 3, 4096, 0);
+        site.start();
+        fetcher = new NioFetcher();
+    }
+    
+    @After
+    public void cleanup(){
+        fetcher.close();
+        site.stop();
+    }
+    
+    /**
+     * This method fetches a page and waits for its response.
+     */
+    private NioFetcher.Response fetch(String url) throws IOException, InterruptedException{
+        fetcher.fetch(new URL(url), null, responses::add);
+        NioFetcher.Response response = responses.poll(10, TimeUnit.SECONDS);
+        assertNotNull("No response was received.", response);
+        return response;
+    }
+    
+    /**
+     * This method returns the bytes of a body.
+     */
+    private byte[] bytes(ByteBuffer body){
+        byte[] bytes = new byte[body.remaining()];
+        body.duplicate().get(bytes);
+        return bytes;
+    }
+    
+    @Test
+    public void checkPageIsFetched() throws IOException, InterruptedException{
+        NioFetcher.Response response = fetch(site.url(1));
+        assertNull("An error was reported.", response.getError());
+        assertEquals("The status is not correct.", 200, response.getStatus());
+        assertEquals("The header is not correct.", "text/html; charset=ISO-8859-1",
+                response.getHeader("content-type"));
+        assertArrayEquals("The body is not correct.", site.page(1), bytes(response.getBody()));
+    }
+    
+    @Test
+    public void checkMissingPageIsFetched() throws IOException, InterruptedException{
+        NioFetcher.Response response = fetch(site.url(site.getPageCount()));
+        assertEquals("The status is not correct.", 404, response.getStatus());
+        assertEquals("The body is not correct.", 0, response.getBody().remaining());
+    }
+    
+    @Test
+    public void checkChunkedPageIsFetched() throws IOException, InterruptedException{
+        site.setChunked(true);
+        site.setChunkDelay(10);
+        NioFetcher.Response response = fetch(site.getHome());
+        assertEquals("The status is not correct.", 200, response.getStatus());
+        assertArrayEquals("The body is not correct.", site.page(0), bytes(response.getBody()));
+        
+        // Test the connection can be used again after a chunked body.
+        response = fetch(site.url(2));
+        assertArrayEquals("The body is not correct.", site.page(2), bytes(response.getBody()));
+        assertEquals("The connections are not correct.", 1, site.getConnectionCount());
+    }
+    
+    @Test
+    public void checkConnectionIsUsedAgain() throws IOException, InterruptedException{
+        for(int i = 0; i < 5; i++){
+            assertEquals("The status is not correct.", 200, fetch(site.url(i)).getStatus());
+        }
+        assertEquals("The connections are not correct.", 1, fetcher.getConnectionsOpened());
+        assertEquals("The connections are not correct.", 1, site.getConnectionCount());
+    }
+    
+    @Test
+    public void checkUnchangedPageIsNotSentAgain() throws IOException, InterruptedException{
+        String eTag = fetch(site.url(3)).getHeader("ETag");
+        fetcher.fetch(new URL(site.url(3)), Collections.singletonMap("If-None-Match", eTag), responses::add);
+        NioFetcher.Response response = responses.poll(10, TimeUnit.SECONDS);
+        assertEquals("The status is not correct.", 304, response.getStatus());
+        assertEquals("The body is not correct.", 0, response.getBody().remaining());
+        assertEquals("The 304 responses are not correct.", 1, site.getNotModifiedCount());
+    }
+    
+    @Test
+    public void checkManyPagesAreFetchedAtOnce() throws IOException, InterruptedException{
+        // Serve every page slowly, and request twenty at once.
+        SiteSimulator slowSite = new SiteSimulator(4, 2, 4096, 200);
+        slowSite.start();
+        try {
+            for(int i = 0; i < 20; i++){
+                fetcher.fetch(new URL(slowSite.url(i)), null, responses::add);
+            }
+            List<NioFetcher.Response> received = new ArrayList<>();
+            for(int i = 0; i < 20; i++){
+                received.add(responses.poll(10, TimeUnit.SECONDS));
+            }
+            
+            // Test every page was read, and that the pages were served together.
+            for(NioFetcher.Response response : received){
+                assertNotNull("No response was received.", response);
+                assertEquals("The status is not correct.", 200, response.getStatus());
+            }
+            assertEquals("The connections are not correct.", 20, slowSite.getConnectionCount());
+            assertTrue("The pages were not fetched at once.", slowSite.getMostConcurrentRequests() >= 10);
+        } finally {
+            slowSite.stop();
+        }
+    }
+    
+    @Test
+    public void checkRefusedConnectionIsReported() throws IOException, InterruptedException{
+        int port;
+        try (ServerSocket unused = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            port = unused.getLocalPort();
+        }
+        NioFetcher.Response response = fetch("http://127.0.0.1:" + port + "/");
+        assertNotNull("No error was reported.", response.getError());
+        assertEquals("The status is not correct.", 0, response.getStatus());
+        assertNull("A body was returned.", response.getBody());
+    }
+}
\ No newline at end of file
@@ -0,0 +1,137 @@
+package testcrawler;
+
+import crawler.CachedPage;
+import crawler.ErrorLogImpl;
+import crawler.PageCacheImpl;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * This is a testing class for the PageCacheImpl class in 'Crawler'.
+ * 
+ * @author James Hill
+ */
+public class TestPageCache {
+    
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+    
+    File directory;
+    PageCacheImpl cache;
+    CachedPage page;
+    
+    // Strings for the cached pages.
+    String url1 = "http://www.example.com/";
+    String url2 = "http://www.example.com/about/";
+    String url3 = "http://www.example.com/news/";
+    String eTag = "\"abc123\"";
+    String lastModified = "Wed, 21 Oct 2015 07:28:00 GMT";
+    List<String> links = Arrays.asList("http://www.example.com/about/",
+            "http://www.example.com/news/");
+    
+    @Before
+    public void prepare() throws IOException{
+        directory = folder.newFolder("cache");
+        cache = new PageCacheImpl(directory);
+    }
+    
+    @Test
+    public void checkGetReturnsNullForMissingPage(){
+        page = cache.get(url1);
+        assertNull("A page was returned.", page);
+    }
+    
+    @Test
+    public void checkGetReturnsStoredPage(){
+        cache.put(url1, eTag, lastModified, links);
+        page = cache.get(url1);
+        assertNotNull("No page was returned.", page);
+        assertEquals("The ETag is not correct.", eTag, page.getETag());
+        assertEquals("The date is not correct.", lastModified, page.getLastModified());
+        assertEquals("The links are not correct.", links, page.getLinks());
+    }
+    
+    @Test
+    public void checkPutStoresPageWithOneValidator(){
+        cache.put(url1, null, lastModified, links);
+        page = cache.get(url1);
+        assertNull("The ETag is not correct.", page.getETag());
+        assertEquals("The date is not correct.", lastModified, page.getLastModified());
+    }
+    
+    @Test
+    public void checkPutWithoutValidatorsRemovesPage(){
+        cache.put(url1, eTag, lastModified, links);
+        cache.put(url1, null, null, links);
+        page = cache.get(url1);
+        assertNull("A page was returned.", page);
+        assertEquals("The size is not correct.", 0, cache.getSize());
+    }
+    
+    @Test
+    public void checkPutReplacesPage(){
+        cache.put(url1, eTag, lastModified, links);
+        cache.put(url1, "\"def456\"", null, Collections.<String>emptyList());
+        page = cache.get(url1);
+        assertEquals("The ETag is not correct.", "\"def456\"", page.getETag());
+        assertEquals("The links are not correct.", 0, page.getLinks().size());
+        assertEquals("The count is not correct.", 1, cache.getPageCount());
+    }
+    
+    @Test
+    public void checkPagesAreKeptBetweenSessions(){
+        cache.put(url1, eTag, lastModified, links);
+        cache = new PageCacheImpl(directory);
+        page = cache.get(url1);
+        assertNotNull("No page was returned.", page);
+        assertEquals("The links are not correct.", links, page.getLinks());
+    }
+    
+    @Test
+    public void checkLeastRecentlyUsedPageIsRemoved(){
+        cache.put(url1, eTag, lastModified, links);
+        long pageSize = cache.getSize();
+        
+        // A cache with room for two pages but not three.
+        cache = new PageCacheImpl(directory, pageSize * 2 + pageSize / 2);
+        cache.put(url2, eTag, lastModified, links);
+        cache.get(url1);
+        cache.put(url3, eTag, lastModified, links);
+        assertNotNull("The used page was removed.", cache.get(url1));
+        assertNull("The unused page was kept.", cache.get(url2));
+        assertNotNull("The new page was removed.", cache.get(url3));
+        assertEquals("The evictions are not correct.", 1, cache.getEvictions());
+    }
+    
+    @Test
+    public void checkHitRateCountsLookupsAndHits(){
+        cache.put(url1, eTag, lastModified, links);
+        cache.get(url1);
+        cache.recordHit(url1);
+        cache.get(url2);
+        assertEquals("The lookups are not correct.", 2, cache.getLookups());
+        assertEquals("The hits are not correct.", 1, cache.getHits());
+        assertEquals("The hit rate is not correct.", 0.5, cache.getHitRate(), 0.0001);
+    }
+    
+    @Test
+    public void checkUnreadablePageIsReportedToLog() throws IOException{
+        Files.write(new File(directory, "broken.page").toPath(), new byte[]{1});
+        cache = new PageCacheImpl(directory);
+        ErrorLogImpl errors = new ErrorLogImpl();
+        cache.setErrorLog(errors);
+        assertEquals("The count is not correct.", 0, cache.getPageCount());
+        assertEquals("The error was not reported.", 1, errors.getTotal());
+    }
+}
\ No newline at end of file
@@ -0,0 +1,91 @@
+package testcrawler;
+
+import crawler.URLCanonicaliser;
+import crawler.URLCanonicaliserImpl;
+import java.net.MalformedURLException;
+import java.net.URL;
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+
+/**
+ * This is a testing class for the URLCanonicaliserImpl class in 'Crawler'.
+ * 
+ * @author James Hill
+ */
+public class TestURLCanonicaliser {
+    
+    URLCanonicaliser canonicaliser = new URLCanonicaliserImpl();
+    
+    /**
+     * This method returns the canonical form of a URL as a string.
+     */
+    private String canonical(String url) throws MalformedURLException{
+        return canonicaliser.canonicalise(new URL(url)).toString();
+    }
+    
+    @Test
+    public void checkSchemeAndHostAreLowerCase() throws MalformedURLException{
+        assertEquals("The URL is not correct.", "http://www.example.com/About",
+                canonical("HTTP://WWW.Example.COM/About"));
+    }
+    
+    @Test
+    public void checkDefaultPortIsRemoved() throws MalformedURLException{
+        assertEquals("The URL is not correct.", "http://example.com/a", canonical("http://example.com:80/a"));
+        assertEquals("The URL is not correct.", "https://example.com/a", canonical("https://example.com:443/a"));
+        assertEquals("The URL is not correct.", "http://example.com:8080/a", canonical("http://example.com:8080/a"));
+    }
+    
+    @Test
+    public void checkFragmentIsRemoved() throws MalformedURLException{
+        assertEquals("The URL is not correct.", "http://example.com/a", canonical("http://example.com/a#top"));
+    }
+    
+    @Test
+    public void checkDotSegmentsAreRemoved() throws MalformedURLException{
+        assertEquals("The URL is not correct.", "http://example.com/a", canonical("http://example.com/./a"));
+        assertEquals("The URL is not correct.", "http://example.com/b/c", canonical("http://example.com/a/../b/./c"));
+        assertEquals("The URL is not correct.", "http://example.com/a/", canonical("http://example.com/a/b/.."));
+        assertEquals("The URL is not correct.", "http://example.com/a", canonical("http://example.com/../../a"));
+    }
+    
+    @Test
+    public void checkEmptyPathAndQueryAreRemoved() throws MalformedURLException{
+        assertEquals("The URL is not correct.", "http://example.com/", canonical("http://example.com"));
+        assertEquals("The URL is not correct.", "http://example.com/a", canonical("http://example.com/a?"));
+    }
+    
+    @Test
+    public void checkEscapesAreNormalised() throws MalformedURLException{
+        assertEquals("The URL is not correct.", "http://example.com/~user/a%2Fb",
+                canonical("http://example.com/%7euser/a%2fb"));
+    }
+    
+    @Test
+    public void checkQueryIsKeptByDefault() throws MalformedURLException{
+        assertEquals("The URL is not correct.", "http://example.com/a?b=2&utm_source=x&a=1",
+                canonical("http://example.com/a?b=2&utm_source=x&a=1"));
+    }
+    
+    @Test
+    public void checkQueryIsSorted() throws MalformedURLException{
+        canonicaliser = new URLCanonicaliserImpl(true, false);
+        assertEquals("The URL is not correct.", "http://example.com/a?a=1&b=2&b=1",
+                canonical("http://example.com/a?b=2&a=1&b=1"));
+    }
+    
+    @Test
+    public void checkTrackingParametersAreRemoved() throws MalformedURLException{
+        canonicaliser = new URLCanonicaliserImpl(false, true);
+        assertEquals("The URL is not correct.", "http://example.com/a?id=3",
+                canonical("http://example.com/a?UTM_Source=x&id=3&gclid=abc"));
+        assertEquals("The URL is not correct.", "http://example.com/a",
+                canonical("http://example.com/a?utm_medium=email"));
+    }
+    
+    @Test
+    public void checkOtherSchemesAreUnchanged() throws MalformedURLException{
+        assertEquals("The URL is not correct.", "ftp://Example.com:21/./a#b",
+                canonical("ftp://Example.com:21/./a#b"));
+    }
+}
\ No newline at end of file
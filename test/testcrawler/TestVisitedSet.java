@@ -0,0 +1,81 @@
+package testcrawler;
+
+import crawler.VisitedSetImpl;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ * This is a testing class for the VisitedSetImpl class in 'Crawler'.
+ * 
+ * @author James Hill
+ */
+public class TestVisitedSet {
+    
+    VisitedSetImpl set;
+    
+    // Strings representing hyperlinks.
+    String link1 = "https://wikileaks.org";
+    String link2 = "http://www.google.com";
+    String prefix = "http://www.example.com/page/";
+    
+    @Test
+    public void checkAddedLinkIsFound(){
+        set = new VisitedSetImpl();
+        assertFalse("A link was found in an empty set.", set.contains(link1));
+        assertTrue("The link was not added.", set.add(link1));
+        assertTrue("The link was not found.", set.contains(link1));
+        assertFalse("A link that was not added was found.", set.contains(link2));
+    }
+    
+    @Test
+    public void checkLinkIsOnlyAddedOnce(){
+        set = new VisitedSetImpl();
+        set.add(link1);
+        assertFalse("The link was added twice.", set.add(link1));
+        assertEquals("The size is not correct.", 1, set.size());
+    }
+    
+    @Test
+    public void checkSetGrowsPastItsStartingSize(){
+        set = new VisitedSetImpl();
+        long startingMemory = set.getMemoryUsed();
+        for(int i = 0; i < 100000; i++){
+            assertTrue("A new link was not added.", set.add(prefix + i));
+        }
+        
+        // Test every link is still found after the tables have grown.
+        assertEquals("The size is not correct.", 100000, set.size());
+        assertTrue("The tables have not grown.", set.getMemoryUsed() > startingMemory);
+        for(int i = 0; i < 100000; i++){
+            assertTrue("A link was lost.", set.contains(prefix + i));
+            assertFalse("A link that was not added was found.", set.contains(prefix + "missing/" + i));
+        }
+    }
+    
+    @Test
+    public void checkMemoryPerLinkIsSmall(){
+        set = new VisitedSetImpl();
+        for(int i = 0; i < 100000; i++){
+            set.add(prefix + i);
+        }
+        assertTrue("The memory per link is too large.", set.getMemoryUsed() / set.size() <= 22);
+    }
+    
+    @Test
+    public void checkBloomFilterFindsEveryLink(){
+        set = new VisitedSetImpl(1000, true);
+        
+        // Add more links than expected so the filter fills up.
+        for(int i = 0; i < 10000; i++){
+            set.add(prefix + i);
+        }
+        assertFalse("The link was added twice.", set.add(prefix + 5));
+        assertEquals("The size is not correct.", 10000, set.size());
+        for(int i = 0; i < 10000; i++){
+            assertTrue("A link was lost.", set.contains(prefix + i));
+            assertFalse("A link that was not added was found.", set.contains(prefix + "missing/" + i));
+        }
+    }
+}
\ No newline at end of file
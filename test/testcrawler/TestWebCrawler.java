@@ -1,110 +1,605 @@
-// FURTHER WORK NEEDED TO CREATE A USEFUL TESTING ENVIRONMENT
-//
-// This test class has been ignored due to the difficulty of setting up a
-// set of webpages that can be tested on.
-//
-//
-//package testcrawler;
-//
-//import crawler.WebCrawler;
-//import crawler.WebCrawlerImplNoSearch;
-//import java.net.URL;
-//import java.sql.Connection;
-//import java.sql.DriverManager;
-//import java.sql.SQLException;
-//import java.util.LinkedList;
-//import static org.junit.Assert.assertEquals;
-//import static org.junit.Assert.assertTrue;
-//import org.junit.Before;
-//import org.junit.Test;
-//
-///**
-// * This is a testing class for the HyperlinkListBuilder class in 'Crawler'.
-// * 
-// * @author James Hill
-// */
-//public class TestWebCrawler {
-//    
-//    Connection conn;
-//    
-//    LinkedList<String> crawlList;
-//    
-//    String testSite = "http://testingsite8.webnode.com/";
-//    
-//    // A list of expected hyperlinks.
-//    String link1 = "http://us.webnode.com/personal-websites/";
-//    
-//    // A list of relative hyperlinks.
-//    String rel1 = "/testpage1/";
-//    String rel2 = "/testpage2/";
-//    String rel3 = "/testpage3/";
-//    
-//    // Strings for the database.
-//    static String dbName = "testDB;";
-//    static String protocol = "jdbc:derby:memory:";
-//    
-//    URL testURL;
-//    
-//    WebCrawler crawlie;
-//    
-//    @Before
-//    public void setup(){
-//        try {
-//            String driver = "org.apache.derby.jdbc.EmbeddedDriver";
-//            Class.forName(driver).newInstance();
-//            conn = DriverManager.getConnection(protocol + dbName + "create=true");
-//        } catch (ClassNotFoundException | IllegalAccessException | InstantiationException | SQLException exc) {
-//            System.err.println("Error processing stream: " + exc);
-//        }
-//    }
-//    
-//    @Test
-//    public void testCrawlerReturns1stPageReferences(){
-//        // Setup the webcrawler.
-//        crawlie = new WebCrawlerImplNoSearch();
-//        crawlList = crawlie.crawl(testSite, conn);
-//        
-//        // Test the link has been found.
-//        boolean contains = false;
-//        for(String s : crawlList){
-//            if(s.equalsIgnoreCase(link1)){
-//                contains = true;
-//            }
-//        }
-//        assertTrue("The link is not in the list.", contains);
-//    }
-//    
-//    @Test
-//    public void testCrawlerReturnsIgnoresUnhelpfulValues(){
-//        // Setup the webcrawler.
-//        crawlie = new WebCrawlerImplNoSearch(0, 0);
-//        crawlList = crawlie.crawl(testSite, conn);
-//        
-//        // Test the link has been found.
-//        boolean contains;
-//        contains = crawlList.contains(link1);
-//        assertTrue("The link is not in the list.", contains);
-//    }
-//    
-//    @Test
-//    public void testCrawlerReturns1stPageReferencesWithMaxLinks(){
-//        // Setup the webcrawler.
-//        crawlie = new WebCrawlerImplNoSearch(4, 1000);
-//        crawlList = crawlie.crawl(testSite, conn);
-//        
-//        // Test the size of the list is correct.
-//        int size = crawlList.size();
-//        assertEquals("The length is not correct.", 4, size);
-//    }
-//    
-//    @Test
-//    public void testCrawlerReturns1stPageReferencesWithMaxDepth(){
-//        // Setup the webcrawler.
-//        crawlie = new WebCrawlerImplNoSearch(1000, 1);
-//        crawlList = crawlie.crawl(testSite, conn);
-//        
-//        // Test the size of the list is correct.
-//        int size = crawlList.size();
-//        assertEquals("The length is not correct.", 4, size);
-//    }
-//}
\ No newline at end of file
+package testcrawler;
+
+import crawler.CrawlError;
+import crawler.ErrorCategory;
+import crawler.ErrorLogImpl;
+import crawler.HostStats;
+import crawler.LinkDB;
+import crawler.LinkDBImpl;
+import crawler.LinkDBImplMemory;
+import crawler.PageCacheImpl;
+import crawler.URLCanonicaliserImpl;
+import crawler.WebCrawler;
+import crawler.WebCrawlerImplNoSearch;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * This is a testing class for the WebCrawler class in 'Crawler'. The pages
+ * are served by a SiteSimulator in which every page links to three others.
+ * 
+ * @author James Hill
+ */
+public class TestWebCrawler {
+    
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+    
+    Connection conn;
+    
+    LinkedList<String> crawlList;
+    
+    SiteSimulator site;
+    
+    // Strings for the database.
+    static String dbName = "testDB;";
+    static String protocol = "jdbc:derby:memory:";
+    
+    WebCrawler crawlie;
+    
+    @Before
+    public void setup() throws IOException{
+        site = new SiteSimulator(3, 3, 1024, 0);
+        site.start();
+        try {
+            String driver = "org.apache.derby.jdbc.EmbeddedDriver";
+            Class.forName(driver);
+            conn = DriverManager.getConnection(protocol + dbName + "create=true");
+        } catch (ClassNotFoundException | SQLException exc) {
+            System.err.println("Error processing stream: " + exc);
+        }
+    }
+    
+    @After
+    public void cleanup(){
+        site.stop();
+        try {
+            conn.close();
+            DriverManager.getConnection(protocol + dbName + "drop=true");
+        } catch (SQLException exc) {
+            // A dropped database always reports an exception.
+        }
+    }
+    
+    @Test
+    public void testCrawlerReturns1stPageReferences(){
+        // Setup the webcrawler.
+        crawlie = new WebCrawlerImplNoSearch();
+        crawlList = crawlie.crawl(site.getHome(), conn);
+        
+        // Test the link has been found.
+        boolean contains = false;
+        for(String s : crawlList){
+            if(s.equalsIgnoreCase(site.url(1))){
+                contains = true;
+            }
+        }
+        assertTrue("The link is not in the list.", contains);
+    }
+    
+    @Test
+    public void testCrawlerReturnsIgnoresUnhelpfulValues(){
+        // Setup the webcrawler.
+        crawlie = new WebCrawlerImplNoSearch(0, 0);
+        crawlList = crawlie.crawl(site.getHome(), conn);
+        
+        // Test the default depth of 2 has been used.
+        assertEquals("The length is not correct.", site.pagesWithin(1), crawlList.size());
+        assertTrue("The link is not in the list.", crawlList.contains(site.url(3)));
+    }
+    
+    @Test
+    public void testCrawlerReturns1stPageReferencesWithMaxLinks(){
+        // Setup the webcrawler.
+        crawlie = new WebCrawlerImplNoSearch(4, 1000);
+        crawlList = crawlie.crawl(site.getHome(), conn);
+        
+        // Test the size of the list is correct.
+        int size = crawlList.size();
+        assertEquals("The length is not correct.", 4, size);
+    }
+    
+    @Test
+    public void testCrawlerReturns1stPageReferencesWithMaxDepth(){
+        // Setup the webcrawler.
+        crawlie = new WebCrawlerImplNoSearch(1000, 1);
+        crawlList = crawlie.crawl(site.getHome(), conn);
+        
+        // Test only the start page has been returned.
+        assertEquals("The length is not correct.", 1, crawlList.size());
+        assertEquals("The link is not correct.", site.getHome(), crawlList.getFirst());
+    }
+    
+    @Test
+    public void testCrawlerReturnsWholeSite(){
+        // Setup the webcrawler.
+        crawlie = new WebCrawlerImplNoSearch(1000, 1000);
+        crawlList = crawlie.crawl(site.getHome(), conn);
+        
+        // Test every page has been returned once.
+        assertEquals("The length is not correct.", site.getPageCount(), crawlList.size());
+        for(int i = 0; i < site.getPageCount(); i++){
+            assertTrue("A page is not in the list.", crawlList.contains(site.url(i)));
+        }
+    }
+    
+    @Test
+    public void testCrawlerReturnsPagesLowestDepthFirst(){
+        // Setup the webcrawler.
+        crawlie = new WebCrawlerImplNoSearch(1000, 3);
+        crawlList = crawlie.crawl(site.getHome(), conn);
+        
+        // Test that no page comes before a page nearer the start.
+        int within = site.pagesWithin(2);
+        assertEquals("The length is not correct.", within, crawlList.size());
+        for(int i = 0; i < site.pagesWithin(1); i++){
+            assertEquals("The order is not correct.", site.url(i), crawlList.get(i));
+        }
+    }
+    
+    @Test
+    public void testCrawlerWithThreadsReturnsSamePages(){
+        // Setup the webcrawler.
+        crawlie = new WebCrawlerImplNoSearch(1000, 3, 4);
+        List<String> parallel = crawlie.crawl(site.getHome(), new LinkDBImplMemory());
+        crawlList = new WebCrawlerImplNoSearch(1000, 3).crawl(site.getHome(), conn);
+        
+        // Test both crawls have found the same pages.
+        assertEquals("The length is not correct.", crawlList.size(), parallel.size());
+        assertEquals("The pages are not the same.", new HashSet<>(crawlList), new HashSet<>(parallel));
+    }
+    
+    @Test
+    public void testCrawlerSkipsMissingPages(){
+        // Setup the webcrawler.
+        crawlie = new WebCrawlerImplNoSearch(1000, 1000);
+        crawlList = crawlie.crawl(site.url(site.getPageCount()), conn);
+        
+        // Test that nothing is returned for a page that does not exist.
+        assertEquals("The length is not correct.", 0, crawlList.size());
+    }
+    
+    @Test
+    public void testCrawlerReadsPagesThatArriveAfterTheHeaders(){
+        // Setup the webcrawler and delay the body of every page.
+        site.setBodyDelay(20);
+        WebCrawlerImplNoSearch crawler = new WebCrawlerImplNoSearch(1000, 2);
+        crawlList = crawler.crawl(site.getHome(), conn);
+        
+        // Test every page has been read and its links followed.
+        assertEquals("The length is not correct.", site.pagesWithin(1), crawlList.size());
+        assertEquals("The pages fetched are not correct.", site.pagesWithin(1), crawler.getPagesFetched());
+        assertTrue("No page was late.", crawler.getPagesNotReady() > 0);
+    }
+    
+    @Test
+    public void testCrawlerUsesOneConnectionForEachHost(){
+        // Setup the webcrawler.
+        crawlie = new WebCrawlerImplNoSearch(1000, 1000);
+        crawlList = crawlie.crawl(site.getHome(), conn);
+        
+        // Test every page has been fetched over the same connection.
+        assertEquals("The length is not correct.", site.getPageCount(), crawlList.size());
+        assertEquals("The connections are not correct.", 1, site.getConnectionCount());
+    }
+    
+    @Test
+    public void testCrawlerLimitsPagesFromOneHost(){
+        // Setup the webcrawler with more threads than a host may use.
+        SiteSimulator slowSite = new SiteSimulator(3, 3, 1024, 10);
+        try {
+            slowSite.start();
+            WebCrawlerImplNoSearch crawler = new WebCrawlerImplNoSearch(1000, 1000, 8);
+            crawler.setMaxPerHost(2);
+            crawlList = crawler.crawl(slowSite.getHome(), new LinkDBImplMemory());
+            
+            // Test the whole site has been crawled two pages at a time.
+            assertEquals("The length is not correct.", slowSite.getPageCount(), crawlList.size());
+            assertTrue("Too many requests at once.", slowSite.getMostConcurrentRequests() <= 2);
+            assertTrue("Too many connections.", slowSite.getConnectionCount() <= 2);
+        } catch (IOException exc) {
+            System.err.println("Error processing stream: " + exc);
+        } finally {
+            slowSite.stop();
+        }
+    }
+    
+    @Test
+    public void testCrawlerWaitsBetweenPagesFromOneHost(){
+        // Setup the webcrawler with a delay between pages.
+        WebCrawlerImplNoSearch crawler = new WebCrawlerImplNoSearch(1000, 2);
+        crawler.setHostDelay(50);
+        long start = System.nanoTime();
+        crawlList = crawler.crawl(site.getHome(), conn);
+        long elapsed = (System.nanoTime() - start) / 1000000;
+        
+        // Test the four pages have been started at least 50ms apart.
+        assertEquals("The length is not correct.", site.pagesWithin(1), crawlList.size());
+        assertTrue("The pages were fetched too quickly.", elapsed >= 150);
+    }
+    
+    @Test
+    public void testCrawlerRecordsPagesFromEachHost(){
+        // Setup the webcrawler.
+        WebCrawlerImplNoSearch crawler = new WebCrawlerImplNoSearch(1000, 2, 4);
+        crawlList = crawler.crawl(site.getHome(), conn);
+        
+        // Test the pages of the single host have been recorded.
+        Map<String, HostStats> stats = crawler.getHostStats();
+        assertEquals("The hosts are not correct.", 1, stats.size());
+        HostStats host = stats.values().iterator().next();
+        assertEquals("The pages are not correct.", site.pagesWithin(1), host.getPages());
+        assertEquals("The bytes are not correct.", crawler.getBytesRead(), host.getBytes());
+        assertTrue("The pages per second are not correct.", host.getPagesPerSecond() > 0);
+    }
+    
+    @Test
+    public void testCrawlerUsesCacheForUnchangedPages() throws IOException{
+        // Crawl the site twice with the same cache.
+        PageCacheImpl cache = new PageCacheImpl(folder.newFolder("cache"));
+        WebCrawlerImplNoSearch crawler = new WebCrawlerImplNoSearch(1000, 1000);
+        crawler.setPageCache(cache);
+        List<String> first = crawler.crawl(site.getHome(), new LinkDBImplMemory());
+        List<String> second = crawler.crawl(site.getHome(), new LinkDBImplMemory());
+        
+        // Test the second crawl found the same pages without downloading them.
+        assertEquals("The pages are not the same.", first, second);
+        assertEquals("The cached pages are not correct.", site.getPageCount(), crawler.getPagesFromCache());
+        assertEquals("The 304 responses are not correct.", site.getPageCount(), site.getNotModifiedCount());
+        assertEquals("The bytes read are not correct.", 0, crawler.getBytesRead());
+        assertEquals("The hit rate is not correct.", 0.5, cache.getHitRate(), 0.0001);
+    }
+    
+    @Test
+    public void testCrawlerDownloadsChangedPages() throws IOException{
+        // Crawl the site, change it and crawl it again.
+        PageCacheImpl cache = new PageCacheImpl(folder.newFolder("cache"));
+        WebCrawlerImplNoSearch crawler = new WebCrawlerImplNoSearch(1000, 1000);
+        crawler.setPageCache(cache);
+        crawler.crawl(site.getHome(), new LinkDBImplMemory());
+        site.setVersion(2);
+        crawlList = crawler.crawl(site.getHome(), new LinkDBImplMemory());
+        
+        // Test every page was downloaded again.
+        assertEquals("The length is not correct.", site.getPageCount(), crawlList.size());
+        assertEquals("The cached pages are not correct.", 0, crawler.getPagesFromCache());
+        assertEquals("The hits are not correct.", 0, cache.getHits());
+    }
+    
+    @Test
+    public void testCrawlerResumesStoppedCrawl() throws IOException, SQLException{
+        // Crawl part of the site into a database kept on disk, then stop
+        // part way through a page and close the database.
+        String url = "jdbc:derby:" + folder.newFolder("db").getPath() + "/crawl;";
+        Connection diskConn = DriverManager.getConnection(url + "create=true");
+        List<String> results = new LinkedList<>();
+        LinkDB dataBase = new LinkDBImpl(diskConn);
+        new WebCrawlerImplNoSearch(5, 1000).crawl(site.getHome(), dataBase, results::add);
+        dataBase.pollNext();
+        diskConn.close();
+        try {
+            DriverManager.getConnection(url + "shutdown=true");
+        } catch (SQLException exc) {
+            // A database that has been shut down always reports an exception.
+        }
+        
+        // Resume the crawl from the database on disk.
+        diskConn = DriverManager.getConnection(url);
+        int found = new WebCrawlerImplNoSearch(1000, 1000).resume(new LinkDBImpl(diskConn), results::add);
+        diskConn.close();
+        
+        // Test every page has been returned once between the two crawls.
+        assertEquals("The results are not correct.", site.getPageCount() - 5, found);
+        assertEquals("The length is not correct.", site.getPageCount(), results.size());
+        assertEquals("A page was returned twice.", site.getPageCount(), new HashSet<>(results).size());
+    }
+    
+    @Test
+    public void testCrawlerFetchesDuplicateAddressesOnce(){
+        // Crawl a site that links to each page through two addresses.
+        site.setDuplicateLinks(true);
+        WebCrawlerImplNoSearch crawler = new WebCrawlerImplNoSearch(1000, 1000);
+        crawler.setCanonicaliser(new URLCanonicaliserImpl(false, true));
+        crawlList = crawler.crawl(site.getHome(), new LinkDBImplMemory());
+        
+        // Test every page was fetched once, under its own address.
+        assertEquals("The pages fetched are not correct.", site.getPageCount(), crawler.getPagesFetched());
+        for(int i = 0; i < site.getPageCount(); i++){
+            assertTrue("A page is not in the list.", crawlList.contains(site.url(i)));
+        }
+    }
+    
+    @Test
+    public void testCrawlerWithoutCanonicaliserFetchesDuplicates(){
+        site.setDuplicateLinks(true);
+        WebCrawlerImplNoSearch crawler = new WebCrawlerImplNoSearch(1000, 1000);
+        crawler.setCanonicaliser(null);
+        crawler.crawl(site.getHome(), new LinkDBImplMemory());
+        assertTrue("The duplicates were not fetched.", crawler.getPagesFetched() > site.getPageCount());
+    }
+    
+    @Test
+    public void testCrawlerFetchesLinksWhilePageIsRead(){
+        // Send each page slowly, with the links at the start.
+        site.setChunkDelay(100);
+        WebCrawlerImplNoSearch crawler = new WebCrawlerImplNoSearch(1000, 2, 4);
+        crawlList = crawler.crawl(site.getHome(), new LinkDBImplMemory());
+        
+        // Test the linked pages were requested while the home page was sent.
+        assertEquals("The length is not correct.", site.pagesWithin(1), crawlList.size());
+        assertEquals("The pages were not fetched at once.", site.pagesWithin(1),
+                site.getMostConcurrentRequests());
+    }
+    
+    @Test
+    public void testNonBlockingCrawlReturnsSamePages(){
+        // Setup the webcrawler to fetch four pages at once without threads.
+        WebCrawlerImplNoSearch crawler = new WebCrawlerImplNoSearch(1000, 3, 4);
+        crawler.setNonBlocking(true);
+        List<String> nonBlocking = crawler.crawl(site.getHome(), new LinkDBImplMemory());
+        crawlList = new WebCrawlerImplNoSearch(1000, 3).crawl(site.getHome(), conn);
+        
+        // Test both crawls have found the same pages.
+        assertEquals("The pages are not the same.", new HashSet<>(crawlList), new HashSet<>(nonBlocking));
+        assertEquals("The pages fetched are not correct.", crawlList.size(), crawler.getPagesFetched());
+        assertTrue("Too many connections were opened.", site.getConnectionCount() <= 1 + 4);
+    }
+    
+    @Test
+    public void testNonBlockingCrawlReadsChunkedPages(){
+        site.setChunked(true);
+        WebCrawlerImplNoSearch crawler = new WebCrawlerImplNoSearch(1000, 1000, 8);
+        crawler.setNonBlocking(true);
+        crawlList = crawler.crawl(site.getHome(), new LinkDBImplMemory());
+        assertEquals("The length is not correct.", site.getPageCount(), crawlList.size());
+    }
+    
+    @Test
+    public void testNonBlockingCrawlUsesCacheForUnchangedPages() throws IOException{
+        // Crawl the site twice with the same cache.
+        WebCrawlerImplNoSearch crawler = new WebCrawlerImplNoSearch(1000, 1000, 4);
+        crawler.setNonBlocking(true);
+        crawler.setPageCache(new PageCacheImpl(folder.newFolder("cache")));
+        List<String> first = crawler.crawl(site.getHome(), new LinkDBImplMemory());
+        List<String> second = crawler.crawl(site.getHome(), new LinkDBImplMemory());
+        
+        // Test the second crawl found the same pages without downloading them.
+        assertEquals("The pages are not the same.", new HashSet<>(first), new HashSet<>(second));
+        assertEquals("The cached pages are not correct.", site.getPageCount(), crawler.getPagesFromCache());
+        assertEquals("The bytes read are not correct.", 0, crawler.getBytesRead());
+    }
+    
+    @Test
+    public void testCrawlerReadsCompressedPages(){
+        for(String compression : new String[]{"gzip", "deflate", "raw-deflate"}){
+            site.setCompression(compression);
+            WebCrawlerImplNoSearch crawler = new WebCrawlerImplNoSearch(1000, 1000);
+            crawlList = crawler.crawl(site.getHome(), new LinkDBImplMemory());
+            
+            // Test every page was found and fewer bytes were sent than read.
+            assertEquals("The length is not correct for " + compression, site.getPageCount(), crawlList.size());
+            assertTrue("The pages were not compressed with " + compression,
+                    crawler.getBytesRead() * 2 < crawler.getBytesDecoded());
+            assertTrue("The pages were not decoded with " + compression,
+                    crawler.getBytesDecoded() >= site.getPageCount() * 1024L);
+        }
+    }
+    
+    @Test
+    public void testCrawlerWithoutCompressionReadsPlainPages(){
+        site.setCompression("gzip");
+        WebCrawlerImplNoSearch crawler = new WebCrawlerImplNoSearch(1000, 1000);
+        crawler.setCompression(false);
+        crawlList = crawler.crawl(site.getHome(), new LinkDBImplMemory());
+        assertEquals("The length is not correct.", site.getPageCount(), crawlList.size());
+        assertEquals("The pages were compressed.", crawler.getBytesRead(), crawler.getBytesDecoded());
+    }
+    
+    @Test
+    public void testCrawlerFetchesLinksWhileCompressedPageIsRead(){
+        // Send each compressed page slowly, with the links at the start.
+        site.setCompression("gzip");
+        site.setChunkDelay(100);
+        WebCrawlerImplNoSearch crawler = new WebCrawlerImplNoSearch(1000, 2, 4);
+        crawlList = crawler.crawl(site.getHome(), new LinkDBImplMemory());
+        
+        // Test the linked pages were requested while the home page was sent.
+        assertEquals("The length is not correct.", site.pagesWithin(1), crawlList.size());
+        assertEquals("The pages were not fetched at once.", site.pagesWithin(1),
+                site.getMostConcurrentRequests());
+    }
+    
+    @Test
+    public void testNonBlockingCrawlReadsCompressedPages(){
+        site.setCompression("gzip");
+        site.setChunked(true);
+        WebCrawlerImplNoSearch crawler = new WebCrawlerImplNoSearch(1000, 1000, 8);
+        crawler.setNonBlocking(true);
+        crawlList = crawler.crawl(site.getHome(), new LinkDBImplMemory());
+        assertEquals("The length is not correct.", site.getPageCount(), crawlList.size());
+        assertTrue("The pages were not compressed.", crawler.getBytesRead() * 2 < crawler.getBytesDecoded());
+    }
+    
+    @Test
+    public void testCrawlerRecordsMetrics(){
+        WebCrawlerImplNoSearch crawler = new WebCrawlerImplNoSearch(1000, 1000, 4);
+        crawlList = crawler.crawl(site.getHome(), new LinkDBImplMemory());
+        Map<String, Number> metrics = crawler.getMetrics().snapshot();
+        assertEquals("The pages fetched are not correct.", (long) site.getPageCount(), metrics.get("pages.fetched"));
+        assertEquals("The latencies are not correct.", (long) site.getPageCount(),
+                metrics.get("fetch.latency.us.count"));
+        assertTrue("The database was not timed.", metrics.get("db.pollNext.us.count").longValue() > 0);
+        assertEquals("The frontier is not empty.", 0.0, metrics.get("frontier.size"));
+        assertTrue("The rate is not correct.", metrics.get("pages.perSecond").doubleValue() > 0);
+    }
+    
+    @Test
+    public void testCrawlerReportsErrorsByCategory(){
+        site.setFailEvery(3);
+        WebCrawlerImplNoSearch crawler = new WebCrawlerImplNoSearch(1000, 1000);
+        crawler.setErrorOutput(null);
+        crawlList = crawler.crawl(site.getHome(), new LinkDBImplMemory());
+        
+        // Test each failure sent was reported once in its category.
+        ErrorLogImpl errors = crawler.getErrorLog();
+        assertEquals("The server errors are not correct.", site.getServerErrorCount(),
+                errors.getCount(ErrorCategory.HTTP_STATUS));
+        assertEquals("The bodies cut off are not correct.", site.getTruncatedCount(),
+                errors.getCount(ErrorCategory.IO));
+        assertEquals("The bad links are not correct.", site.getBadLinkCount(),
+                errors.getCount(ErrorCategory.PARSE));
+        
+        // Test the failed pages are kept and only the complete pages fetched.
+        CrawlError error = errors.getFailures().get(site.url(9));
+        assertEquals("The status is not correct.", 500, error.getStatus());
+        assertFalse("The failed page was returned.", crawlList.contains(site.url(9)));
+        assertEquals("The pages fetched are not correct.", crawlList.size(), crawler.getPagesFetched());
+    }
+    
+    @Test(timeout = 30000)
+    public void testCrawlerAbandonsStalledPages() throws IOException{
+        checkStalledPages(false);
+        
+        // Test the links sent before a trickled page was abandoned were crawled.
+        assertEquals("The stalled pages are not correct.", 3, site.getStalledCount());
+        assertTrue("The links on a trickled page were not crawled.", crawlList.contains(site.url(5)));
+    }
+    
+    @Test(timeout = 30000)
+    public void testNonBlockingCrawlAbandonsStalledPages() throws IOException{
+        checkStalledPages(true);
+    }
+    
+    @Test
+    public void testCrawlerAbandonsLargePages(){
+        site.setChunked(true);
+        WebCrawlerImplNoSearch crawler = new WebCrawlerImplNoSearch(1000, 1000);
+        crawler.setErrorOutput(null);
+        crawler.setMaxPageBytes(512);
+        crawlList = crawler.crawl(site.getHome(), new LinkDBImplMemory());
+        
+        // Test every page was abandoned, but its links still crawled.
+        assertEquals("The pages requested are not correct.", site.getPageCount(), site.getRequestCount());
+        assertEquals("The pages abandoned are not correct.", site.getPageCount(), crawler.getPagesAbandoned());
+        assertEquals("The errors are not correct.", site.getPageCount(),
+                crawler.getErrorLog().getCount(ErrorCategory.TOO_LARGE));
+        assertEquals("The pages fetched are not correct.", 0, crawler.getPagesFetched());
+        assertTrue("Too much of a page was read.", crawler.getBytesDecoded() <= 512L * site.getPageCount());
+    }
+    
+    @Test
+    public void testNonBlockingCrawlAbandonsLargePages(){
+        WebCrawlerImplNoSearch crawler = new WebCrawlerImplNoSearch(1000, 1000, 4);
+        crawler.setNonBlocking(true);
+        crawler.setErrorOutput(null);
+        crawler.setMaxPageBytes(512);
+        crawlList = crawler.crawl(site.getHome(), new LinkDBImplMemory());
+        assertEquals("The pages abandoned are not correct.", 1, crawler.getPagesAbandoned());
+        assertEquals("The errors are not correct.", 1, crawler.getErrorLog().getCount(ErrorCategory.TOO_LARGE));
+        
+        // Test a compressed page is abandoned once too much has been inflated.
+        site.setCompression("gzip");
+        crawler.setMaxPageBytes(site.page(0).length - 1);
+        crawlList = crawler.crawl(site.getHome(), new LinkDBImplMemory());
+        assertEquals("The pages abandoned are not correct.", site.getPageCount(), crawler.getPagesAbandoned());
+        assertTrue("The pages were not compressed.", crawler.getBytesRead() * 2 < crawler.getBytesDecoded());
+    }
+    
+    /**
+     * This method crawls a site on which every other page stalls, either by
+     * never being answered or by arriving a byte at a time, and checks each
+     * stalled page was abandoned once its time was up.
+     */
+    private void checkStalledPages(boolean nonBlocking) throws IOException{
+        site.stop();
+        site = new SiteSimulator(2, 2, 2048, 0);
+        site.setStallEvery(2);
+        site.start();
+        WebCrawlerImplNoSearch crawler = new WebCrawlerImplNoSearch(1000, 1000, 4);
+        crawler.setNonBlocking(nonBlocking);
+        crawler.setErrorOutput(null);
+        crawler.setReadTimeout(500);
+        crawler.setPageTimeout(1500);
+        long start = System.nanoTime();
+        crawlList = crawler.crawl(site.getHome(), new LinkDBImplMemory());
+        long millis = (System.nanoTime() - start) / 1000000;
+        
+        assertTrue("The crawl was held up by the stalled pages.", millis < 10000);
+        assertTrue("Too few pages stalled.", site.getStalledCount() >= 2);
+        assertEquals("The pages abandoned are not correct.", site.getStalledCount(), crawler.getPagesAbandoned());
+        assertEquals("The errors are not correct.", site.getStalledCount(),
+                crawler.getErrorLog().getCount(ErrorCategory.TIMEOUT));
+        assertEquals("The pages fetched are not correct.", site.getRequestCount() - site.getStalledCount(),
+                crawler.getPagesFetched());
+        assertEquals("The metric is not correct.", (long) site.getStalledCount(),
+                crawler.getMetrics().snapshot().get("pages.abandoned"));
+    }
+    
+    @Test(timeout = 60000)
+    public void testCrawlerWithManyErrorsIsNotHeldUpByErrorOutput() throws IOException{
+        checkManyErrors(false);
+    }
+    
+    @Test(timeout = 60000)
+    public void testNonBlockingCrawlWithManyErrorsIsNotHeldUpByErrorOutput() throws IOException{
+        checkManyErrors(true);
+    }
+    
+    /**
+     * This method crawls a site on which half the pages fail, with 16 pages
+     * fetched at once and the errors written to a stream that never returns
+     * from a write, and checks every error was still counted.
+     */
+    private void checkManyErrors(boolean nonBlocking) throws IOException{
+        site.stop();
+        site = new SiteSimulator(4, 4, 4096, 0);
+        site.setFailEvery(2);
+        CountDownLatch never = new CountDownLatch(1);
+        PrintStream blocked = new PrintStream(new OutputStream(){
+            @Override
+            public void write(int b) throws IOException{
+                try {
+                    never.await();
+                } catch (InterruptedException exc) {
+                    throw new IOException(exc);
+                }
+            }
+        });
+        try {
+            site.start();
+            WebCrawlerImplNoSearch crawler = new WebCrawlerImplNoSearch(10000, 10000, 16);
+            crawler.setNonBlocking(nonBlocking);
+            crawler.setErrorOutput(blocked);
+            crawlList = crawler.crawl(site.getHome(), new LinkDBImplMemory());
+            
+            ErrorLogImpl errors = crawler.getErrorLog();
+            int sent = site.getServerErrorCount() + site.getTruncatedCount() + site.getBadLinkCount();
+            assertTrue("Too few pages failed.", sent > site.getRequestCount() / 3);
+            assertEquals("The errors are not correct.", sent, errors.getTotal());
+            assertEquals("The server errors are not correct.", site.getServerErrorCount(),
+                    errors.getCount(ErrorCategory.HTTP_STATUS));
+            assertEquals("The pages are not correct.", site.getRequestCount() - site.getServerErrorCount()
+                    - site.getTruncatedCount(), crawler.getPagesFetched());
+            errors.close();
+        } finally {
+            never.countDown();
+        }
+    }
+}
\ No newline at end of file